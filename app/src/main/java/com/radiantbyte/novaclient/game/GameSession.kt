@@ -10,10 +10,35 @@ import com.radiantbyte.novaclient.game.registry.ItemMappingProvider
 import com.radiantbyte.novaclient.game.world.Level
 import com.radiantbyte.novarelay.NovaRelaySession
 import org.cloudburstmc.protocol.bedrock.data.definitions.ItemDefinition
+import org.cloudburstmc.protocol.bedrock.packet.AddEntityPacket
+import org.cloudburstmc.protocol.bedrock.packet.AddItemEntityPacket
+import org.cloudburstmc.protocol.bedrock.packet.AddPlayerPacket
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
+import org.cloudburstmc.protocol.bedrock.packet.ContainerClosePacket
+import org.cloudburstmc.protocol.bedrock.packet.ContainerOpenPacket
+import org.cloudburstmc.protocol.bedrock.packet.InventoryContentPacket
+import org.cloudburstmc.protocol.bedrock.packet.InventorySlotPacket
+import org.cloudburstmc.protocol.bedrock.packet.InventoryTransactionPacket
 import org.cloudburstmc.protocol.bedrock.packet.ItemComponentPacket
+import org.cloudburstmc.protocol.bedrock.packet.ItemStackRequestPacket
+import org.cloudburstmc.protocol.bedrock.packet.ItemStackResponsePacket
+import org.cloudburstmc.protocol.bedrock.packet.MobArmorEquipmentPacket
+import org.cloudburstmc.protocol.bedrock.packet.MobEffectPacket
+import org.cloudburstmc.protocol.bedrock.packet.MobEquipmentPacket
+import org.cloudburstmc.protocol.bedrock.packet.MoveEntityAbsolutePacket
+import org.cloudburstmc.protocol.bedrock.packet.MoveEntityDeltaPacket
+import org.cloudburstmc.protocol.bedrock.packet.MovePlayerPacket
+import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
+import org.cloudburstmc.protocol.bedrock.packet.PlayerHotbarPacket
+import org.cloudburstmc.protocol.bedrock.packet.PlayerListPacket
+import org.cloudburstmc.protocol.bedrock.packet.RemoveEntityPacket
+import org.cloudburstmc.protocol.bedrock.packet.SetEntityDataPacket
+import org.cloudburstmc.protocol.bedrock.packet.SetEntityLinkPacket
 import org.cloudburstmc.protocol.bedrock.packet.StartGamePacket
+import org.cloudburstmc.protocol.bedrock.packet.TakeItemEntityPacket
 import org.cloudburstmc.protocol.bedrock.packet.TextPacket
+import org.cloudburstmc.protocol.bedrock.packet.UnknownPacket
+import org.cloudburstmc.protocol.bedrock.packet.UpdateAttributesPacket
 import org.cloudburstmc.protocol.common.SimpleDefinitionRegistry
 
 @Suppress("MemberVisibilityCanBePrivate")
@@ -35,6 +60,19 @@ class GameSession(val novaRelaySession: NovaRelaySession) : ComposedPacketHandle
 
     private var startGameReceived = false
 
+    private val clientBoundInterceptable = InterceptablePacket(EMPTY_PACKET)
+    private val serverBoundInterceptable = InterceptablePacket(EMPTY_PACKET)
+
+    /**
+     * Packets the session, [localPlayer] and [level] track, on top of those the active modules subscribe to.
+     * Every other packet is forwarded without being decoded.
+     */
+    override val interestedPackets: Set<Class<out BedrockPacket>>?
+        get() {
+            val modulePackets = ModuleManager.packetDispatch().subscribedPackets ?: return null
+            return SESSION_PACKETS + modulePackets
+        }
+
     fun clientBound(packet: BedrockPacket) {
         novaRelaySession.clientBound(packet)
     }
@@ -43,7 +81,19 @@ class GameSession(val novaRelaySession: NovaRelaySession) : ComposedPacketHandle
         novaRelaySession.serverBound(packet)
     }
 
+    override fun beforeClientBound(packet: BedrockPacket): Boolean {
+        return beforePacketBound(packet, clientBoundInterceptable)
+    }
+
+    override fun beforeServerBound(packet: BedrockPacket): Boolean {
+        return beforePacketBound(packet, serverBoundInterceptable)
+    }
+
     override fun beforePacketBound(packet: BedrockPacket): Boolean {
+        return beforePacketBound(packet, InterceptablePacket(packet))
+    }
+
+    private fun beforePacketBound(packet: BedrockPacket, interceptablePacket: InterceptablePacket): Boolean {
         when (packet) {
             is StartGamePacket -> {
                 try {
@@ -90,27 +140,35 @@ class GameSession(val novaRelaySession: NovaRelaySession) : ComposedPacketHandle
             }
         }
 
-        localPlayer.onPacketBound(packet)
+        val modified = localPlayer.onPacketBound(packet)
         level.onPacketBound(packet)
 
-        val interceptablePacket = InterceptablePacket(packet)
-
-        for (module in ModuleManager.modules) {
-            // Set session if not already set
-            if (!module.isSessionCreated) {
-                module.session = this
+        interceptablePacket.reset(packet)
+        if (modified) {
+            interceptablePacket.modify()
+        }
+        try {
+            for (module in ModuleManager.packetDispatch().handlersFor(packet)) {
+                // Set session if not already set
+                if (!module.isSessionCreated) {
+                    module.session = this
+                }
+                module.beforePacketBound(interceptablePacket)
+                if (interceptablePacket.isIntercepted) {
+                    return true
+                }
             }
-            module.beforePacketBound(interceptablePacket)
-            if (interceptablePacket.isIntercepted) {
-                return true
+            if (interceptablePacket.isModified) {
+                novaRelaySession.markModified(packet)
             }
+            return false
+        } finally {
+            interceptablePacket.reset(EMPTY_PACKET)
         }
-
-        return false
     }
 
     override fun afterPacketBound(packet: BedrockPacket) {
-        for (module in ModuleManager.modules) {
+        for (module in ModuleManager.packetDispatch().handlersFor(packet)) {
             module.afterPacketBound(packet)
         }
     }
@@ -136,4 +194,40 @@ class GameSession(val novaRelaySession: NovaRelaySession) : ComposedPacketHandle
         clientBound(textPacket)
     }
 
+    private companion object {
+        // Held by the reusable instances between packets, so they do not keep the last packet alive
+        val EMPTY_PACKET = UnknownPacket()
+
+        val SESSION_PACKETS: Set<Class<out BedrockPacket>> = setOf(
+            StartGamePacket::class.java,
+            ItemComponentPacket::class.java,
+            // Level
+            AddEntityPacket::class.java,
+            AddItemEntityPacket::class.java,
+            AddPlayerPacket::class.java,
+            RemoveEntityPacket::class.java,
+            TakeItemEntityPacket::class.java,
+            PlayerListPacket::class.java,
+            MoveEntityAbsolutePacket::class.java,
+            MoveEntityDeltaPacket::class.java,
+            MovePlayerPacket::class.java,
+            SetEntityDataPacket::class.java,
+            SetEntityLinkPacket::class.java,
+            UpdateAttributesPacket::class.java,
+            MobEffectPacket::class.java,
+            // LocalPlayer and its inventories
+            PlayerAuthInputPacket::class.java,
+            ContainerOpenPacket::class.java,
+            ContainerClosePacket::class.java,
+            PlayerHotbarPacket::class.java,
+            MobEquipmentPacket::class.java,
+            MobArmorEquipmentPacket::class.java,
+            InventoryTransactionPacket::class.java,
+            InventorySlotPacket::class.java,
+            InventoryContentPacket::class.java,
+            ItemStackRequestPacket::class.java,
+            ItemStackResponsePacket::class.java
+        )
+    }
+
 }
\ No newline at end of file
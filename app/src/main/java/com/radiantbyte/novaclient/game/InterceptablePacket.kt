@@ -2,13 +2,35 @@ package com.radiantbyte.novaclient.game
 
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 
-data class InterceptablePacket(val packet: BedrockPacket) {
+class InterceptablePacket(packet: BedrockPacket) {
+
+    var packet = packet
+        private set
 
     var isIntercepted = false
         private set
 
+    var isModified = false
+        private set
+
     fun intercept() {
         isIntercepted = true
     }
 
+    /**
+     * Marks the packet as changed in place, so the changed packet is forwarded instead of its original bytes.
+     */
+    fun modify() {
+        isModified = true
+    }
+
+    /**
+     * Reuses this instance for the next packet, so dispatching does not allocate.
+     */
+    internal fun reset(packet: BedrockPacket) {
+        this.packet = packet
+        isIntercepted = false
+        isModified = false
+    }
+
 }
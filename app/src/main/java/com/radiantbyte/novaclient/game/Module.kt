@@ -5,6 +5,7 @@ import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.setValue
 import com.radiantbyte.novaclient.overlay.OverlayShortcutButton
 import com.radiantbyte.novaclient.util.translatedSelf
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import kotlinx.serialization.json.JsonElement
 import kotlinx.serialization.json.JsonObject
 import kotlinx.serialization.json.JsonPrimitive
@@ -29,6 +30,11 @@ abstract class Module(
         get() = _isEnabled
         set(value) {
             _isEnabled = value
+            ModulePacketDispatch.invalidate()
+            if (isSessionCreated) {
+                // The session's interest follows the active modules
+                session.novaRelaySession.invalidateListeners()
+            }
             if (value) {
                 onEnabled()
             } else {
@@ -39,6 +45,19 @@ abstract class Module(
     val isSessionCreated: Boolean
         get() = ::session.isInitialized
 
+    /**
+     * Packet classes passed to [beforePacketBound] and [afterPacketBound], or null for every packet.
+     */
+    open val subscribedPackets: Set<Class<out BedrockPacket>>?
+        get() = null
+
+    /**
+     * Whether packets are passed to the module while it is disabled. Modules that ignore packets while disabled
+     * should return false, so they cost nothing until they are enabled.
+     */
+    open val receivesPacketsWhenDisabled: Boolean
+        get() = true
+
     var isExpanded by mutableStateOf(false)
 
     var isShortcutDisplayed by mutableStateOf(false)
@@ -51,6 +70,11 @@ abstract class Module(
 
     override val values: MutableList<Value<*>> = ArrayList()
 
+    internal fun isSubscribedTo(packetClass: Class<*>): Boolean {
+        val subscribedPackets = subscribedPackets ?: return true
+        return subscribedPackets.any { it.isAssignableFrom(packetClass) }
+    }
+
     open fun onEnabled() {
         sendToggleMessage(true)
     }
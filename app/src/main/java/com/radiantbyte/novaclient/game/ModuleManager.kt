@@ -192,6 +192,10 @@ object ModuleManager {
         }
     }
 
+    internal fun packetDispatch(): ModulePacketDispatch {
+        return ModulePacketDispatch.of(modules)
+    }
+
     fun saveConfig() {
         val configsDir = AppContext.instance.filesDir.resolve("configs")
         configsDir.mkdirs()
@@ -0,0 +1,64 @@
+package com.radiantbyte.novaclient.game
+
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Modules which receive a packet, resolved once per packet class.
+ *
+ * A dispatch only holds the modules that were active when it was built. Enabling or disabling a module invalidates
+ * it, so the next packet builds a new one. Packets that no active module subscribes to resolve to an empty array.
+ */
+internal class ModulePacketDispatch private constructor(
+    private val version: Int,
+    private val modules: Array<Module>
+) {
+
+    private val handlers = ConcurrentHashMap<Class<*>, Array<Module>>()
+
+    /**
+     * Packet classes the active modules subscribe to, or null if one of them subscribes to every packet.
+     */
+    val subscribedPackets: Set<Class<out BedrockPacket>>? = run {
+        val packets = HashSet<Class<out BedrockPacket>>()
+        for (module in modules) {
+            packets += module.subscribedPackets ?: return@run null
+        }
+        packets
+    }
+
+    fun handlersFor(packet: BedrockPacket): Array<Module> {
+        val packetClass = packet.javaClass
+        return handlers[packetClass] ?: handlers.computeIfAbsent(packetClass) { resolve(it) }
+    }
+
+    private fun resolve(packetClass: Class<*>): Array<Module> {
+        return modules.filter { it.isSubscribedTo(packetClass) }.toTypedArray()
+    }
+
+    companion object {
+
+        private val version = AtomicInteger()
+
+        @Volatile
+        private var current: ModulePacketDispatch? = null
+
+        fun invalidate() {
+            version.incrementAndGet()
+        }
+
+        fun of(modules: List<Module>): ModulePacketDispatch {
+            val version = version.get()
+            current?.let {
+                if (it.version == version) {
+                    return it
+                }
+            }
+            val active = modules.filter { it.isEnabled || it.receivesPacketsWhenDisabled }
+            return ModulePacketDispatch(version, active.toTypedArray()).also { current = it }
+        }
+
+    }
+
+}
@@ -161,6 +161,7 @@ object TranslationManager {
         put("decimal_places", "Decimal Places")
         put("show_direction", "Show Direction")
         put("show_packets", "Show Packets")
+        put("show_relay_metrics", "Show Relay Metrics")
         put("show_entities", "Show Entities")
         put("show_players", "Show Players")
         put("show_time", "Show Time")
@@ -268,6 +269,7 @@ object TranslationManager {
         put("show_players", "显示玩家")
         put("show_direction", "显示方向")
         put("show_packets", "显示数据包")
+        put("show_relay_metrics", "显示中继指标")
         put("show_time", "显示时间")
         put("show_chunks", "显示区块")
         put("update_interval", "更新间隔")
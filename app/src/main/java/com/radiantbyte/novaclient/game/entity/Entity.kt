@@ -168,7 +168,10 @@ open class Entity(open val runtimeEntityId: Long, open val uniqueEntityId: Long)
         return effects.find { it.id == id }
     }
 
-    open fun onPacketBound(packet: BedrockPacket) {
+    /**
+     * @return whether the packet was changed and has to be encoded again
+     */
+    open fun onPacketBound(packet: BedrockPacket): Boolean {
         if (packet is MoveEntityAbsolutePacket && packet.runtimeEntityId == runtimeEntityId) {
             move(packet.position)
             rotate(packet.rotation)
@@ -223,6 +226,7 @@ open class Entity(open val runtimeEntityId: Long, open val uniqueEntityId: Long)
                 else -> {}
             }
         }
+        return false
     }
 
     open fun onDisconnect() {}
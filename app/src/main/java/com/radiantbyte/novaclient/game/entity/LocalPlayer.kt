@@ -47,15 +47,18 @@ class LocalPlayer(val session: GameSession) : Player(0L, 0L, UUID.randomUUID(),
     var openContainer: AbstractInventory? = null
         private set
 
-    override fun onPacketBound(packet: BedrockPacket) {
-        super.onPacketBound(packet)
+    override fun onPacketBound(packet: BedrockPacket): Boolean {
+        var modified = super.onPacketBound(packet)
         if (packet is StartGamePacket) {
             runtimeEntityId = packet.runtimeEntityId
             uniqueEntityId = packet.uniqueEntityId
 
             movementServerAuthoritative =
                 packet.authoritativeMovementMode != AuthoritativeMovementMode.CLIENT
-            packet.authoritativeMovementMode = AuthoritativeMovementMode.SERVER
+            if (packet.authoritativeMovementMode != AuthoritativeMovementMode.SERVER) {
+                packet.authoritativeMovementMode = AuthoritativeMovementMode.SERVER
+                modified = true
+            }
             inventoriesServerAuthoritative = packet.isInventoriesServerAuthoritative
             blockBreakServerAuthoritative = packet.isServerAuthoritativeBlockBreaking
             soundServerAuthoritative = packet.networkPermissions.isServerAuthSounds
@@ -69,7 +72,7 @@ class LocalPlayer(val session: GameSession) : Player(0L, 0L, UUID.randomUUID(),
         }
         if (packet is ContainerOpenPacket) {
             openContainer = if (packet.id.toInt() == 0) {
-                return
+                return modified
             } else {
                 ContainerInventory(packet.id.toInt(), packet.type)
             }
@@ -78,12 +81,15 @@ class LocalPlayer(val session: GameSession) : Player(0L, 0L, UUID.randomUUID(),
             openContainer = null
         }
 
-        inventory.onPacketBound(packet)
+        if (inventory.onPacketBound(packet)) {
+            modified = true
+        }
         openContainer?.also {
             if (it is ContainerInventory) {
                 it.onPacketBound(packet)
             }
         }
+        return modified
     }
 
     fun swing() {
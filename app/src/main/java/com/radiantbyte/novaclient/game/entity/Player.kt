@@ -12,13 +12,14 @@ open class Player(
     open val username: String
 ) : Entity(runtimeEntityId, uniqueEntityId) {
 
-    override fun onPacketBound(packet: BedrockPacket) {
-        super.onPacketBound(packet)
+    override fun onPacketBound(packet: BedrockPacket): Boolean {
+        val modified = super.onPacketBound(packet)
         if (packet is MovePlayerPacket && packet.runtimeEntityId == runtimeEntityId) {
             move(packet.position.x, packet.position.y, packet.position.z)
             rotate(packet.rotation)
             tickExists++
         }
+        return modified
     }
 
     override fun toString(): String {
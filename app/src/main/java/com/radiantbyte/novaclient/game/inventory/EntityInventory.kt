@@ -43,7 +43,10 @@ open class EntityInventory(val entity: Entity) : AbstractInventory(0) {
             content[5] = value
         }
 
-    open fun onPacketBound(packet: BedrockPacket) {
+    /**
+     * @return whether the packet was changed and has to be encoded again
+     */
+    open fun onPacketBound(packet: BedrockPacket): Boolean {
         if (packet is MobEquipmentPacket && packet.runtimeEntityId == entity.runtimeEntityId) {
             if (packet.containerId == 0) {
                 hand = packet.item
@@ -56,6 +59,7 @@ open class EntityInventory(val entity: Entity) : AbstractInventory(0) {
             leggings = packet.leggings
             boots = packet.boots
         }
+        return false
     }
 
     override fun getNetworkSlotInfo(slot: Int): Pair<Int, Int> {
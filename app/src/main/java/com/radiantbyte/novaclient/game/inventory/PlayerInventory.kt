@@ -42,8 +42,8 @@ class PlayerInventory(private val player: LocalPlayer) : EntityInventory(player)
         }
     }
 
-    override fun onPacketBound(packet: BedrockPacket) {
-        super.onPacketBound(packet)
+    override fun onPacketBound(packet: BedrockPacket): Boolean {
+        val modified = super.onPacketBound(packet)
         when (packet) {
             is PlayerHotbarPacket -> {
                 heldItemSlot = packet.selectedHotbarSlot
@@ -67,16 +67,19 @@ class PlayerInventory(private val player: LocalPlayer) : EntityInventory(player)
             }
 
             is InventorySlotPacket -> {
-                val offset = getOffsetByContainerId(packet.containerId) ?: return
+                val offset = getOffsetByContainerId(packet.containerId) ?: return modified
                 content[packet.slot + offset] = packet.item
             }
 
             is InventoryContentPacket -> {
-                val offset = getOffsetByContainerId(packet.containerId) ?: return
+                val offset = getOffsetByContainerId(packet.containerId) ?: return modified
                 fillContent(packet.contents, offset)
             }
 
             is ItemStackRequestPacket -> {
+                if (packet.requests.isEmpty()) {
+                    return modified
+                }
                 val newRequests = packet.requests.map {
                     val newId = requestId
                     requestIdMap[newId] = it.requestId
@@ -91,6 +94,7 @@ class PlayerInventory(private val player: LocalPlayer) : EntityInventory(player)
                 packet.requests.addAll(newRequests)
 
                 processItemStackPacket(packet)
+                return true
             }
 
             is ItemStackResponsePacket -> {
@@ -102,6 +106,7 @@ class PlayerInventory(private val player: LocalPlayer) : EntityInventory(player)
                 }
                 packet.entries.clear()
                 packet.entries.addAll(newResponse)
+                return newResponse.isNotEmpty()
             }
 
             is PlayerAuthInputPacket -> {
@@ -116,12 +121,15 @@ class PlayerInventory(private val player: LocalPlayer) : EntityInventory(player)
                             it.textProcessingEventOrigin
                         )
                     }
+                    return true
                 } else if (pendingRequests.isNotEmpty()) {
                     packet.itemStackRequest = pendingRequests.pop()
                     packet.inputData.add(PlayerAuthInputData.PERFORM_ITEM_STACK_REQUEST)
+                    return true
                 }
             }
         }
+        return modified
     }
 
     /**
@@ -4,12 +4,17 @@ package com.radiantbyte.novaclient.game.module.combat
 import com.radiantbyte.novaclient.game.InterceptablePacket
 import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 
 class AntiCrystalModule : Module("anti_crystal", ModuleCategory.Combat) {
 
     private var ylevel by floatValue("ylevel", 0.4f, 0.1f..1.61f)
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) {
             return
@@ -17,7 +22,8 @@ class AntiCrystalModule : Module("anti_crystal", ModuleCategory.Combat) {
 
         val packet = interceptablePacket.packet
         if (packet is PlayerAuthInputPacket) {
-            packet.position.add(0.0, -ylevel.toDouble(), 0.0)
+            packet.position = packet.position.add(0.0, -ylevel.toDouble(), 0.0)
+            interceptablePacket.modify()
         }
     }
 
@@ -4,6 +4,7 @@ import com.radiantbyte.novaclient.game.InterceptablePacket
 import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import org.cloudburstmc.math.vector.Vector3f
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.SetEntityMotionPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 
@@ -12,6 +13,13 @@ class AntiKnockbackModule : Module("anti_knockback", ModuleCategory.Combat) {
     private val knockbackThreshold by floatValue("threshold", 0.1f, 0.1f..1.0f)
     private var lastValidMotion = Vector3f.ZERO
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        SetEntityMotionPacket::class.java,
+        PlayerAuthInputPacket::class.java
+    )
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) {
             return
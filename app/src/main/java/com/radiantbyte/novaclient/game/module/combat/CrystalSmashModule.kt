@@ -5,6 +5,7 @@ import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import com.radiantbyte.novaclient.game.entity.Entity
 import com.radiantbyte.novaclient.game.entity.EntityUnknown
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 
 class CrystalSmashModule : Module("crystal_smash", ModuleCategory.Combat) {
@@ -16,6 +17,10 @@ class CrystalSmashModule : Module("crystal_smash", ModuleCategory.Combat) {
 
     private var lastAttackTime = 0L
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
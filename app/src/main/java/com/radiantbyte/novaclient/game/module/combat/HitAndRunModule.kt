@@ -7,6 +7,7 @@ import com.radiantbyte.novaclient.game.entity.Entity
 import com.radiantbyte.novaclient.game.entity.LocalPlayer
 import com.radiantbyte.novaclient.game.entity.Player
 import org.cloudburstmc.math.vector.Vector3f
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.SetEntityMotionPacket
 import kotlin.math.cos
@@ -23,6 +24,10 @@ class HitAndRunModule : Module("hitandrun", ModuleCategory.Combat) {
     private var lastHitTime = 0L
     private var comboAngle = 0f
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
@@ -11,6 +11,7 @@ import com.radiantbyte.novaclient.game.entity.Player
 import org.cloudburstmc.protocol.bedrock.data.entity.EntityDataMap
 import org.cloudburstmc.protocol.bedrock.data.entity.EntityDataTypes
 import org.cloudburstmc.protocol.bedrock.data.entity.EntityEventType
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.SetEntityDataPacket
 import org.cloudburstmc.protocol.bedrock.packet.EntityEventPacket
@@ -26,6 +27,10 @@ class HitboxModule : Module("hitbox", ModuleCategory.Combat) {
     private var lastParticleTime = 0L
     private val particleInterval = 500L
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) {
             return
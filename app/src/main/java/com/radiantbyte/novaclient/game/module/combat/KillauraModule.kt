@@ -9,6 +9,7 @@ import com.radiantbyte.novaclient.game.entity.LocalPlayer
 import com.radiantbyte.novaclient.game.entity.MobList
 import com.radiantbyte.novaclient.game.entity.Player
 import org.cloudburstmc.math.vector.Vector3f
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.MovePlayerPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 
@@ -29,6 +30,10 @@ class KillauraModule : Module("killaura", ModuleCategory.Combat) {
     private var lastAttackTime = 0L
     private var tpCooldown = 0L
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
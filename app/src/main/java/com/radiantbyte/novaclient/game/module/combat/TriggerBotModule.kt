@@ -9,6 +9,7 @@ import com.radiantbyte.novaclient.game.entity.LocalPlayer
 import com.radiantbyte.novaclient.game.entity.MobList
 import com.radiantbyte.novaclient.game.entity.Player
 import org.cloudburstmc.math.vector.Vector3f
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 
 class TriggerBotModule : Module("trigger_bot", ModuleCategory.Combat) {
@@ -19,6 +20,10 @@ class TriggerBotModule : Module("trigger_bot", ModuleCategory.Combat) {
     private var rangeValue by floatValue("range", 4.0f, 2f..6f)
     private var lastAttackTime = 0L
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
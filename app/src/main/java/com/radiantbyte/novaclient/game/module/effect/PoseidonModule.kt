@@ -6,6 +6,7 @@ import com.radiantbyte.novaclient.game.ModuleCategory
 import com.radiantbyte.novaclient.game.data.Effect
 import org.cloudburstmc.math.vector.Vector3f
 import org.cloudburstmc.protocol.bedrock.data.PlayerAuthInputData
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.MobEffectPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.SetEntityMotionPacket
@@ -33,6 +34,10 @@ class PoseidonModule : Module("poseidon", ModuleCategory.Effect) {
         }
     }
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) {
             return
@@ -66,8 +71,11 @@ class PoseidonModule : Module("poseidon", ModuleCategory.Effect) {
                 session.clientBound(motionPacket)
 
                 // Remove swimming states
-                packet.inputData.remove(PlayerAuthInputData.START_SWIMMING)
-                packet.inputData.remove(PlayerAuthInputData.AUTO_JUMPING_IN_WATER)
+                if (packet.inputData.remove(PlayerAuthInputData.START_SWIMMING) or
+                    packet.inputData.remove(PlayerAuthInputData.AUTO_JUMPING_IN_WATER)
+                ) {
+                    interceptablePacket.modify()
+                }
             }
         }
 
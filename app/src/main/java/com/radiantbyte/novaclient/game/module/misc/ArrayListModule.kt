@@ -117,6 +117,8 @@ class ArrayListModule : Module("arraylist", ModuleCategory.Misc) {
         }
     }
 
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled || !isSessionCreated) return
         
@@ -5,6 +5,7 @@ import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import org.cloudburstmc.math.vector.Vector3f
 import org.cloudburstmc.protocol.bedrock.data.PlayerAuthInputData
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.SetEntityMotionPacket
 import org.cloudburstmc.protocol.bedrock.packet.TextPacket
@@ -24,6 +25,11 @@ class BaritoneModule : Module("baritone", ModuleCategory.Misc) {
     private val jumpHeight by floatValue("jump_height", 0.42f, 0.1f..1.0f)
     private val distanceThreshold by floatValue("completion_distance", 1.0f, 0.5f..5.0f)
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        TextPacket::class.java,
+        PlayerAuthInputPacket::class.java
+    )
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         val packet = interceptablePacket.packet
 
@@ -63,6 +69,7 @@ class BaritoneModule : Module("baritone", ModuleCategory.Misc) {
                 angle,
                 player.rotationYaw
             )
+            interceptablePacket.modify()
 
             val motionX = -Math.sin(Math.toRadians(angle.toDouble())) * walkSpeed
             val motionZ = Math.cos(Math.toRadians(angle.toDouble())) * walkSpeed
@@ -12,6 +12,7 @@ import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 import org.cloudburstmc.protocol.bedrock.data.inventory.ContainerType
 import org.cloudburstmc.protocol.bedrock.data.inventory.ItemData
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.ContainerClosePacket
 import org.cloudburstmc.protocol.bedrock.packet.ContainerOpenPacket
 import org.cloudburstmc.protocol.bedrock.packet.InventoryContentPacket
@@ -81,6 +82,15 @@ class ChestStealerModule : Module("ChestStealer", ModuleCategory.Misc) {
         "minecraft:stone_sword", "minecraft:stone_pickaxe", "minecraft:stone_axe", "minecraft:stone_shovel"
     )
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        NetworkStackLatencyPacket::class.java,
+        ContainerOpenPacket::class.java,
+        InventoryContentPacket::class.java,
+        ContainerClosePacket::class.java
+    )
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
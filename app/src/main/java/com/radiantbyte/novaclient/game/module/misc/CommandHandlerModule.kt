@@ -4,11 +4,16 @@ import com.radiantbyte.novaclient.game.InterceptablePacket
 import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import com.radiantbyte.novaclient.game.ModuleManager
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.TextPacket
 
 class CommandHandlerModule : Module("command_handler", ModuleCategory.Misc, true, true) {
     private val prefix = "."
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(TextPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
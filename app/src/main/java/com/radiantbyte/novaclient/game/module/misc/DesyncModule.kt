@@ -7,6 +7,7 @@ import kotlinx.coroutines.DelicateCoroutinesApi
 import kotlinx.coroutines.GlobalScope
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import java.util.concurrent.ConcurrentLinkedQueue
 import kotlin.random.Random
@@ -41,6 +42,8 @@ class DesyncModule : Module("desync", ModuleCategory.Misc) {
         }
     }
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled || !isDesynced) {
             return
@@ -3,6 +3,7 @@ package com.radiantbyte.novaclient.game.module.misc
 import com.radiantbyte.novaclient.game.InterceptablePacket
 import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.TextPacket
 
 class NoChatModule : Module("no_chat", ModuleCategory.Misc) {
@@ -14,6 +15,10 @@ class NoChatModule : Module("no_chat", ModuleCategory.Misc) {
     private val blockAnnouncements by boolValue("block_announcements", false)
     private val blockJoinLeaveMessages by boolValue("block_join_leave", false)
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(TextPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) {
             return
@@ -192,6 +192,8 @@ class PieChartModule : Module("PieChart", ModuleCategory.Misc) {
         otherPackets = 0L
     }
 
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled || !isSessionCreated) return
 
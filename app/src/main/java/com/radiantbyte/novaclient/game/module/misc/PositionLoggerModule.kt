@@ -9,6 +9,7 @@ import com.radiantbyte.novaclient.game.entity.LocalPlayer
 import com.radiantbyte.novaclient.game.entity.MobList
 import com.radiantbyte.novaclient.game.entity.Player
 import org.cloudburstmc.math.vector.Vector3f
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.MoveEntityAbsolutePacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.TextPacket
@@ -58,6 +59,13 @@ class PositionLoggerModule : Module("position_logger", ModuleCategory.Misc) {
         return playerList.name.isBlank()
     }
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        PlayerAuthInputPacket::class.java,
+        MoveEntityAbsolutePacket::class.java
+    )
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
@@ -11,6 +11,7 @@ import kotlinx.serialization.json.Json
 import org.cloudburstmc.protocol.bedrock.data.PlayerAuthInputData
 import java.io.File
 import kotlin.concurrent.thread
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 
 class ReplayModule : Module("replay_mod", ModuleCategory.Misc) {
     private val recordingInterval by intValue("interval", 50, 20..200)
@@ -61,6 +62,10 @@ class ReplayModule : Module("replay_mod", ModuleCategory.Misc) {
     private var nextFrame: ReplayFrame? = null
     private var interpolationProgress = 0f
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
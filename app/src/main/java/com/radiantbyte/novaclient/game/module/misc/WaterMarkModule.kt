@@ -88,6 +88,8 @@ class WaterMarkModule : Module("watermark", ModuleCategory.Misc) {
         }
     }
 
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled || !isSessionCreated) return
 
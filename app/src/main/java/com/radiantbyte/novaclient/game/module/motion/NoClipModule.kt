@@ -7,6 +7,7 @@ import org.cloudburstmc.protocol.bedrock.data.Ability
 import org.cloudburstmc.protocol.bedrock.data.AbilityLayer
 import org.cloudburstmc.protocol.bedrock.data.PlayerPermission
 import org.cloudburstmc.protocol.bedrock.data.command.CommandPermission
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.RequestAbilityPacket
 import org.cloudburstmc.protocol.bedrock.packet.UpdateAbilitiesPacket
@@ -70,6 +71,12 @@ class NoClipModule : Module("no_clip", ModuleCategory.Motion) {
     private var noClipEnabled = false
 
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        RequestAbilityPacket::class.java,
+        UpdateAbilitiesPacket::class.java,
+        PlayerAuthInputPacket::class.java
+    )
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         val packet = interceptablePacket.packet
         if (packet is RequestAbilityPacket && packet.ability == Ability.NO_CLIP) {
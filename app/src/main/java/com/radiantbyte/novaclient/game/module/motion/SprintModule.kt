@@ -4,15 +4,19 @@ import com.radiantbyte.novaclient.game.InterceptablePacket
 import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import org.cloudburstmc.protocol.bedrock.data.PlayerAuthInputData
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 
 class SprintModule : Module("sprint", ModuleCategory.Motion) {
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         val packet = interceptablePacket.packet
         if (packet is PlayerAuthInputPacket && isEnabled) {
             packet.inputData.add(PlayerAuthInputData.SPRINTING)
             packet.inputData.add(PlayerAuthInputData.START_SPRINTING)
+            interceptablePacket.modify()
         } else if (packet is PlayerAuthInputPacket && !isEnabled) {
             packet.inputData.add(PlayerAuthInputData.STOP_SPRINTING)
         }
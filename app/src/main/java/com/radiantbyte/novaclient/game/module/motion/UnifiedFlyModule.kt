@@ -9,6 +9,7 @@ import org.cloudburstmc.protocol.bedrock.data.AbilityLayer
 import org.cloudburstmc.protocol.bedrock.data.PlayerAuthInputData
 import org.cloudburstmc.protocol.bedrock.data.PlayerPermission
 import org.cloudburstmc.protocol.bedrock.data.command.CommandPermission
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.MobEffectPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.RequestAbilityPacket
@@ -147,6 +148,14 @@ class UnifiedFlyModule : Module("UnifiedFly", ModuleCategory.Motion) {
     private val canMove: Boolean
         get() = !pressJump || session.localPlayer.isSprinting
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        RequestAbilityPacket::class.java,
+        UpdateAbilitiesPacket::class.java,
+        PlayerAuthInputPacket::class.java
+    )
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled || !isSessionCreated) return
         
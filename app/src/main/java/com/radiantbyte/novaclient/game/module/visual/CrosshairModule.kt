@@ -96,6 +96,8 @@ class CrosshairModule : Module("Crosshair", ModuleCategory.Visual) {
         }
     }
 
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled || !isSessionCreated) return
 
@@ -15,6 +15,7 @@ import org.cloudburstmc.math.vector.Vector2f
 import org.cloudburstmc.math.vector.Vector3f
 import kotlin.math.cos
 import kotlin.math.sin
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 
 class ESPModule : Module("esp", ModuleCategory.Visual) {
     companion object {
@@ -48,6 +49,8 @@ class ESPModule : Module("esp", ModuleCategory.Visual) {
     private val tracerTop by boolValue("tracer_top", false)
     private val tracerCenter by boolValue("tracer_center", false)
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = emptySet()
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         // ESP doesn't need to intercept packets
     }
@@ -12,6 +12,7 @@ import com.radiantbyte.novaclient.overlay.EntityType
 import com.radiantbyte.novaclient.overlay.MinimapEntity
 import com.radiantbyte.novaclient.overlay.MinimapOverlay
 import com.radiantbyte.novaclient.overlay.MinimapPosition
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.MoveEntityAbsolutePacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import kotlin.math.PI
@@ -67,6 +68,13 @@ class MinimapModule : Module("minimap", ModuleCategory.Visual) {
         MinimapOverlay.setShowCoordinates(showCoordinates)
     }
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        PlayerAuthInputPacket::class.java,
+        MoveEntityAbsolutePacket::class.java
+    )
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled || !isSessionCreated) return
 
@@ -4,6 +4,7 @@ import com.radiantbyte.novaclient.game.InterceptablePacket
 import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import com.radiantbyte.novaclient.game.ActionBarManager
+import com.radiantbyte.novarelay.metrics.RelayMetrics
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 
@@ -13,6 +14,7 @@ class NetworkInfoModule : Module("network_info", ModuleCategory.Visual) {
     private val displayInterval = 500L
     private val colorStyle by boolValue("colored_text", true)
     private val showPacketCounts by boolValue("show_packets", true)
+    private val showRelayMetrics by boolValue("show_relay_metrics", false)
 
     private var incomingPackets = 0
     private var outgoingPackets = 0
@@ -22,6 +24,8 @@ class NetworkInfoModule : Module("network_info", ModuleCategory.Visual) {
     private var lastPingSentTime = 0L
     private var currentPing = 0L
 
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
@@ -43,6 +47,7 @@ class NetworkInfoModule : Module("network_info", ModuleCategory.Visual) {
 
             if (currentTime - lastDisplayTime >= displayInterval) {
                 lastDisplayTime = currentTime
+                val metrics = if (showRelayMetrics) session.novaRelaySession.metrics.snapshot() else null
 
                 val networkText = if (colorStyle) {
                     buildString {
@@ -51,6 +56,13 @@ class NetworkInfoModule : Module("network_info", ModuleCategory.Visual) {
                         if (showPacketCounts) {
                             append(" §f| §fPackets: §a↑$outgoingPackets §c↓$incomingPackets")
                         }
+                        if (metrics != null) {
+                            append(" §f| §fRTT: §a${metrics.serverLink.roundTripTime.p50}ms")
+                            append(" §f| §fRelay p99: §a${relayDelayMicros(metrics.serverBound)}µs")
+                            append("§f/§c${relayDelayMicros(metrics.clientBound)}µs")
+                            append(" §f| §fZip: §a${"%.1f".format(metrics.clientBound.decompression.ratio)}x")
+                            append(" §f| §fResent: §e${metrics.serverLink.retransmits}")
+                        }
                     }
                 } else {
                     buildString {
@@ -59,6 +71,13 @@ class NetworkInfoModule : Module("network_info", ModuleCategory.Visual) {
                         if (showPacketCounts) {
                             append(" | Packets: ↑$outgoingPackets ↓$incomingPackets")
                         }
+                        if (metrics != null) {
+                            append(" | RTT: ${metrics.serverLink.roundTripTime.p50}ms")
+                            append(" | Relay p99: ${relayDelayMicros(metrics.serverBound)}/")
+                            append("${relayDelayMicros(metrics.clientBound)}µs")
+                            append(" | Zip: ${"%.1f".format(metrics.clientBound.decompression.ratio)}x")
+                            append(" | Resent: ${metrics.serverLink.retransmits}")
+                        }
                     }
                 }
 
@@ -68,6 +87,14 @@ class NetworkInfoModule : Module("network_info", ModuleCategory.Visual) {
         }
     }
 
+    /**
+     * Upper estimate of the time the relay adds to a packet: the 99th percentile of the handling time plus that of
+     * the time spent in the outbound queue.
+     */
+    private fun relayDelayMicros(direction: RelayMetrics.DirectionSnapshot): Long {
+        return (direction.handlingTime.p99 + direction.queueDelay.p99) / 1000
+    }
+
     override fun afterPacketBound(packet: BedrockPacket) {
         if (!isEnabled) return
 
@@ -5,6 +5,7 @@ import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import com.radiantbyte.novaclient.game.ActionBarManager
 import org.cloudburstmc.math.vector.Vector3f
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerAuthInputPacket
 
 class PositionDisplayModule : Module("coordinates", ModuleCategory.Visual) {
@@ -15,6 +16,10 @@ class PositionDisplayModule : Module("coordinates", ModuleCategory.Visual) {
     private val showDirection by boolValue("show_direction", true)
     private val roundDecimals by intValue("decimal_places", 1, 0..3)
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(PlayerAuthInputPacket::class.java)
+
+    override val receivesPacketsWhenDisabled = false
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         if (!isEnabled) return
 
@@ -5,6 +5,7 @@ import com.radiantbyte.novaclient.game.InterceptablePacket
 import com.radiantbyte.novaclient.game.Module
 import com.radiantbyte.novaclient.game.ModuleCategory
 import com.radiantbyte.novaclient.game.ActionBarManager
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.*
 
 class WorldStateModule : Module("world_state", ModuleCategory.Visual) {
@@ -20,6 +21,11 @@ class WorldStateModule : Module("world_state", ModuleCategory.Visual) {
     private var loadedChunks = 0
     private var worldTime = 0L
 
+    override val subscribedPackets: Set<Class<out BedrockPacket>> = setOf(
+        UpdateBlockPacket::class.java,
+        SetTimePacket::class.java
+    )
+
     override fun beforePacketBound(interceptablePacket: InterceptablePacket) {
         val packet = interceptablePacket.packet
 
@@ -0,0 +1,80 @@
+package com.radiantbyte.novaclient.game.world
+
+import com.radiantbyte.novaclient.game.entity.Entity
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import java.util.Collections
+
+/**
+ * Entities of a [Level], indexed by runtime and unique entity ID.
+ *
+ * Entities are added and removed in place by the packet thread, so a spawn or despawn costs the same however many
+ * entities are loaded. Lookups share the table's lock with those changes, which is uncontended in practice.
+ * Iteration goes through an immutable snapshot that is only rebuilt when it is asked for after a change, so readers
+ * on other threads never lock and never see a half applied change.
+ */
+@Suppress("MemberVisibilityCanBePrivate")
+class EntityTable {
+
+    // Guarded by this
+    private val byRuntimeId = Long2ObjectOpenHashMap<Entity>()
+    private val byUniqueId = Long2ObjectOpenHashMap<Entity>()
+
+    // Null when entities changed since the snapshot was taken
+    @Volatile
+    private var snapshot: List<Entity>? = emptyList()
+
+    /**
+     * Entities at the time of the call. The list does not change when entities are added or removed later.
+     */
+    val values: List<Entity>
+        get() = snapshot ?: synchronized(this) {
+            snapshot ?: Collections.unmodifiableList(ArrayList(byRuntimeId.values)).also { snapshot = it }
+        }
+
+    val size: Int
+        @Synchronized get() = byRuntimeId.size
+
+    @Synchronized
+    operator fun get(runtimeEntityId: Long): Entity? {
+        return byRuntimeId.get(runtimeEntityId)
+    }
+
+    @Synchronized
+    fun getByUniqueId(uniqueEntityId: Long): Entity? {
+        return byUniqueId.get(uniqueEntityId)
+    }
+
+    @Synchronized
+    operator fun contains(runtimeEntityId: Long): Boolean {
+        return byRuntimeId.containsKey(runtimeEntityId)
+    }
+
+    @Synchronized
+    fun add(entity: Entity) {
+        byRuntimeId.put(entity.runtimeEntityId, entity)?.let { byUniqueId.remove(it.uniqueEntityId, it) }
+        byUniqueId.put(entity.uniqueEntityId, entity)
+        snapshot = null
+    }
+
+    @Synchronized
+    fun remove(runtimeEntityId: Long): Entity? {
+        val entity = byRuntimeId.remove(runtimeEntityId) ?: return null
+        byUniqueId.remove(entity.uniqueEntityId, entity)
+        snapshot = null
+        return entity
+    }
+
+    @Synchronized
+    fun removeByUniqueId(uniqueEntityId: Long): Entity? {
+        val entity = byUniqueId.get(uniqueEntityId) ?: return null
+        return remove(entity.runtimeEntityId)
+    }
+
+    @Synchronized
+    fun clear() {
+        byRuntimeId.clear()
+        byUniqueId.clear()
+        snapshot = emptyList()
+    }
+
+}
@@ -1,7 +1,6 @@
 package com.radiantbyte.novaclient.game.world
 
 import com.radiantbyte.novaclient.game.GameSession
-import com.radiantbyte.novaclient.game.entity.Entity
 import com.radiantbyte.novaclient.game.entity.EntityUnknown
 import com.radiantbyte.novaclient.game.entity.Item
 import com.radiantbyte.novaclient.game.entity.Player
@@ -9,17 +8,24 @@ import org.cloudburstmc.protocol.bedrock.packet.AddEntityPacket
 import org.cloudburstmc.protocol.bedrock.packet.AddItemEntityPacket
 import org.cloudburstmc.protocol.bedrock.packet.AddPlayerPacket
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
+import org.cloudburstmc.protocol.bedrock.packet.MobEffectPacket
+import org.cloudburstmc.protocol.bedrock.packet.MoveEntityAbsolutePacket
+import org.cloudburstmc.protocol.bedrock.packet.MoveEntityDeltaPacket
+import org.cloudburstmc.protocol.bedrock.packet.MovePlayerPacket
 import org.cloudburstmc.protocol.bedrock.packet.PlayerListPacket
 import org.cloudburstmc.protocol.bedrock.packet.RemoveEntityPacket
+import org.cloudburstmc.protocol.bedrock.packet.SetEntityDataPacket
+import org.cloudburstmc.protocol.bedrock.packet.SetEntityLinkPacket
 import org.cloudburstmc.protocol.bedrock.packet.StartGamePacket
 import org.cloudburstmc.protocol.bedrock.packet.TakeItemEntityPacket
+import org.cloudburstmc.protocol.bedrock.packet.UpdateAttributesPacket
 import java.util.UUID
 import java.util.concurrent.ConcurrentHashMap
 
 @Suppress("MemberVisibilityCanBePrivate")
 class Level(val session: GameSession) {
 
-    val entityMap = ConcurrentHashMap<Long, Entity>()
+    val entityMap = EntityTable()
 
     val playerMap = ConcurrentHashMap<UUID, PlayerListPacket.Entry>()
 
@@ -46,7 +52,7 @@ class Level(val session: GameSession) {
                     handleSetData(packet.metadata)
                     handleSetAttribute(packet.attributes)
                 }
-                entityMap[packet.runtimeEntityId] = entity
+                entityMap.add(entity)
             }
 
             is AddItemEntityPacket -> {
@@ -54,7 +60,7 @@ class Level(val session: GameSession) {
                     move(packet.position)
                     handleSetData(packet.metadata)
                 }
-                entityMap[packet.runtimeEntityId] = entity
+                entityMap.add(entity)
             }
 
             is AddPlayerPacket -> {
@@ -68,13 +74,11 @@ class Level(val session: GameSession) {
                     rotate(packet.rotation)
                     handleSetData(packet.metadata)
                 }
-                entityMap[packet.runtimeEntityId] = entity
+                entityMap.add(entity)
             }
 
             is RemoveEntityPacket -> {
-                val entityToRemove =
-                    entityMap.values.find { it.uniqueEntityId == packet.uniqueEntityId } ?: return
-                entityMap.remove(entityToRemove.runtimeEntityId)
+                entityMap.removeByUniqueId(packet.uniqueEntityId)
             }
 
             is TakeItemEntityPacket -> {
@@ -92,9 +96,20 @@ class Level(val session: GameSession) {
                 }
             }
 
-            else -> {
-                entityMap.values.forEach { entity ->
-                    entity.onPacketBound(packet)
+            // Entities only react to packets addressed to them, so each packet goes straight to its targets
+            is MoveEntityAbsolutePacket -> entityMap[packet.runtimeEntityId]?.onPacketBound(packet)
+            is MoveEntityDeltaPacket -> entityMap[packet.runtimeEntityId]?.onPacketBound(packet)
+            is MovePlayerPacket -> entityMap[packet.runtimeEntityId]?.onPacketBound(packet)
+            is SetEntityDataPacket -> entityMap[packet.runtimeEntityId]?.onPacketBound(packet)
+            is UpdateAttributesPacket -> entityMap[packet.runtimeEntityId]?.onPacketBound(packet)
+            is MobEffectPacket -> entityMap[packet.runtimeEntityId]?.onPacketBound(packet)
+
+            is SetEntityLinkPacket -> {
+                val from = entityMap.getByUniqueId(packet.entityLink.from)
+                val to = entityMap.getByUniqueId(packet.entityLink.to)
+                from?.onPacketBound(packet)
+                if (to !== from) {
+                    to?.onPacketBound(packet)
                 }
             }
         }
@@ -21,9 +21,11 @@ import com.radiantbyte.novaclient.render.RenderOverlayView
 import com.radiantbyte.novarelay.NovaRelay
 import com.radiantbyte.novarelay.NovaRelaySession
 import com.radiantbyte.novarelay.address.NovaAddress
+import com.radiantbyte.novarelay.cache.BlobStore
 import com.radiantbyte.novarelay.config.EnhancedServerConfig
 import com.radiantbyte.novarelay.definition.Definitions
 import com.radiantbyte.novarelay.listener.AutoCodecPacketListener
+import com.radiantbyte.novarelay.listener.BlobCachePacketListener
 import com.radiantbyte.novarelay.listener.GamingPacketHandler
 import com.radiantbyte.novarelay.listener.OfflineLoginPacketListener
 import com.radiantbyte.novarelay.listener.OnlineLoginPacketListener
@@ -38,6 +40,7 @@ object Services {
     private val handler = Handler(Looper.getMainLooper())
 
     private var novaRelay: NovaRelay? = null
+    private var blobStore: BlobStore? = null
     private var thread: Thread? = null
 
     private var renderView: RenderOverlayView? = null
@@ -126,6 +129,7 @@ object Services {
             }
 
             val selectedAccount = AccountManager.selectedAccount
+            val store = blobStore ?: BlobStore(File(context.cacheDir, "blobs")).also { blobStore = it }
 
             runCatching {
                 clearNetworkCaches()
@@ -149,6 +153,7 @@ object Services {
                             listeners.add(OnlineLoginPacketListener(this, selectedAccount))
                         }
                         listeners.add(GamingPacketHandler(this))
+                        listeners.add(BlobCachePacketListener(this, store))
                     }
                 } else {
                     captureGamePacket(
@@ -163,6 +168,7 @@ object Services {
                             listeners.add(OnlineLoginPacketListener(this, selectedAccount))
                         }
                         listeners.add(GamingPacketHandler(this))
+                        listeners.add(BlobCachePacketListener(this, store))
                     }
                 }
             }.exceptionOrNull()?.let {
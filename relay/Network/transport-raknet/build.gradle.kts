@@ -29,6 +29,8 @@ dependencies {
     annotationProcessor("org.projectlombok:lombok:1.18.34")
     
     api(libs.bundles.netty)
+    // Native transports are optional, see RakTransport
+    compileOnly(libs.bundles.netty.native.classes)
     api(libs.expiringmap)
     testImplementation(libs.testng)
     testImplementation(libs.junit.jupiter)
@@ -70,6 +70,25 @@ public class RakChannelFactory<T extends Channel> implements ChannelFactory<T> {
         return new RakChannelFactory<>(RakServerChannel.class, ch -> new RakServerChannel(ch, childConsumer), channelFactory, parentConsumer);
     }
 
+    public static RakChannelFactory<RakServerChannel> server(RakTransport transport) {
+        return server(transport, false);
+    }
+
+    /**
+     * @param reusePort whether to enable {@code SO_REUSEPORT}, so several server channels can be bound to the same
+     *                  address and share its inbound datagrams
+     */
+    public static RakChannelFactory<RakServerChannel> server(RakTransport transport, boolean reusePort) {
+        if (reusePort && !transport.supportsReusePort()) {
+            throw new IllegalArgumentException(transport + " does not support SO_REUSEPORT");
+        }
+        return server(transport.datagramChannelFactory(), reusePort ? transport::enableReusePort : null);
+    }
+
+    public static RakChannelFactory<RakClientChannel> client(RakTransport transport) {
+        return client(transport.datagramChannelFactory());
+    }
+
     public static RakChannelFactory<RakClientChannel> client(Class<? extends DatagramChannel> clazz) {
         return client(clazz, null);
     }
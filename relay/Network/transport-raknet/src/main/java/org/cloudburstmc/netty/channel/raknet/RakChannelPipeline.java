@@ -16,6 +16,7 @@
 
 package org.cloudburstmc.netty.channel.raknet;
 
+import org.cloudburstmc.netty.channel.raknet.config.RakChannelMetrics;
 import org.cloudburstmc.netty.channel.raknet.packet.EncapsulatedPacket;
 
 import io.netty.channel.Channel;
@@ -56,6 +57,10 @@ public class RakChannelPipeline extends DefaultChannelPipeline {
             if (this.child.eventLoop().inEventLoop()) {
                 this.child.pipeline().fireChannelRead(message).fireChannelReadComplete();
             } else {
+                RakChannelMetrics metrics = this.child.config().getMetrics();
+                if (metrics != null) {
+                    metrics.crossThreadHandoff();
+                }
                 this.child.eventLoop().execute(() -> {
                     this.child.pipeline()
                             .fireChannelRead(message)
@@ -18,6 +18,7 @@ package org.cloudburstmc.netty.channel.raknet;
 
 import org.cloudburstmc.netty.channel.raknet.config.DefaultRakSessionConfig;
 import org.cloudburstmc.netty.channel.raknet.config.RakChannelConfig;
+import org.cloudburstmc.netty.channel.raknet.config.RakChannelMetrics;
 import org.cloudburstmc.netty.handler.codec.raknet.common.ConnectedPingHandler;
 import org.cloudburstmc.netty.handler.codec.raknet.common.ConnectedPongHandler;
 import org.cloudburstmc.netty.handler.codec.raknet.common.DisconnectNotificationHandler;
@@ -141,6 +142,8 @@ public class RakChildChannel extends AbstractChannel implements RakChannel {
             throw new NonWritableChannelException();
         }
         ClosedChannelException exception = null;
+        // The RakNet pipeline runs on the parent's event loop, writing to it from elsewhere submits a task
+        RakChannelMetrics metrics = this.parent().eventLoop().inEventLoop() ? null : this.config().getMetrics();
         for (; ; ) {
             Object msg = in.current();
             if (msg == null) {
@@ -148,6 +151,9 @@ public class RakChildChannel extends AbstractChannel implements RakChannel {
             }
             try {
                 if (this.parent().isOpen()) {
+                    if (metrics != null) {
+                        metrics.crossThreadHandoff();
+                    }
                     this.rakPipeline.write(ReferenceCountUtil.retain(msg));
                     in.remove();
                 } else {
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 CloudburstMC
+ *
+ * CloudburstMC licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.cloudburstmc.netty.channel.raknet;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.IoHandlerFactory;
+import io.netty.channel.MultiThreadIoEventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Event loop group which registers each {@link RakChildChannel} on the event loop of its server channel, when that
+ * event loop belongs to this group. The RakNet session of a child always runs on the server channel's event loop, so
+ * this keeps reads and writes of the child on one thread instead of handing every message between two.
+ * <p>
+ * Use the same group as the parent and child group of the bootstrap. Any other channel is registered round-robin.
+ */
+public class RakEventLoopGroup extends MultiThreadIoEventLoopGroup {
+
+    public RakEventLoopGroup(int nThreads, ThreadFactory threadFactory, IoHandlerFactory ioHandlerFactory) {
+        super(nThreads, threadFactory, ioHandlerFactory);
+    }
+
+    @Override
+    public ChannelFuture register(Channel channel) {
+        return this.eventLoopFor(channel).register(channel);
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        return this.eventLoopFor(promise.channel()).register(promise);
+    }
+
+    private EventLoop eventLoopFor(Channel channel) {
+        if (channel instanceof RakChildChannel && channel.parent() != null && channel.parent().isRegistered()) {
+            EventLoop parentLoop = channel.parent().eventLoop();
+            for (EventExecutor executor : this) {
+                if (executor == parentLoop) {
+                    return parentLoop;
+                }
+            }
+        }
+        return this.next();
+    }
+}
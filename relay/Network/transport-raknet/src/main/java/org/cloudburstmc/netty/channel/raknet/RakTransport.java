@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022 CloudburstMC
+ *
+ * CloudburstMC licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.cloudburstmc.netty.channel.raknet;
+
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.IoHandlerFactory;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollIoHandler;
+import io.netty.channel.nio.NioIoHandler;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.uring.IoUring;
+import io.netty.channel.uring.IoUringChannelOption;
+import io.netty.channel.uring.IoUringDatagramChannel;
+import io.netty.channel.uring.IoUringIoHandler;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Datagram transports a RakNet channel can run on.
+ * <p>
+ * The native transports are optional: their classes are only touched once they are known to be on the classpath,
+ * so a missing or unloadable native library makes the transport unavailable instead of failing.
+ */
+public enum RakTransport {
+    IO_URING,
+    EPOLL,
+    NIO;
+
+    private volatile Boolean available;
+
+    /**
+     * @return the first available transport, preferring the native ones
+     */
+    public static RakTransport best() {
+        for (RakTransport transport : values()) {
+            if (transport.isAvailable()) {
+                return transport;
+            }
+        }
+        return NIO;
+    }
+
+    public boolean isAvailable() {
+        Boolean available = this.available;
+        if (available == null) {
+            try {
+                switch (this) {
+                    case IO_URING:
+                        available = Native.ioUringAvailable();
+                        break;
+                    case EPOLL:
+                        available = Native.epollAvailable();
+                        break;
+                    default:
+                        available = true;
+                }
+            } catch (Throwable t) {
+                // The transport classes or the native library are missing
+                available = false;
+            }
+            this.available = available;
+        }
+        return available;
+    }
+
+    /**
+     * Whether several sockets can be bound to the same address with {@code SO_REUSEPORT}, in which case the kernel
+     * spreads inbound datagrams across the sockets by source address.
+     */
+    public boolean supportsReusePort() {
+        return this != NIO;
+    }
+
+    public ChannelFactory<? extends DatagramChannel> datagramChannelFactory() {
+        this.checkAvailable();
+        switch (this) {
+            case IO_URING:
+                return Native.ioUringChannelFactory();
+            case EPOLL:
+                return Native.epollChannelFactory();
+            default:
+                return NioDatagramChannel::new;
+        }
+    }
+
+    public IoHandlerFactory ioHandlerFactory() {
+        this.checkAvailable();
+        switch (this) {
+            case IO_URING:
+                return Native.ioUringHandlerFactory();
+            case EPOLL:
+                return Native.epollHandlerFactory();
+            default:
+                return NioIoHandler.newFactory();
+        }
+    }
+
+    /**
+     * Creates an event loop group which can run the channels of this transport.
+     *
+     * @see RakEventLoopGroup
+     */
+    public RakEventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return new RakEventLoopGroup(threads, threadFactory, this.ioHandlerFactory());
+    }
+
+    /**
+     * Enables {@code SO_REUSEPORT} on a channel of this transport. Must be called before the channel is bound.
+     */
+    public void enableReusePort(DatagramChannel channel) {
+        switch (this) {
+            case IO_URING:
+                Native.enableIoUringReusePort(channel);
+                break;
+            case EPOLL:
+                Native.enableEpollReusePort(channel);
+                break;
+            default:
+                throw new UnsupportedOperationException(this + " does not support SO_REUSEPORT");
+        }
+    }
+
+    private void checkAvailable() {
+        if (!this.isAvailable()) {
+            throw new IllegalStateException(this + " transport is not available");
+        }
+    }
+
+    /**
+     * Holds every reference to the native transports, so they are only loaded when one is used.
+     */
+    private static final class Native {
+
+        static boolean ioUringAvailable() {
+            return IoUring.isAvailable();
+        }
+
+        static boolean epollAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        static ChannelFactory<? extends DatagramChannel> ioUringChannelFactory() {
+            return IoUringDatagramChannel::new;
+        }
+
+        static ChannelFactory<? extends DatagramChannel> epollChannelFactory() {
+            return EpollDatagramChannel::new;
+        }
+
+        static IoHandlerFactory ioUringHandlerFactory() {
+            return IoUringIoHandler.newFactory();
+        }
+
+        static IoHandlerFactory epollHandlerFactory() {
+            return EpollIoHandler.newFactory();
+        }
+
+        static void enableIoUringReusePort(DatagramChannel channel) {
+            channel.config().setOption(IoUringChannelOption.SO_REUSEPORT, true);
+        }
+
+        static void enableEpollReusePort(DatagramChannel channel) {
+            channel.config().setOption(EpollChannelOption.SO_REUSEPORT, true);
+        }
+    }
+}
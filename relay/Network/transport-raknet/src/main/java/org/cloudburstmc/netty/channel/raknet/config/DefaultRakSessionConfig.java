@@ -24,6 +24,7 @@ import java.util.Map;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.WriteBufferWaterMark;
 
 /**
  * The default {@link RakChannelConfig} implementation for RakNet server child channel or client channel.
@@ -39,6 +40,7 @@ public class DefaultRakSessionConfig extends DefaultChannelConfig implements Rak
     private volatile boolean autoFlush = true;
     private volatile int flushInterval = 10;
     private volatile int maxQueuedBytes = 64 * 1024 * 1024; // 64 MB
+    private volatile WriteBufferWaterMark queuedBytesWaterMark = new WriteBufferWaterMark(8 * 1024 * 1024, 16 * 1024 * 1024);
 
     public DefaultRakSessionConfig(Channel channel) {
         super(channel);
@@ -49,7 +51,8 @@ public class DefaultRakSessionConfig extends DefaultChannelConfig implements Rak
         return this.getOptions(
                 super.getOptions(),
                 RakChannelOption.RAK_GUID, RakChannelOption.RAK_MAX_CHANNELS, RakChannelOption.RAK_MTU, RakChannelOption.RAK_PROTOCOL_VERSION, RakChannelOption.RAK_ORDERING_CHANNELS,
-                RakChannelOption.RAK_METRICS, RakChannelOption.RAK_SESSION_TIMEOUT, RakChannelOption.RAK_AUTO_FLUSH, RakChannelOption.RAK_FLUSH_INTERVAL);
+                RakChannelOption.RAK_METRICS, RakChannelOption.RAK_SESSION_TIMEOUT, RakChannelOption.RAK_AUTO_FLUSH, RakChannelOption.RAK_FLUSH_INTERVAL,
+                RakChannelOption.RAK_MAX_QUEUED_BYTES, RakChannelOption.RAK_QUEUED_BYTES_WATER_MARK);
     }
 
     @SuppressWarnings("unchecked")
@@ -82,6 +85,9 @@ public class DefaultRakSessionConfig extends DefaultChannelConfig implements Rak
         if (option == RakChannelOption.RAK_MAX_QUEUED_BYTES) {
             return (T) Integer.valueOf(this.getMaxQueuedBytes());
         }
+        if (option == RakChannelOption.RAK_QUEUED_BYTES_WATER_MARK) {
+            return (T) this.getQueuedBytesWaterMark();
+        }
         return this.channel.parent().config().getOption(option);
     }
 
@@ -108,6 +114,8 @@ public class DefaultRakSessionConfig extends DefaultChannelConfig implements Rak
             this.setFlushInterval((Integer) value);
         } else if (option == RakChannelOption.RAK_MAX_QUEUED_BYTES) {
             this.setMaxQueuedBytes((Integer) value);
+        } else if (option == RakChannelOption.RAK_QUEUED_BYTES_WATER_MARK) {
+            this.setQueuedBytesWaterMark((WriteBufferWaterMark) value);
         } else {
             return this.channel.parent().config().setOption(option, value);
         }
@@ -210,4 +218,14 @@ public class DefaultRakSessionConfig extends DefaultChannelConfig implements Rak
     public int getMaxQueuedBytes() {
         return maxQueuedBytes;
     }
+
+    @Override
+    public void setQueuedBytesWaterMark(WriteBufferWaterMark waterMark) {
+        this.queuedBytesWaterMark = waterMark;
+    }
+
+    @Override
+    public WriteBufferWaterMark getQueuedBytesWaterMark() {
+        return this.queuedBytesWaterMark;
+    }
 }
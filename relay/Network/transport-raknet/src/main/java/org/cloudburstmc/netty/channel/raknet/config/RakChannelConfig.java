@@ -17,6 +17,7 @@
 package org.cloudburstmc.netty.channel.raknet.config;
 
 import io.netty.channel.ChannelConfig;
+import io.netty.channel.WriteBufferWaterMark;
 
 public interface RakChannelConfig extends ChannelConfig {
 
@@ -55,4 +56,8 @@ public interface RakChannelConfig extends ChannelConfig {
     void setMaxQueuedBytes(int maxQueuedBytes);
 
     int getMaxQueuedBytes();
+
+    void setQueuedBytesWaterMark(WriteBufferWaterMark waterMark);
+
+    WriteBufferWaterMark getQueuedBytesWaterMark();
 }
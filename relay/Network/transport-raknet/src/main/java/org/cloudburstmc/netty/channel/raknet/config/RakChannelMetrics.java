@@ -41,6 +41,20 @@ public interface RakChannelMetrics {
     default void rakStaleDatagrams(int count) {
     }
 
+    /**
+     * Called with the number of datagrams resent because the remote peer reported them as lost.
+     */
+    default void rakNackedDatagrams(int count) {
+    }
+
+    /**
+     * Called for every acknowledged datagram.
+     *
+     * @param millis time between sending the datagram and receiving its acknowledgement
+     */
+    default void roundTripTime(long millis) {
+    }
+
     default void ackIn(int count) {
     }
 
@@ -58,4 +72,11 @@ public interface RakChannelMetrics {
 
     default void queuedPacketBytes(int count) {
     }
+
+    /**
+     * Called for every message handed between the event loop of a child channel and the event loop of its server
+     * channel, which runs the RakNet session. Children registered on the server channel's event loop never report this.
+     */
+    default void crossThreadHandoff() {
+    }
 }
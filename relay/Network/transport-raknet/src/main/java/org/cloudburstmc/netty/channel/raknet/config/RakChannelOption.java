@@ -18,6 +18,7 @@ package org.cloudburstmc.netty.channel.raknet.config;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
 
 public class RakChannelOption<T> extends ChannelOption<T> {
 
@@ -195,6 +196,14 @@ public class RakChannelOption<T> extends ChannelOption<T> {
     public static final ChannelOption<Integer> RAK_MAX_QUEUED_BYTES =
             valueOf(RakChannelOption.class, "RAK_MAX_QUEUED_BYTES");
 
+    /**
+     * Queued bytes at which a RakNet session marks its channel as not writable, and at which it becomes writable again.
+     * The high mark should stay below RAK_MAX_QUEUED_BYTES so writers can back off before the session is disconnected.
+     * Default is 8 MB low and 16 MB high.
+     */
+    public static final ChannelOption<WriteBufferWaterMark> RAK_QUEUED_BYTES_WATER_MARK =
+            valueOf(RakChannelOption.class, "RAK_QUEUED_BYTES_WATER_MARK");
+
     @SuppressWarnings("deprecation")
     protected RakChannelOption() {
         super(null);
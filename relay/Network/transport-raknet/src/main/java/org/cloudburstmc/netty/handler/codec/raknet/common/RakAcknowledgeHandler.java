@@ -22,9 +22,7 @@ import static org.cloudburstmc.netty.channel.raknet.RakConstants.FLAG_VALID;
 
 import org.cloudburstmc.netty.channel.raknet.RakDisconnectReason;
 import org.cloudburstmc.netty.channel.raknet.config.RakChannelMetrics;
-import org.cloudburstmc.netty.util.IntRange;
-
-import java.util.Queue;
+import org.cloudburstmc.netty.util.IntRangeQueue;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -63,7 +61,7 @@ public class RakAcknowledgeHandler extends SimpleChannelInboundHandler<ByteBuf>
         boolean nack = (buffer.readByte() & FLAG_NACK) != 0;
         int entriesCount = buffer.readUnsignedShort();
 
-        Queue<IntRange> queue = this.sessionCodec.getAcknowledgeQueue(nack);
+        IntRangeQueue queue = this.sessionCodec.getAcknowledgeQueue(nack);
         for (int i = 0; i < entriesCount; i++) {
             boolean singleton = buffer.readBoolean();
             int start = buffer.readUnsignedMediumLE();
@@ -71,7 +69,7 @@ public class RakAcknowledgeHandler extends SimpleChannelInboundHandler<ByteBuf>
             int end = singleton ? start : buffer.readUnsignedMediumLE();
 
             if (start <= end) {
-                queue.offer(new IntRange(start, end));
+                queue.add(start, end);
                 continue;
             }
 
@@ -39,17 +39,14 @@ import org.cloudburstmc.netty.channel.raknet.packet.RakDatagramPacket;
 import org.cloudburstmc.netty.channel.raknet.packet.RakMessage;
 import org.cloudburstmc.netty.util.BitQueue;
 import org.cloudburstmc.netty.util.FastBinaryMinHeap;
-import org.cloudburstmc.netty.util.IntRange;
+import org.cloudburstmc.netty.util.IntRangeQueue;
 import org.cloudburstmc.netty.util.RakUtils;
 import org.cloudburstmc.netty.util.RoundRobinArray;
 import org.cloudburstmc.netty.util.SplitPacketHelper;
 
 import java.net.Inet6Address;
 import java.net.InetSocketAddress;
-import java.util.ArrayDeque;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 import io.netty.buffer.ByteBuf;
@@ -58,8 +55,12 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import io.netty.util.concurrent.ScheduledFuture;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -67,6 +68,11 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 public class RakSessionCodec extends ChannelDuplexHandler {
     private static final InternalLogger log = InternalLoggerFactory.getInstance(RakSessionCodec.class);
     public static final String NAME = "rak-session-codec";
+    /**
+     * Index of the user defined writability flag cleared while the queued bytes are above the configured water mark.
+     */
+    public static final int QUEUE_WRITABILITY_INDEX = 1;
+    private static final long SPLIT_EXPIRY_CHECK_INTERVAL_MS = 1000L;
 
     private final RakChannel channel;
     private ScheduledFuture<?> tickFuture;
@@ -87,19 +93,26 @@ public class RakSessionCodec extends ChannelDuplexHandler {
     private int[] orderWriteIndex;
 
     private RoundRobinArray<SplitPacketHelper> splitPackets;
+    private long lastSplitExpiryCheck;
     private BitQueue reliableDatagramQueue;
 
     private FastBinaryMinHeap<EncapsulatedPacket> outgoingPackets;
+    private int queuedBytes;
+    private boolean queueWritable = true;
     private long[] outgoingPacketNextWeights;
     private FastBinaryMinHeap<EncapsulatedPacket>[] orderingHeaps;
     private long currentPingTime = -1;
     private long lastPingTime = -1;
     private long lastPongTime = -1;
-    private Map<Integer, RakDatagramPacket> sentDatagrams;
-    private Queue<IntRange> incomingAcks;
-    private Queue<IntRange> incomingNaks;
-    private Queue<IntRange> outgoingAcks;
-    private Queue<IntRange> outgoingNaks;
+    // Only touched from the parent event loop
+    private IntObjectMap<RakDatagramPacket> sentDatagrams;
+    // Retransmission deadlines keyed by nextSend. Entries are not removed on ACK; ones that no longer
+    // match sentDatagrams are skipped when they come due.
+    private FastBinaryMinHeap<RakDatagramPacket> retransmissionQueue;
+    private IntRangeQueue incomingAcks;
+    private IntRangeQueue incomingNaks;
+    private IntRangeQueue outgoingAcks;
+    private IntRangeQueue outgoingNaks;
     private long lastMinWeight;
 
     public RakSessionCodec(RakChannel channel) {
@@ -128,12 +141,13 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         }
 
         this.outgoingPackets = new FastBinaryMinHeap<>(8);
-        this.sentDatagrams = new ConcurrentHashMap<>();
+        this.sentDatagrams = new IntObjectHashMap<>(64);
+        this.retransmissionQueue = new FastBinaryMinHeap<>(64);
 
-        this.incomingAcks = new ArrayDeque<>();
-        this.incomingNaks = new ArrayDeque<>();
-        this.outgoingAcks = new ArrayDeque<>();
-        this.outgoingNaks = new ArrayDeque<>();
+        this.incomingAcks = new IntRangeQueue(64);
+        this.incomingNaks = new IntRangeQueue(64);
+        this.outgoingAcks = new IntRangeQueue(64);
+        this.outgoingNaks = new IntRangeQueue(64);
 
         this.reliableDatagramQueue = new BitQueue(512);
         this.splitPackets = new RoundRobinArray<>(256);
@@ -171,6 +185,16 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         }
         this.sentDatagrams = null;
 
+        FastBinaryMinHeap<RakDatagramPacket> retransmissionQueue = this.retransmissionQueue;
+        this.retransmissionQueue = null;
+        if (retransmissionQueue != null) {
+            // Entries do not hold a reference to the datagram
+            while (!retransmissionQueue.isEmpty()) {
+                retransmissionQueue.remove();
+            }
+            retransmissionQueue.release();
+        }
+
         FastBinaryMinHeap<EncapsulatedPacket>[] orderingHeaps = this.orderingHeaps;
         this.orderingHeaps = null;
         if (orderingHeaps != null) {
@@ -192,6 +216,7 @@ public class RakSessionCodec extends ChannelDuplexHandler {
             }
             outgoingPackets.release();
         }
+        this.queuedBytes = 0;
 
         if (log.isTraceEnabled()) {
             log.trace("RakNet Session ({} => {}) closed!", this.channel.localAddress(), this.getRemoteAddress());
@@ -281,6 +306,33 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         } else {
             this.outgoingPackets.insertSeries(weight, packets);
         }
+
+        for (EncapsulatedPacket packet : packets) {
+            this.queuedBytes += packet.getBuffer().readableBytes();
+        }
+        this.updateQueueWritability();
+    }
+
+    private void updateQueueWritability() {
+        WriteBufferWaterMark waterMark = this.channel.config().getQueuedBytesWaterMark();
+        if (waterMark == null) {
+            return;
+        }
+
+        boolean writable;
+        if (this.queueWritable && this.queuedBytes > waterMark.high()) {
+            writable = false;
+        } else if (!this.queueWritable && this.queuedBytes < waterMark.low()) {
+            writable = true;
+        } else {
+            return;
+        }
+        this.queueWritable = writable;
+
+        ChannelOutboundBuffer outboundBuffer = this.channel.unsafe().outboundBuffer();
+        if (outboundBuffer != null) {
+            outboundBuffer.setUserDefinedWritability(QUEUE_WRITABILITY_INDEX, writable);
+        }
     }
 
     private void handleDatagram(ChannelHandlerContext ctx, RakDatagramPacket packet) {
@@ -299,10 +351,10 @@ public class RakSessionCodec extends ChannelDuplexHandler {
 
         int missedDatagrams = packet.getSequenceIndex() - prevSequenceIndex;
         if (missedDatagrams > 0) {
-            this.outgoingNaks.offer(new IntRange(packet.getSequenceIndex() - missedDatagrams, packet.getSequenceIndex() - 1));
+            this.outgoingNaks.add(packet.getSequenceIndex() - missedDatagrams, packet.getSequenceIndex() - 1);
         }
 
-        this.outgoingAcks.offer(new IntRange(packet.getSequenceIndex(), packet.getSequenceIndex()));
+        this.outgoingAcks.add(packet.getSequenceIndex());
 
         for (final EncapsulatedPacket encapsulated : packet.getPackets()) {
             if (encapsulated.getReliability().isReliable()) {
@@ -421,6 +473,17 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         return result;
     }
 
+    private void removeExpiredSplitPackets() {
+        Iterator<SplitPacketHelper> iterator = this.splitPackets.iterator();
+        while (iterator.hasNext()) {
+            SplitPacketHelper helper = iterator.next();
+            if (helper != null && helper.expired()) {
+                // Releases the retained parts
+                iterator.remove();
+            }
+        }
+    }
+
     private void tryTick() {
         try {
             this.onTick();
@@ -433,24 +496,15 @@ public class RakSessionCodec extends ChannelDuplexHandler {
     private void onTick() {
         long curTime = System.currentTimeMillis();
 
-        int maxQueuedBytes = this.channel.config().getOption(RakChannelOption.RAK_MAX_QUEUED_BYTES);
+        RakChannelMetrics metrics = this.getMetrics();
+        if (metrics != null) {
+            metrics.queuedPacketBytes(this.queuedBytes);
+        }
 
-        if (maxQueuedBytes > 0) {
-            int queuedBytes = 0;
-            try {
-                for (EncapsulatedPacket packet : this.outgoingPackets) {
-                    queuedBytes += packet.getBuffer().readableBytes();
-                    if (queuedBytes > maxQueuedBytes) {
-                        this.disconnect(RakDisconnectReason.QUEUE_TOO_LONG);
-                        return;
-                    }
-                }
-            } finally {
-                RakChannelMetrics metrics = this.getMetrics();
-                if (metrics != null) {
-                    metrics.queuedPacketBytes(queuedBytes);
-                }
-            }
+        int maxQueuedBytes = this.channel.config().getMaxQueuedBytes();
+        if (maxQueuedBytes > 0 && this.queuedBytes > maxQueuedBytes) {
+            this.disconnect(RakDisconnectReason.QUEUE_TOO_LONG);
+            return;
         }
 
         if (this.state == RakState.UNCONNECTED) {
@@ -465,6 +519,11 @@ public class RakSessionCodec extends ChannelDuplexHandler {
             return;
         }
 
+        if (curTime - this.lastSplitExpiryCheck >= SPLIT_EXPIRY_CHECK_INTERVAL_MS) {
+            this.lastSplitExpiryCheck = curTime;
+            this.removeExpiredSplitPackets();
+        }
+
         ChannelHandlerContext ctx = ctx();
 
         if (this.currentPingTime + 2000L < curTime) {
@@ -526,33 +585,54 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         }
     }
 
-    private void handleIncomingAcknowledge(ChannelHandlerContext ctx, long curTime, Queue<IntRange> queue, boolean nack) {
+    private void handleIncomingAcknowledge(ChannelHandlerContext ctx, long curTime, IntRangeQueue queue, boolean nack) {
         if (queue.isEmpty()) {
             return;
         }
 
+        if (this.sentDatagrams.isEmpty()) {
+            queue.clear();
+            return;
+        }
+
 //        if (nack) {
 //            this.slidingWindow.onNak();
 //        }
 
-        IntRange range;
-        while ((range = queue.poll()) != null) {
-            for (int i = range.start; i <= range.end; i++) {
+        RakChannelMetrics metrics = this.getMetrics();
+        int resent = 0;
+        // Resending a NAK'ed datagram moves the write index, so the limit is taken up front
+        int lastSent = this.datagramWriteIndex - 1;
+        while (!queue.isEmpty()) {
+            int start = queue.peekStart();
+            // Nothing past the last written index can be in flight, so oversized ranges are not walked in full
+            int end = Math.min(queue.peekEnd(), lastSent);
+            queue.remove();
+
+            for (int i = start; i <= end; i++) {
                 RakDatagramPacket datagram = this.sentDatagrams.remove(i);
                 if (datagram != null) {
                     if (nack) {
                         this.onIncomingNack(ctx, datagram, curTime);
+                        resent++;
                     } else {
-                        this.onIncomingAck(datagram, curTime);
+                        this.onIncomingAck(datagram, curTime, metrics);
                     }
                 }
             }
         }
+
+        if (metrics != null && resent > 0) {
+            metrics.rakNackedDatagrams(resent);
+        }
     }
 
-    private void onIncomingAck(RakDatagramPacket datagram, long curTime) {
+    private void onIncomingAck(RakDatagramPacket datagram, long curTime, RakChannelMetrics metrics) {
         try {
             this.slidingWindow.onAck(curTime, datagram, this.datagramReadIndex);
+            if (metrics != null) {
+                metrics.roundTripTime(curTime - datagram.getSendTime());
+            }
         } finally {
             datagram.release();
         }
@@ -569,6 +649,10 @@ public class RakSessionCodec extends ChannelDuplexHandler {
 
     private int sendStaleDatagrams(ChannelHandlerContext ctx, long curTime) {
         if (this.sentDatagrams.isEmpty()) {
+            // Everything has been acknowledged, so any queued deadlines are stale
+            while (!this.retransmissionQueue.isEmpty()) {
+                this.retransmissionQueue.remove();
+            }
             return 0;
         }
 
@@ -576,23 +660,35 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         int resendCount = 0;
         int transmissionBandwidth = this.slidingWindow.getRetransmissionBandwidth();
 
-        for (RakDatagramPacket datagram : this.sentDatagrams.values()) {
-            if (datagram.getNextSend() <= curTime) {
-                int size = datagram.getSize();
-                if (transmissionBandwidth < size) {
-                    break;
-                }
-                transmissionBandwidth -= size;
+        // Oldest deadline first, so the bandwidth budget starves the newest datagrams rather than arbitrary ones
+        RakDatagramPacket datagram;
+        while ((datagram = this.retransmissionQueue.peek()) != null) {
+            long nextSend = this.retransmissionQueue.peekWeight();
+            if (nextSend > curTime) {
+                break;
+            }
 
-                if (!hasResent) {
-                    hasResent = true;
-                }
-                if (log.isTraceEnabled()) {
-                    log.trace("Stale datagram {} from {}", datagram.getSequenceIndex(), this.getRemoteAddress());
-                }
-                resendCount++;
-                this.sendDatagram(ctx, datagram, curTime);
+            if (!this.isAwaitingRetransmission(datagram, nextSend)) {
+                // Acknowledged or already resent since this deadline was queued
+                this.retransmissionQueue.remove();
+                continue;
+            }
+
+            int size = datagram.getSize();
+            if (transmissionBandwidth < size) {
+                break;
             }
+            transmissionBandwidth -= size;
+            this.retransmissionQueue.remove();
+
+            if (!hasResent) {
+                hasResent = true;
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("Stale datagram {} from {}", datagram.getSequenceIndex(), this.getRemoteAddress());
+            }
+            resendCount++;
+            this.sendDatagram(ctx, datagram, curTime);
         }
 
         if (hasResent) {
@@ -602,6 +698,12 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         return resendCount;
     }
 
+    private boolean isAwaitingRetransmission(RakDatagramPacket datagram, long nextSend) {
+        // Datagrams are pooled, so the entry may point at an instance that has since been reused
+        int sequenceIndex = datagram.getSequenceIndex();
+        return sequenceIndex >= 0 && datagram.getNextSend() == nextSend && this.sentDatagrams.get(sequenceIndex) == datagram;
+    }
+
     private void sendDatagrams(ChannelHandlerContext ctx, long curTime, int mtuSize) {
         if (this.outgoingPackets.isEmpty()) {
             return;
@@ -620,6 +722,7 @@ public class RakSessionCodec extends ChannelDuplexHandler {
 
             transmissionBandwidth -= size;
             this.outgoingPackets.remove();
+            this.queuedBytes -= packet.getBuffer().readableBytes();
 
             // Send full datagram
             if (!datagram.tryAddPacket(packet, mtuSize)) {
@@ -636,6 +739,7 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         if (!datagram.getPackets().isEmpty()) {
             this.sendDatagram(ctx, datagram, curTime);
         }
+        this.updateQueueWritability();
     }
 
     private void sendImmediate(ChannelHandlerContext ctx, EncapsulatedPacket[] packets) {
@@ -655,6 +759,10 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         if (!this.channel.parent().eventLoop().inEventLoop()) {
             // Make sure this runs on correct thread
             log.error("Tried to send datagrams from wrong thread: {}", Thread.currentThread().getName(), new Throwable());
+            RakChannelMetrics metrics = this.getMetrics();
+            if (metrics != null) {
+                metrics.crossThreadHandoff();
+            }
             this.channel.parent().eventLoop().execute(() -> this.sendDatagram(ctx, datagram, time));
             return;
         }
@@ -677,10 +785,11 @@ public class RakSessionCodec extends ChannelDuplexHandler {
                 datagram.setNextSend(time + this.slidingWindow.getRtoForRetransmission());
                 if (oldIndex == -1) {
                     this.slidingWindow.onReliableSend(datagram);
-                } else {
-                    this.sentDatagrams.remove(oldIndex, datagram);
+                } else if (this.sentDatagrams.get(oldIndex) == datagram) {
+                    this.sentDatagrams.remove(oldIndex);
                 }
                 this.sentDatagrams.put(datagram.getSequenceIndex(), datagram.retain()); // Keep for resending
+                this.retransmissionQueue.insert(datagram.getNextSend(), datagram);
                 break;
             }
         }
@@ -900,7 +1009,7 @@ public class RakSessionCodec extends ChannelDuplexHandler {
         return (InetSocketAddress) this.channel.remoteAddress();
     }
 
-    protected Queue<IntRange> getAcknowledgeQueue(boolean nack) {
+    protected IntRangeQueue getAcknowledgeQueue(boolean nack) {
         return nack ? this.incomingNaks : this.incomingAcks;
     }
 
@@ -81,6 +81,13 @@ public class FastBinaryMinHeap<E> extends AbstractReferenceCounted implements It
         return entry != null ? (E) entry.element : null;
     }
 
+    /**
+     * @return weight of the element returned by {@link #peek()}, or {@link Long#MAX_VALUE} if the heap is empty
+     */
+    public long peekWeight() {
+        return this.heap[1].weight;
+    }
+
     private void insert0(long weight, E element) {
         int hole = ++this.size;
         int pred = hole >> 1;
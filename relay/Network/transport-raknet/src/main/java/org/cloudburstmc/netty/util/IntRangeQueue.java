@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 CloudburstMC
+ *
+ * CloudburstMC licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.cloudburstmc.netty.util;
+
+/**
+ * FIFO queue of inclusive int ranges backed by a primitive ring buffer.
+ * <p>
+ * Values that extend or overlap the most recently added range are merged into it, so consecutive
+ * datagram indexes end up as a single range and adding does not allocate once the buffer has grown.
+ * This class is not thread-safe.
+ */
+public class IntRangeQueue {
+
+    private int[] ranges;
+    private int head;
+    private int tail;
+
+    public IntRangeQueue() {
+        this(0);
+    }
+
+    public IntRangeQueue(int capacity) {
+        capacity = RakUtils.powerOfTwoCeiling(capacity);
+        if (capacity <= 0) {
+            capacity = 16;
+        }
+
+        this.ranges = new int[capacity << 1];
+        this.head = 0;
+        this.tail = 0;
+    }
+
+    public void add(int value) {
+        this.add(value, value);
+    }
+
+    public void add(int start, int end) {
+        if (this.head != this.tail) {
+            int last = (this.head - 1) & (this.capacity() - 1);
+            int lastStart = this.ranges[last << 1];
+            int lastEnd = this.ranges[(last << 1) + 1];
+            // Merge when the range overlaps or touches the last one
+            if (start <= lastEnd + 1 && end >= lastStart - 1) {
+                this.ranges[last << 1] = Math.min(start, lastStart);
+                this.ranges[(last << 1) + 1] = Math.max(end, lastEnd);
+                return;
+            }
+        }
+
+        if (((this.head + 1) & (this.capacity() - 1)) == this.tail) {
+            this.resize(this.capacity() << 1);
+        }
+
+        this.ranges[this.head << 1] = start;
+        this.ranges[(this.head << 1) + 1] = end;
+        this.head = (this.head + 1) & (this.capacity() - 1);
+    }
+
+    private void resize(int capacity) {
+        int[] newRanges = new int[capacity << 1];
+        int size = this.size();
+
+        if (this.head > this.tail) {
+            System.arraycopy(this.ranges, this.tail << 1, newRanges, 0, size << 1);
+        } else if (this.head < this.tail) {
+            int length = this.capacity() - this.tail;
+            System.arraycopy(this.ranges, this.tail << 1, newRanges, 0, length << 1);
+            System.arraycopy(this.ranges, 0, newRanges, length << 1, this.head << 1);
+        }
+
+        this.ranges = newRanges;
+        this.tail = 0;
+        this.head = size;
+    }
+
+    private int capacity() {
+        return this.ranges.length >> 1;
+    }
+
+    public int size() {
+        return (this.head - this.tail) & (this.capacity() - 1);
+    }
+
+    public boolean isEmpty() {
+        return this.head == this.tail;
+    }
+
+    /**
+     * @return start of the oldest range, only valid if the queue is not empty
+     */
+    public int peekStart() {
+        return this.ranges[this.tail << 1];
+    }
+
+    /**
+     * @return inclusive end of the oldest range, only valid if the queue is not empty
+     */
+    public int peekEnd() {
+        return this.ranges[(this.tail << 1) + 1];
+    }
+
+    public void remove() {
+        if (this.head == this.tail) {
+            return;
+        }
+        this.tail = (this.tail + 1) & (this.capacity() - 1);
+    }
+
+    public void clear() {
+        this.head = 0;
+        this.tail = 0;
+    }
+}
@@ -27,9 +27,27 @@ import io.netty.util.IllegalReferenceCountException;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 
+/**
+ * Reassembles the parts of a split {@link EncapsulatedPacket}.
+ * <p>
+ * Parts that arrive in order are copied straight into the reassembled buffer and released. Parts that arrive
+ * ahead of a gap are retained until the gap has been filled.
+ */
 public class SplitPacketHelper extends AbstractReferenceCounted {
+    /**
+     * Upper bound for the initial capacity of the reassembled buffer so a bogus part count can not make us allocate
+     * more than the parts actually need. The buffer grows past this if the parts do.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1024 * 1024;
+
     private final EncapsulatedPacket[] packets;
     private final long created = System.currentTimeMillis();
+    private ByteBuf reassembled;
+    /**
+     * Number of leading parts which have been written to {@link #reassembled}.
+     */
+    private int written;
+    private int received;
 
     public SplitPacketHelper(long expectedLength) {
         if (expectedLength < 2) {
@@ -48,31 +66,51 @@ public class SplitPacketHelper extends AbstractReferenceCounted {
         }
 
         int partIndex = packet.getPartIndex();
-        if (this.packets[partIndex] != null) {
+        if (partIndex < this.written || this.packets[partIndex] != null) {
             // Duplicate
             return null;
         }
-        // Retain the packet so it can be reassembled later.
-        this.packets[partIndex] = packet.retain();
+        this.received++;
+
+        if (partIndex != this.written) {
+            // Retain the packet so it can be reassembled once the parts before it have arrived.
+            this.packets[partIndex] = packet.retain();
+            return null;
+        }
 
-        int sz = 0;
-        for (EncapsulatedPacket netPacket : this.packets) {
-            if (netPacket == null) {
-                return null;
+        if (this.reassembled == null) {
+            // Every part but the last is usually as large as the first one.
+            // We can't use a composite buffer as the native code will choke on it
+            long expectedSize = (long) packet.getBuffer().readableBytes() * this.packets.length;
+            this.reassembled = alloc.ioBuffer((int) Math.min(expectedSize, MAX_INITIAL_CAPACITY));
+        }
+
+        this.write(packet);
+        EncapsulatedPacket next;
+        while (this.written < this.packets.length && (next = this.packets[this.written]) != null) {
+            this.packets[this.written] = null;
+            try {
+                this.write(next);
+            } finally {
+                next.release();
             }
-            sz += netPacket.getBuffer().readableBytes();
         }
 
-        // We can't use a composite buffer as the native code will choke on it
-        ByteBuf reassembled = alloc.ioBuffer(sz);
-        for (EncapsulatedPacket netPacket : this.packets) {
-            ByteBuf buf = netPacket.getBuffer();
-            reassembled.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+        if (this.received < this.packets.length) {
+            return null;
         }
 
+        ByteBuf reassembled = this.reassembled;
+        this.reassembled = null;
         return packet.fromSplit(reassembled);
     }
 
+    private void write(EncapsulatedPacket packet) {
+        ByteBuf buf = packet.getBuffer();
+        this.reassembled.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+        this.written++;
+    }
+
     public boolean expired() {
         // If we're waiting on a split packet for more than 30 seconds, the client on the other end is either severely
         // lagging, or has died.
@@ -85,6 +123,8 @@ public class SplitPacketHelper extends AbstractReferenceCounted {
         for (EncapsulatedPacket packet : this.packets) {
             ReferenceCountUtil.release(packet);
         }
+        ReferenceCountUtil.release(this.reassembled);
+        this.reassembled = null;
     }
 
     @Override
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 CloudburstMC
+ *
+ * CloudburstMC licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.cloudburstmc.netty;
+
+import org.cloudburstmc.netty.util.IntRangeQueue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class IntRangeQueueTests {
+
+    @Test
+    public void testCoalescing() {
+        IntRangeQueue queue = new IntRangeQueue();
+        for (int i = 0; i < 10; i++) {
+            queue.add(i);
+        }
+        queue.add(12);
+        queue.add(11);
+        queue.add(20, 25);
+        queue.add(18, 19);
+        queue.add(30);
+
+        assertRange(queue, 0, 9);
+        assertRange(queue, 11, 12);
+        assertRange(queue, 18, 25);
+        assertRange(queue, 30, 30);
+        Assertions.assertTrue(queue.isEmpty(), "Queue is not empty");
+    }
+
+    @Test
+    public void testQueue() {
+        Queue<Integer> values = new ArrayDeque<>();
+        IntRangeQueue queue = new IntRangeQueue(4);
+
+        int value = 0;
+        for (int i = 0; i < 4096; i++) {
+            if (values.isEmpty() || ThreadLocalRandom.current().nextInt(3) > 0) {
+                // Leave a gap so every value stays its own range
+                value += 2;
+                queue.add(value);
+                values.add(value);
+            } else {
+                int expected = values.poll();
+                Assertions.assertEquals(expected, queue.peekStart());
+                Assertions.assertEquals(expected, queue.peekEnd());
+                queue.remove();
+            }
+            Assertions.assertEquals(values.size(), queue.size());
+        }
+    }
+
+    private static void assertRange(IntRangeQueue queue, int start, int end) {
+        Assertions.assertFalse(queue.isEmpty(), "Queue is empty");
+        Assertions.assertEquals(start, queue.peekStart());
+        Assertions.assertEquals(end, queue.peekEnd());
+        queue.remove();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 CloudburstMC
+ *
+ * CloudburstMC licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.cloudburstmc.netty;
+
+import org.cloudburstmc.netty.channel.raknet.RakReliability;
+import org.cloudburstmc.netty.channel.raknet.packet.EncapsulatedPacket;
+import org.cloudburstmc.netty.util.SplitPacketHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+public class SplitPacketHelperTests {
+
+    private static final int PART_SIZE = 64;
+
+    @Test
+    public void testInOrder() {
+        byte[] payload = payload(10 * PART_SIZE - 7);
+        List<EncapsulatedPacket> parts = split(payload);
+        assertReassembled(payload, parts);
+    }
+
+    @Test
+    public void testOutOfOrderWithDuplicates() {
+        byte[] payload = payload(37 * PART_SIZE + 3);
+        List<EncapsulatedPacket> parts = split(payload);
+        List<EncapsulatedPacket> shuffled = new ArrayList<>(parts);
+        // Send a few parts twice
+        for (int i = 0; i < 5; i++) {
+            shuffled.add(parts.get(i * 3));
+        }
+        Collections.shuffle(shuffled, new Random(1234));
+        assertReassembled(payload, shuffled);
+    }
+
+    private static void assertReassembled(byte[] payload, List<EncapsulatedPacket> parts) {
+        SplitPacketHelper helper = new SplitPacketHelper(parts.get(0).getPartCount());
+        EncapsulatedPacket result = null;
+        try {
+            for (EncapsulatedPacket part : parts) {
+                Assertions.assertNull(result, "Packet reassembled before every part was added");
+                result = helper.add(part, ByteBufAllocator.DEFAULT);
+            }
+            Assertions.assertNotNull(result, "Packet was not reassembled");
+
+            ByteBuf buffer = result.getBuffer();
+            byte[] reassembled = new byte[buffer.readableBytes()];
+            buffer.getBytes(buffer.readerIndex(), reassembled);
+            Assertions.assertArrayEquals(payload, reassembled);
+        } finally {
+            if (result != null) {
+                result.release();
+            }
+            helper.release();
+            for (EncapsulatedPacket part : parts) {
+                if (part.refCnt() > 0) {
+                    part.release();
+                }
+            }
+        }
+    }
+
+    private static List<EncapsulatedPacket> split(byte[] payload) {
+        int partCount = (payload.length + PART_SIZE - 1) / PART_SIZE;
+        List<EncapsulatedPacket> parts = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            int offset = i * PART_SIZE;
+            EncapsulatedPacket packet = EncapsulatedPacket.newInstance();
+            packet.setReliability(RakReliability.RELIABLE_ORDERED);
+            packet.setSplit(true);
+            packet.setPartCount(partCount);
+            packet.setPartIndex(i);
+            packet.setBuffer(Unpooled.wrappedBuffer(payload, offset, Math.min(PART_SIZE, payload.length - offset)));
+            parts.add(packet);
+        }
+        return parts;
+    }
+
+    private static byte[] payload(int length) {
+        byte[] payload = new byte[length];
+        new Random(length).nextBytes(payload);
+        return payload;
+    }
+}
@@ -1,8 +1,6 @@
 package org.cloudburstmc.protocol.bedrock.codec;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -14,10 +12,7 @@ import lombok.Setter;
 import org.cloudburstmc.math.vector.Vector2f;
 import org.cloudburstmc.math.vector.Vector3f;
 import org.cloudburstmc.math.vector.Vector3i;
-import org.cloudburstmc.nbt.NBTInputStream;
-import org.cloudburstmc.nbt.NBTOutputStream;
 import org.cloudburstmc.nbt.NbtType;
-import org.cloudburstmc.nbt.NbtUtils;
 import org.cloudburstmc.protocol.bedrock.data.EncodingSettings;
 import org.cloudburstmc.protocol.bedrock.data.ExperimentData;
 import org.cloudburstmc.protocol.bedrock.data.PlayerAbilityHolder;
@@ -34,6 +29,7 @@ import org.cloudburstmc.protocol.bedrock.data.inventory.transaction.InventoryAct
 import org.cloudburstmc.protocol.bedrock.data.inventory.transaction.InventorySource;
 import org.cloudburstmc.protocol.bedrock.data.skin.AnimationData;
 import org.cloudburstmc.protocol.bedrock.data.skin.ImageData;
+import org.cloudburstmc.protocol.bedrock.data.skin.ImageDataCache;
 import org.cloudburstmc.protocol.bedrock.data.skin.SerializedSkin;
 import org.cloudburstmc.protocol.bedrock.data.structure.StructureSettings;
 import org.cloudburstmc.protocol.bedrock.packet.InventoryTransactionPacket;
@@ -44,7 +40,6 @@ import org.cloudburstmc.protocol.common.util.TriConsumer;
 import org.cloudburstmc.protocol.common.util.TypeMap;
 import org.cloudburstmc.protocol.common.util.VarInts;
 
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -83,6 +78,13 @@ public abstract class BaseBedrockCodecHelper implements BedrockCodecHelper {
     @Setter
     protected TextConverter textConverter = TextConverter.DEFAULT;
 
+    /**
+     * Cache used to deduplicate skin, cape and animation images. Shared by every helper unless replaced.
+     */
+    @Getter
+    @Setter
+    protected ImageDataCache imageDataCache = ImageDataCache.SHARED;
+
     protected static boolean isAir(ItemDefinition definition) {
         return definition == null || "minecraft:air".equals(definition.getIdentifier());
     }
@@ -337,23 +339,25 @@ public abstract class BaseBedrockCodecHelper implements BedrockCodecHelper {
     @SuppressWarnings("unchecked")
     @Override
     public <T> T readTag(ByteBuf buffer, Class<T> expected, long maxReadSize) {
-        try (NBTInputStream reader = NbtUtils.createNetworkReader(new ByteBufInputStream(buffer), maxReadSize)) {
-            Object tag = reader.readTag();
-            checkArgument(expected.isInstance(tag), "Expected tag of %s type but received %s",
-                    expected, tag.getClass());
-            return (T) tag;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        Object tag = ByteBufNbt.NETWORK.readTag(buffer, maxReadSize);
+        checkArgument(expected.isInstance(tag), "Expected tag of %s type but received %s",
+                expected, tag == null ? null : tag.getClass());
+        return (T) tag;
     }
 
     @Override
     public void writeTag(ByteBuf buffer, Object tag) {
-        try (NBTOutputStream writer = NbtUtils.createNetworkWriter(new ByteBufOutputStream(buffer))) {
-            writer.writeTag(tag);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        ByteBufNbt.NETWORK.writeTag(buffer, tag);
+    }
+
+    @Override
+    public void skipTag(ByteBuf buffer) {
+        ByteBufNbt.NETWORK.skipTag(buffer, this.encodingSettings.maxNetworkNBTSize());
+    }
+
+    @Override
+    public ByteBuf readTagSlice(ByteBuf buffer) {
+        return ByteBufNbt.NETWORK.readTagSlice(buffer, this.encodingSettings.maxNetworkNBTSize());
     }
 
     @Override
@@ -364,22 +368,14 @@ public abstract class BaseBedrockCodecHelper implements BedrockCodecHelper {
     @SuppressWarnings("unchecked")
     @Override
     public <T> T readTagLE(ByteBuf buffer, Class<T> expected, long maxReadSize) {
-        try (NBTInputStream reader = NbtUtils.createReaderLE(new ByteBufInputStream(buffer), maxReadSize)) {
-            Object tag = reader.readTag();
-            checkArgument(expected.isInstance(tag), "Expected tag of %s type but received %s",
-                    expected, tag.getClass());
-            return (T) reader.readTag();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        Object tag = ByteBufNbt.LITTLE_ENDIAN.readTag(buffer, maxReadSize);
+        checkArgument(expected.isInstance(tag), "Expected tag of %s type but received %s",
+                expected, tag == null ? null : tag.getClass());
+        return (T) tag;
     }
 
     public void writeTagLE(ByteBuf buffer, Object tag) {
-        try (NBTOutputStream writer = NbtUtils.createWriterLE(new ByteBufOutputStream(buffer))) {
-            writer.writeTag(tag);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        ByteBufNbt.LITTLE_ENDIAN.writeTag(buffer, tag);
     }
 
     @Override
@@ -389,20 +385,12 @@ public abstract class BaseBedrockCodecHelper implements BedrockCodecHelper {
 
     @Override
     public <T> T readTagValue(ByteBuf buffer, NbtType<T> type, long maxReadSize) {
-        try (NBTInputStream reader = NbtUtils.createNetworkReader(new ByteBufInputStream(buffer), maxReadSize)) {
-            return reader.readValue(type);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return ByteBufNbt.NETWORK.readValue(buffer, type, maxReadSize);
     }
 
     @Override
     public void writeTagValue(ByteBuf buffer, Object tag) {
-        try (NBTOutputStream writer = NbtUtils.createNetworkWriter(new ByteBufOutputStream(buffer))) {
-            writer.writeValue(tag);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        ByteBufNbt.NETWORK.writeValue(buffer, tag);
     }
 
     @Override
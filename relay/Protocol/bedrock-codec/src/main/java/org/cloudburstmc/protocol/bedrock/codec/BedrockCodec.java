@@ -131,12 +131,12 @@ public final class BedrockCodec {
         private Supplier<BedrockCodecHelper> helperFactory;
 
         public <T extends BedrockPacket> Builder registerPacket(Supplier<T> factory, BedrockPacketSerializer<T> serializer, @NonNegative int id, PacketRecipient recipient) {
-            Class<? extends BedrockPacket> packetClass = factory.get().getClass();
+            Class<T> packetClass = (Class<T>) factory.get().getClass();
 
             checkArgument(id >= 0, "id cannot be negative");
             checkArgument(!packets.containsKey(packetClass), "Packet class already registered");
 
-            BedrockPacketDefinition<T> info = new BedrockPacketDefinition<>(id, factory, serializer, recipient);
+            BedrockPacketDefinition<T> info = new BedrockPacketDefinition<>(id, packetClass, factory, serializer, recipient);
 
             packets.put(packetClass, info);
 
@@ -146,7 +146,7 @@ public final class BedrockCodec {
         public <T extends BedrockPacket> Builder updateSerializer(Class<T> packetClass, BedrockPacketSerializer<T> serializer) {
             BedrockPacketDefinition<T> info = (BedrockPacketDefinition<T>) packets.get(packetClass);
             checkArgument(info != null, "Packet does not exist");
-            BedrockPacketDefinition<T> updatedInfo = new BedrockPacketDefinition<>(info.getId(), info.getFactory(), serializer, info.getRecipient());
+            BedrockPacketDefinition<T> updatedInfo = new BedrockPacketDefinition<>(info.getId(), info.getPacketClass(), info.getFactory(), serializer, info.getRecipient());
 
             packets.replace(packetClass, info, updatedInfo);
 
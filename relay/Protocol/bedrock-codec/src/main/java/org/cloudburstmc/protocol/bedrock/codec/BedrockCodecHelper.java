@@ -201,6 +201,17 @@ public interface BedrockCodecHelper {
 
     void writeTag(ByteBuf buffer, Object tag);
 
+    /**
+     * Skips over a network NBT tag without materializing it.
+     */
+    void skipTag(ByteBuf buffer);
+
+    /**
+     * Captures a network NBT tag as a retained slice of the buffer without materializing it, for data which is
+     * only forwarded. The caller must release the slice.
+     */
+    ByteBuf readTagSlice(ByteBuf buffer);
+
     <T> T readTagLE(ByteBuf buffer, Class<T> expected);
 
     <T> T readTagLE(ByteBuf buffer, Class<T> expected, long maxReadSize);
@@ -0,0 +1,566 @@
+package org.cloudburstmc.protocol.bedrock.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.cloudburstmc.nbt.NbtList;
+import org.cloudburstmc.nbt.NbtMap;
+import org.cloudburstmc.nbt.NbtMapBuilder;
+import org.cloudburstmc.nbt.NbtType;
+import org.cloudburstmc.protocol.common.util.VarInts;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.cloudburstmc.protocol.common.util.Preconditions.checkArgument;
+
+/**
+ * Reads and writes NBT directly on a {@link ByteBuf}, without wrapping it in streams.
+ * <p>
+ * {@link #NETWORK} is the variable length encoding used in packets and {@link #LITTLE_ENDIAN} the fixed width
+ * encoding used for level data. Besides materializing tags, a tag can be skipped or captured as a retained slice of
+ * the buffer when it is only forwarded.
+ */
+public abstract class ByteBufNbt {
+
+    public static final ByteBufNbt NETWORK = new Network();
+    public static final ByteBufNbt LITTLE_ENDIAN = new LittleEndian();
+
+    private static final int MAX_DEPTH = 512;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_SHORT = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+
+    protected abstract int readInt(ByteBuf buffer);
+
+    protected abstract long readLong(ByteBuf buffer);
+
+    /**
+     * Reads the length prefix of an array or list.
+     */
+    protected abstract int readLength(ByteBuf buffer);
+
+    protected abstract int readStringLength(ByteBuf buffer);
+
+    protected abstract void skipInt(ByteBuf buffer);
+
+    protected abstract void skipLong(ByteBuf buffer);
+
+    protected abstract void writeInt(ByteBuf buffer, int value);
+
+    protected abstract void writeLong(ByteBuf buffer, long value);
+
+    protected abstract void writeLength(ByteBuf buffer, int length);
+
+    protected abstract void writeStringLength(ByteBuf buffer, int length);
+
+    /**
+     * Reads a named root tag and returns its value. The name is discarded.
+     *
+     * @param buffer      buffer to read from
+     * @param maxReadSize maximum number of bytes the tag may span, or 0 or less for no limit
+     * @return value of the tag, or null if the tag is an end tag
+     */
+    public Object readTag(ByteBuf buffer, long maxReadSize) {
+        int limit = limit(buffer, maxReadSize);
+        int type = buffer.readUnsignedByte();
+        if (type == TAG_END) {
+            return null;
+        }
+        this.skipString(buffer, limit);
+        return this.readValue(buffer, type, limit, 0);
+    }
+
+    /**
+     * Reads an unnamed value of the given type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T readValue(ByteBuf buffer, NbtType<T> type, long maxReadSize) {
+        Object value = this.readValue(buffer, type.getId(), limit(buffer, maxReadSize), 0);
+        return (T) value;
+    }
+
+    /**
+     * Skips over a named root tag without materializing it.
+     */
+    public void skipTag(ByteBuf buffer, long maxReadSize) {
+        int limit = limit(buffer, maxReadSize);
+        int type = buffer.readUnsignedByte();
+        if (type == TAG_END) {
+            return;
+        }
+        this.skipString(buffer, limit);
+        this.skipValue(buffer, type, limit, 0);
+    }
+
+    /**
+     * Captures a named root tag as a slice of the buffer without materializing it. The slice can be written back
+     * as is with {@link ByteBuf#writeBytes(ByteBuf)}.
+     *
+     * @return retained slice holding the tag, which must be released by the caller
+     */
+    public ByteBuf readTagSlice(ByteBuf buffer, long maxReadSize) {
+        int start = buffer.readerIndex();
+        this.skipTag(buffer, maxReadSize);
+        return buffer.retainedSlice(start, buffer.readerIndex() - start);
+    }
+
+    /**
+     * Writes the value as a root tag with an empty name.
+     */
+    public void writeTag(ByteBuf buffer, Object value) {
+        int type = typeOf(value);
+        buffer.writeByte(type);
+        this.writeString(buffer, "");
+        this.writeValue(buffer, type, value, 0);
+    }
+
+    /**
+     * Writes the value without a type or name header.
+     */
+    public void writeValue(ByteBuf buffer, Object value) {
+        this.writeValue(buffer, typeOf(value), value, 0);
+    }
+
+    private Object readValue(ByteBuf buffer, int type, int limit, int depth) {
+        checkArgument(depth <= MAX_DEPTH, "NBT exceeds maximum depth of %s", MAX_DEPTH);
+        switch (type) {
+            case TAG_BYTE:
+                checkReadable(buffer, 1, limit);
+                return buffer.readByte();
+            case TAG_SHORT:
+                checkReadable(buffer, 2, limit);
+                return buffer.readShortLE();
+            case TAG_INT: {
+                checkReadable(buffer, 1, limit);
+                int value = this.readInt(buffer);
+                checkLimit(buffer, limit);
+                return value;
+            }
+            case TAG_LONG: {
+                checkReadable(buffer, 1, limit);
+                long value = this.readLong(buffer);
+                checkLimit(buffer, limit);
+                return value;
+            }
+            case TAG_FLOAT:
+                checkReadable(buffer, 4, limit);
+                return buffer.readFloatLE();
+            case TAG_DOUBLE:
+                checkReadable(buffer, 8, limit);
+                return buffer.readDoubleLE();
+            case TAG_BYTE_ARRAY: {
+                int length = this.readLength(buffer);
+                checkReadable(buffer, length, limit);
+                byte[] bytes = new byte[length];
+                buffer.readBytes(bytes);
+                return bytes;
+            }
+            case TAG_STRING:
+                return this.readString(buffer, limit);
+            case TAG_LIST:
+                return this.readList(buffer, limit, depth);
+            case TAG_COMPOUND:
+                return this.readCompound(buffer, limit, depth);
+            case TAG_INT_ARRAY: {
+                int length = this.readLength(buffer);
+                checkReadable(buffer, length, limit);
+                int[] ints = new int[length];
+                for (int i = 0; i < length; i++) {
+                    ints[i] = this.readInt(buffer);
+                }
+                checkLimit(buffer, limit);
+                return ints;
+            }
+            case TAG_LONG_ARRAY: {
+                int length = this.readLength(buffer);
+                checkReadable(buffer, length, limit);
+                long[] longs = new long[length];
+                for (int i = 0; i < length; i++) {
+                    longs[i] = this.readLong(buffer);
+                }
+                checkLimit(buffer, limit);
+                return longs;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown NBT type " + type);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private NbtList<?> readList(ByteBuf buffer, int limit, int depth) {
+        checkReadable(buffer, 1, limit);
+        int elementType = buffer.readUnsignedByte();
+        int length = this.readLength(buffer);
+        if (elementType == TAG_END) {
+            return NbtList.EMPTY;
+        }
+        if (length <= 0) {
+            // Keeps the element type, so the list is written back unchanged
+            return new NbtList(NbtType.byId(elementType), Collections.emptyList());
+        }
+        // Every element takes at least one byte
+        checkReadable(buffer, length, limit);
+        List<Object> elements = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            elements.add(this.readValue(buffer, elementType, limit, depth + 1));
+        }
+        return new NbtList(NbtType.byId(elementType), elements);
+    }
+
+    private NbtMap readCompound(ByteBuf buffer, int limit, int depth) {
+        NbtMapBuilder builder = NbtMap.builder();
+        int type;
+        while (true) {
+            checkReadable(buffer, 1, limit);
+            if ((type = buffer.readUnsignedByte()) == TAG_END) {
+                break;
+            }
+            String name = this.readString(buffer, limit);
+            builder.put(name, this.readValue(buffer, type, limit, depth + 1));
+        }
+        return builder.build();
+    }
+
+    private String readString(ByteBuf buffer, int limit) {
+        int length = this.readStringLength(buffer);
+        checkReadable(buffer, length, limit);
+        if (length == 0) {
+            return "";
+        }
+        String value = buffer.toString(buffer.readerIndex(), length, StandardCharsets.UTF_8);
+        buffer.skipBytes(length);
+        return value;
+    }
+
+    private void skipValue(ByteBuf buffer, int type, int limit, int depth) {
+        checkArgument(depth <= MAX_DEPTH, "NBT exceeds maximum depth of %s", MAX_DEPTH);
+        switch (type) {
+            case TAG_BYTE:
+                skip(buffer, 1, limit);
+                break;
+            case TAG_SHORT:
+                skip(buffer, 2, limit);
+                break;
+            case TAG_INT:
+                this.skipInt(buffer);
+                checkLimit(buffer, limit);
+                break;
+            case TAG_LONG:
+                this.skipLong(buffer);
+                checkLimit(buffer, limit);
+                break;
+            case TAG_FLOAT:
+                skip(buffer, 4, limit);
+                break;
+            case TAG_DOUBLE:
+                skip(buffer, 8, limit);
+                break;
+            case TAG_BYTE_ARRAY:
+                skip(buffer, this.readLength(buffer), limit);
+                break;
+            case TAG_STRING:
+                this.skipString(buffer, limit);
+                break;
+            case TAG_LIST: {
+                checkReadable(buffer, 1, limit);
+                int elementType = buffer.readUnsignedByte();
+                int length = this.readLength(buffer);
+                if (elementType == TAG_END) {
+                    break;
+                }
+                for (int i = 0; i < length; i++) {
+                    this.skipValue(buffer, elementType, limit, depth + 1);
+                }
+                break;
+            }
+            case TAG_COMPOUND: {
+                int elementType;
+                while (true) {
+                    checkReadable(buffer, 1, limit);
+                    if ((elementType = buffer.readUnsignedByte()) == TAG_END) {
+                        break;
+                    }
+                    this.skipString(buffer, limit);
+                    this.skipValue(buffer, elementType, limit, depth + 1);
+                }
+                break;
+            }
+            case TAG_INT_ARRAY: {
+                int length = this.readLength(buffer);
+                checkReadable(buffer, length, limit);
+                for (int i = 0; i < length; i++) {
+                    this.skipInt(buffer);
+                }
+                checkLimit(buffer, limit);
+                break;
+            }
+            case TAG_LONG_ARRAY: {
+                int length = this.readLength(buffer);
+                checkReadable(buffer, length, limit);
+                for (int i = 0; i < length; i++) {
+                    this.skipLong(buffer);
+                }
+                checkLimit(buffer, limit);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown NBT type " + type);
+        }
+    }
+
+    private void skipString(ByteBuf buffer, int limit) {
+        skip(buffer, this.readStringLength(buffer), limit);
+    }
+
+    private void writeValue(ByteBuf buffer, int type, Object value, int depth) {
+        checkArgument(depth <= MAX_DEPTH, "NBT exceeds maximum depth of %s", MAX_DEPTH);
+        switch (type) {
+            case TAG_BYTE:
+                buffer.writeByte(value instanceof Boolean ? ((Boolean) value ? 1 : 0) : (Byte) value);
+                break;
+            case TAG_SHORT:
+                buffer.writeShortLE((Short) value);
+                break;
+            case TAG_INT:
+                this.writeInt(buffer, (Integer) value);
+                break;
+            case TAG_LONG:
+                this.writeLong(buffer, (Long) value);
+                break;
+            case TAG_FLOAT:
+                buffer.writeFloatLE((Float) value);
+                break;
+            case TAG_DOUBLE:
+                buffer.writeDoubleLE((Double) value);
+                break;
+            case TAG_BYTE_ARRAY: {
+                byte[] bytes = (byte[]) value;
+                this.writeLength(buffer, bytes.length);
+                buffer.writeBytes(bytes);
+                break;
+            }
+            case TAG_STRING:
+                this.writeString(buffer, (String) value);
+                break;
+            case TAG_LIST: {
+                NbtList<?> list = (NbtList<?>) value;
+                int elementType = list.getType().getId();
+                buffer.writeByte(elementType);
+                this.writeLength(buffer, list.size());
+                for (Object element : list) {
+                    this.writeValue(buffer, elementType, element, depth + 1);
+                }
+                break;
+            }
+            case TAG_COMPOUND:
+                for (Map.Entry<String, Object> entry : ((NbtMap) value).entrySet()) {
+                    int entryType = typeOf(entry.getValue());
+                    buffer.writeByte(entryType);
+                    this.writeString(buffer, entry.getKey());
+                    this.writeValue(buffer, entryType, entry.getValue(), depth + 1);
+                }
+                buffer.writeByte(TAG_END);
+                break;
+            case TAG_INT_ARRAY: {
+                int[] ints = (int[]) value;
+                this.writeLength(buffer, ints.length);
+                for (int i : ints) {
+                    this.writeInt(buffer, i);
+                }
+                break;
+            }
+            case TAG_LONG_ARRAY: {
+                long[] longs = (long[]) value;
+                this.writeLength(buffer, longs.length);
+                for (long l : longs) {
+                    this.writeLong(buffer, l);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown NBT type " + type);
+        }
+    }
+
+    private void writeString(ByteBuf buffer, String value) {
+        this.writeStringLength(buffer, ByteBufUtil.utf8Bytes(value));
+        ByteBufUtil.writeUtf8(buffer, value);
+    }
+
+    private static int typeOf(Object value) {
+        if (value instanceof NbtMap) {
+            return TAG_COMPOUND;
+        } else if (value instanceof String) {
+            return TAG_STRING;
+        } else if (value instanceof Integer) {
+            return TAG_INT;
+        } else if (value instanceof Byte || value instanceof Boolean) {
+            return TAG_BYTE;
+        } else if (value instanceof NbtList) {
+            return TAG_LIST;
+        } else if (value instanceof Short) {
+            return TAG_SHORT;
+        } else if (value instanceof Long) {
+            return TAG_LONG;
+        } else if (value instanceof Float) {
+            return TAG_FLOAT;
+        } else if (value instanceof Double) {
+            return TAG_DOUBLE;
+        } else if (value instanceof byte[]) {
+            return TAG_BYTE_ARRAY;
+        } else if (value instanceof int[]) {
+            return TAG_INT_ARRAY;
+        } else if (value instanceof long[]) {
+            return TAG_LONG_ARRAY;
+        }
+        throw new IllegalArgumentException("Unsupported NBT value " + (value == null ? null : value.getClass()));
+    }
+
+    private static int limit(ByteBuf buffer, long maxReadSize) {
+        if (maxReadSize <= 0) {
+            return buffer.writerIndex();
+        }
+        return (int) Math.min(buffer.writerIndex(), buffer.readerIndex() + maxReadSize);
+    }
+
+    private static void checkReadable(ByteBuf buffer, int length, int limit) {
+        checkArgument(length >= 0, "Negative NBT length %s", length);
+        checkArgument(length <= limit - buffer.readerIndex(),
+                "Tried to read %s NBT bytes but only %s are available", length, limit - buffer.readerIndex());
+    }
+
+    private static void checkLimit(ByteBuf buffer, int limit) {
+        checkArgument(buffer.readerIndex() <= limit, "NBT exceeds maximum read size");
+    }
+
+    private static void skip(ByteBuf buffer, int length, int limit) {
+        checkReadable(buffer, length, limit);
+        buffer.skipBytes(length);
+    }
+
+    /**
+     * Network encoding: ints, longs and lengths are zigzag VarInts and string lengths are unsigned VarInts.
+     */
+    private static final class Network extends ByteBufNbt {
+
+        @Override
+        protected int readInt(ByteBuf buffer) {
+            return VarInts.readInt(buffer);
+        }
+
+        @Override
+        protected long readLong(ByteBuf buffer) {
+            return VarInts.readLong(buffer);
+        }
+
+        @Override
+        protected int readLength(ByteBuf buffer) {
+            return VarInts.readInt(buffer);
+        }
+
+        @Override
+        protected int readStringLength(ByteBuf buffer) {
+            return VarInts.readUnsignedInt(buffer);
+        }
+
+        @Override
+        protected void skipInt(ByteBuf buffer) {
+            VarInts.readUnsignedInt(buffer);
+        }
+
+        @Override
+        protected void skipLong(ByteBuf buffer) {
+            VarInts.readUnsignedLong(buffer);
+        }
+
+        @Override
+        protected void writeInt(ByteBuf buffer, int value) {
+            VarInts.writeInt(buffer, value);
+        }
+
+        @Override
+        protected void writeLong(ByteBuf buffer, long value) {
+            VarInts.writeLong(buffer, value);
+        }
+
+        @Override
+        protected void writeLength(ByteBuf buffer, int length) {
+            VarInts.writeInt(buffer, length);
+        }
+
+        @Override
+        protected void writeStringLength(ByteBuf buffer, int length) {
+            VarInts.writeUnsignedInt(buffer, length);
+        }
+    }
+
+    /**
+     * Little endian encoding: fixed width ints and longs, and unsigned short string lengths.
+     */
+    private static final class LittleEndian extends ByteBufNbt {
+
+        @Override
+        protected int readInt(ByteBuf buffer) {
+            return buffer.readIntLE();
+        }
+
+        @Override
+        protected long readLong(ByteBuf buffer) {
+            return buffer.readLongLE();
+        }
+
+        @Override
+        protected int readLength(ByteBuf buffer) {
+            return buffer.readIntLE();
+        }
+
+        @Override
+        protected int readStringLength(ByteBuf buffer) {
+            return buffer.readUnsignedShortLE();
+        }
+
+        @Override
+        protected void skipInt(ByteBuf buffer) {
+            buffer.skipBytes(4);
+        }
+
+        @Override
+        protected void skipLong(ByteBuf buffer) {
+            buffer.skipBytes(8);
+        }
+
+        @Override
+        protected void writeInt(ByteBuf buffer, int value) {
+            buffer.writeIntLE(value);
+        }
+
+        @Override
+        protected void writeLong(ByteBuf buffer, long value) {
+            buffer.writeLongLE(value);
+        }
+
+        @Override
+        protected void writeLength(ByteBuf buffer, int length) {
+            buffer.writeIntLE(length);
+        }
+
+        @Override
+        protected void writeStringLength(ByteBuf buffer, int length) {
+            buffer.writeShortLE(length);
+        }
+    }
+}
@@ -33,9 +33,9 @@ public class PlayerListSerializer_v291 implements BedrockPacketSerializer<Player
                 SerializedSkin skin = entry.getSkin();
                 helper.writeString(buffer, skin.getSkinId());
                 skin.getSkinData().checkLegacySkinSize();
-                helper.writeByteArray(buffer, skin.getSkinData().getImage());
+                helper.writeByteBuf(buffer, skin.getSkinData().getImageBuffer());
                 skin.getCapeData().checkLegacyCapeSize();
-                helper.writeByteArray(buffer, skin.getCapeData().getImage());
+                helper.writeByteBuf(buffer, skin.getCapeData().getImageBuffer());
                 helper.writeString(buffer, skin.getGeometryName());
                 helper.writeString(buffer, skin.getGeometryData());
                 helper.writeString(buffer, entry.getXuid());
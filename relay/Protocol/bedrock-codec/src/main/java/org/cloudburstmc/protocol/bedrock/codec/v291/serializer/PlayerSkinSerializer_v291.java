@@ -21,9 +21,9 @@ public class PlayerSkinSerializer_v291 implements BedrockPacketSerializer<Player
         helper.writeString(buffer, packet.getNewSkinName());
         helper.writeString(buffer, packet.getOldSkinName());
         skin.getSkinData().checkLegacySkinSize();
-        helper.writeByteArray(buffer, skin.getSkinData().getImage());
+        helper.writeByteBuf(buffer, skin.getSkinData().getImageBuffer());
         skin.getCapeData().checkLegacyCapeSize();
-        helper.writeByteArray(buffer, skin.getCapeData().getImage());
+        helper.writeByteBuf(buffer, skin.getCapeData().getImageBuffer());
         helper.writeString(buffer, skin.getGeometryName());
         helper.writeString(buffer, skin.getGeometryData());
         buffer.writeBoolean(skin.isPremium());
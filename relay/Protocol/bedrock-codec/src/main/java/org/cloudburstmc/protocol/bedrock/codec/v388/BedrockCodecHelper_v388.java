@@ -20,6 +20,7 @@ import org.cloudburstmc.protocol.common.util.VarInts;
 import java.util.List;
 
 import static java.util.Objects.requireNonNull;
+import static org.cloudburstmc.protocol.common.util.Preconditions.checkArgument;
 
 public class BedrockCodecHelper_v388 extends BedrockCodecHelper_v361 {
 
@@ -94,8 +95,11 @@ public class BedrockCodecHelper_v388 extends BedrockCodecHelper_v361 {
     public ImageData readImage(ByteBuf buffer, int maxSize) {
         int width = buffer.readIntLE();
         int height = buffer.readIntLE();
-        byte[] image = readByteArray(buffer, maxSize);
-        return ImageData.of(width, height, image);
+        int length = VarInts.readUnsignedInt(buffer);
+        checkArgument(buffer.isReadable(length),
+                "Tried to read %s bytes but only has %s readable", length, buffer.readableBytes());
+        checkArgument(maxSize <= 0 || length <= maxSize, "Tried to read %s bytes but maximum is %s", length, maxSize);
+        return this.imageDataCache.read(buffer, width, height, length);
     }
 
     @Override
@@ -104,7 +108,7 @@ public class BedrockCodecHelper_v388 extends BedrockCodecHelper_v361 {
 
         buffer.writeIntLE(image.getWidth());
         buffer.writeIntLE(image.getHeight());
-        writeByteArray(buffer, image.getImage());
+        writeByteBuf(buffer, image.getImageBuffer());
     }
 
     @Override
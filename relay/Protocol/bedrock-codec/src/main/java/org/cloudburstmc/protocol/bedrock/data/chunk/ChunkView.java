@@ -0,0 +1,137 @@
+package org.cloudburstmc.protocol.bedrock.data.chunk;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AbstractReferenceCounted;
+import org.cloudburstmc.protocol.bedrock.packet.LevelChunkPacket;
+
+import static org.cloudburstmc.protocol.common.util.Preconditions.checkArgument;
+
+/**
+ * Read-only view of the sub-chunks sent in a {@link LevelChunkPacket}.
+ * <p>
+ * The view retains the packet data and indexes it the first time a block is looked up. Each sub-chunk is exposed as
+ * a {@link SubChunkView}, so block lookups never expand the chunk into arrays. Views are not thread-safe.
+ */
+public final class ChunkView extends AbstractReferenceCounted {
+
+    private static final SubChunkView[] EMPTY = new SubChunkView[0];
+
+    private final int chunkX;
+    private final int chunkZ;
+    private final int subChunkCount;
+    private final ByteBuf data;
+    private SubChunkView[] subChunks;
+
+    private ChunkView(int chunkX, int chunkZ, int subChunkCount, ByteBuf data) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.subChunkCount = subChunkCount;
+        this.data = data;
+    }
+
+    /**
+     * Creates a view of the sub-chunks carried by the packet. Packets which use the blob cache or request the
+     * sub-chunks separately carry no sub-chunks, in which case the view is empty.
+     *
+     * @return view which must be released by the caller
+     */
+    public static ChunkView of(LevelChunkPacket packet) {
+        int subChunkCount = packet.isCachingEnabled() || packet.isRequestSubChunks() ? 0 : packet.getSubChunksLength();
+        return new ChunkView(packet.getChunkX(), packet.getChunkZ(), subChunkCount, packet.getData().retainedDuplicate());
+    }
+
+    public int getChunkX() {
+        return this.chunkX;
+    }
+
+    public int getChunkZ() {
+        return this.chunkZ;
+    }
+
+    public int getSubChunkCount() {
+        return this.subChunkCount;
+    }
+
+    /**
+     * @param index position of the sub-chunk in the packet
+     */
+    public SubChunkView getSubChunk(int index) {
+        SubChunkView[] subChunks = this.index();
+        checkArgument(index >= 0 && index < subChunks.length, "Sub-chunk index %s out of bounds", index);
+        return subChunks[index];
+    }
+
+    /**
+     * @param subChunkY sub-chunk Y index, which is negative below Y 0
+     * @return sub-chunk, or null if it was not sent
+     */
+    public SubChunkView getSubChunkAt(int subChunkY) {
+        for (SubChunkView subChunk : this.index()) {
+            if (subChunk.getY() == subChunkY) {
+                return subChunk;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the block runtime ID at the given position.
+     *
+     * @param x     x coordinate within the chunk, 0-15
+     * @param y     world y coordinate
+     * @param z     z coordinate within the chunk, 0-15
+     * @param layer block storage layer, 0 for blocks and 1 for liquids
+     * @return runtime ID, or -1 if the position is in a sub-chunk that was not sent or has no storage for the layer
+     */
+    public int getBlock(int x, int y, int z, int layer) {
+        SubChunkView subChunk = this.getSubChunkAt(y >> 4);
+        return subChunk == null ? -1 : subChunk.getBlock(x, y, z, layer);
+    }
+
+    private SubChunkView[] index() {
+        if (this.refCnt() <= 0) {
+            throw new IllegalStateException("Chunk view has been released");
+        }
+        SubChunkView[] subChunks = this.subChunks;
+        if (subChunks != null) {
+            return subChunks;
+        }
+        if (this.subChunkCount <= 0) {
+            return this.subChunks = EMPTY;
+        }
+
+        subChunks = new SubChunkView[this.subChunkCount];
+        ByteBuf buffer = this.data.duplicate();
+        try {
+            for (int i = 0; i < subChunks.length; i++) {
+                // Sub-chunks without an embedded Y index start at the bottom of the old 0-255 world
+                subChunks[i] = SubChunkView.read(buffer, i);
+            }
+        } catch (RuntimeException e) {
+            for (SubChunkView subChunk : subChunks) {
+                if (subChunk != null) {
+                    subChunk.release();
+                }
+            }
+            throw e;
+        }
+        return this.subChunks = subChunks;
+    }
+
+    @Override
+    public ChunkView touch(Object hint) {
+        this.data.touch(hint);
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        if (this.subChunks != null) {
+            for (SubChunkView subChunk : this.subChunks) {
+                subChunk.release();
+            }
+            this.subChunks = null;
+        }
+        this.data.release();
+    }
+}
@@ -0,0 +1,196 @@
+package org.cloudburstmc.protocol.bedrock.data.chunk;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AbstractReferenceCounted;
+import org.cloudburstmc.protocol.bedrock.data.SubChunkData;
+import org.cloudburstmc.protocol.common.util.VarInts;
+
+import static org.cloudburstmc.protocol.common.util.Preconditions.checkArgument;
+
+/**
+ * Read-only view of a network encoded sub-chunk.
+ * <p>
+ * Only the palettes are decoded. Block lookups read the bit-packed words straight from the retained buffer, so a
+ * sub-chunk is never expanded to 4096 entries. Persistent (NBT) palettes and pre-1.2.13 sub-chunks are not supported.
+ */
+public final class SubChunkView extends AbstractReferenceCounted {
+    public static final int UNKNOWN_Y = Integer.MIN_VALUE;
+
+    private static final int BLOCKS = 4096;
+
+    private final ByteBuf buffer;
+    private final int y;
+    private final int[] bitsPerBlock;
+    private final int[] wordOffsets;
+    private final int[][] palettes;
+
+    private SubChunkView(ByteBuf buffer, int y, int[] bitsPerBlock, int[] wordOffsets, int[][] palettes) {
+        this.buffer = buffer;
+        this.y = y;
+        this.bitsPerBlock = bitsPerBlock;
+        this.wordOffsets = wordOffsets;
+        this.palettes = palettes;
+    }
+
+    /**
+     * Creates a view of the block storages in the sub-chunk data.
+     *
+     * @return view which must be released by the caller
+     */
+    public static SubChunkView of(SubChunkData data) {
+        return read(data.getData().duplicate(), data.getPosition() == null ? UNKNOWN_Y : data.getPosition().getY());
+    }
+
+    /**
+     * Indexes the sub-chunk at the reader index of the buffer and advances the reader index past its block
+     * storages. Anything following the block storages, such as block entities, is left unread.
+     *
+     * @param buffer   buffer holding the sub-chunk
+     * @param defaultY sub-chunk Y index to use if the encoding does not carry one
+     * @return view holding a retained slice of the buffer, which must be released by the caller
+     */
+    public static SubChunkView read(ByteBuf buffer, int defaultY) {
+        int start = buffer.readerIndex();
+        int version = buffer.readUnsignedByte();
+        int storageCount;
+        int y = defaultY;
+        switch (version) {
+            case 1:
+                storageCount = 1;
+                break;
+            case 8:
+                storageCount = buffer.readUnsignedByte();
+                break;
+            case 9:
+                storageCount = buffer.readUnsignedByte();
+                y = buffer.readByte();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported sub-chunk version " + version);
+        }
+
+        int[] bitsPerBlock = new int[storageCount];
+        int[] wordOffsets = new int[storageCount];
+        int[][] palettes = new int[storageCount][];
+        for (int i = 0; i < storageCount; i++) {
+            int header = buffer.readUnsignedByte();
+            checkArgument((header & 1) == 1, "Persistent block storage is not supported");
+            int bits = header >> 1;
+
+            if (bits == 0) {
+                // Single block storage: no words and the palette size is implied
+                wordOffsets[i] = -1;
+                palettes[i] = new int[]{VarInts.readInt(buffer)};
+                continue;
+            }
+
+            checkArgument(isValidBitsPerBlock(bits), "Invalid bits per block %s", bits);
+            int blocksPerWord = 32 / bits;
+            int wordCount = (BLOCKS + blocksPerWord - 1) / blocksPerWord;
+            checkArgument(buffer.isReadable(wordCount * 4), "Block storage is truncated");
+            bitsPerBlock[i] = bits;
+            wordOffsets[i] = buffer.readerIndex() - start;
+            buffer.skipBytes(wordCount * 4);
+
+            int paletteSize = VarInts.readInt(buffer);
+            checkArgument(paletteSize > 0 && paletteSize <= buffer.readableBytes(), "Invalid palette size %s", paletteSize);
+            int[] palette = new int[paletteSize];
+            for (int j = 0; j < paletteSize; j++) {
+                palette[j] = VarInts.readInt(buffer);
+            }
+            palettes[i] = palette;
+        }
+
+        ByteBuf slice = buffer.retainedSlice(start, buffer.readerIndex() - start);
+        return new SubChunkView(slice, y, bitsPerBlock, wordOffsets, palettes);
+    }
+
+    private static boolean isValidBitsPerBlock(int bits) {
+        switch (bits) {
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+            case 6:
+            case 8:
+            case 16:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return sub-chunk Y index, or {@link #UNKNOWN_Y} if it is not known
+     */
+    public int getY() {
+        return this.y;
+    }
+
+    public int getStorageCount() {
+        return this.palettes.length;
+    }
+
+    /**
+     * Looks up the block runtime ID at the given position.
+     *
+     * @param x     x coordinate within the sub-chunk, 0-15
+     * @param y     y coordinate within the sub-chunk, 0-15
+     * @param z     z coordinate within the sub-chunk, 0-15
+     * @param layer block storage layer, 0 for blocks and 1 for liquids
+     * @return runtime ID, or -1 if the sub-chunk has no storage for the layer
+     */
+    public int getBlock(int x, int y, int z, int layer) {
+        if (layer < 0 || layer >= this.palettes.length) {
+            return -1;
+        }
+        int[] palette = this.palettes[layer];
+        int bits = this.bitsPerBlock[layer];
+        if (bits == 0) {
+            return palette[0];
+        }
+
+        int index = ((x & 0xf) << 8) | ((z & 0xf) << 4) | (y & 0xf);
+        int blocksPerWord = 32 / bits;
+        int word = this.buffer.getIntLE(this.wordOffsets[layer] + (index / blocksPerWord << 2));
+        int paletteIndex = (word >>> (index % blocksPerWord * bits)) & ((1 << bits) - 1);
+        checkArgument(paletteIndex < palette.length, "Palette index %s out of bounds", paletteIndex);
+        return palette[paletteIndex];
+    }
+
+    public int getPaletteSize(int layer) {
+        return layer < 0 || layer >= this.palettes.length ? 0 : this.palettes[layer].length;
+    }
+
+    public int getPaletteEntry(int layer, int index) {
+        return this.palettes[layer][index];
+    }
+
+    /**
+     * Checks the palette of a layer for a runtime ID without looking at any blocks. The palette may hold entries
+     * which are no longer used by any block.
+     */
+    public boolean paletteContains(int layer, int runtimeId) {
+        if (layer < 0 || layer >= this.palettes.length) {
+            return false;
+        }
+        for (int entry : this.palettes[layer]) {
+            if (entry == runtimeId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public SubChunkView touch(Object hint) {
+        this.buffer.touch(hint);
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        this.buffer.release();
+    }
+}
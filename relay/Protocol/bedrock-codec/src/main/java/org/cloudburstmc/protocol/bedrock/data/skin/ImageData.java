@@ -1,5 +1,7 @@
 package org.cloudburstmc.protocol.bedrock.data.skin;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import lombok.*;
 
 import java.awt.*;
@@ -25,6 +27,7 @@ public class ImageData {
 
     private final int width;
     private final int height;
+    @Getter(AccessLevel.NONE)
     private final byte[] image;
 
     public static ImageData of(int width, int height, byte[] image) {
@@ -52,6 +55,26 @@ public class ImageData {
         }
     }
 
+    /**
+     * Image arrays may be shared between instances, see {@link ImageDataCache}, so only a copy is handed out.
+     *
+     * @return copy of the image bytes
+     */
+    public byte[] getImage() {
+        return image.clone();
+    }
+
+    /**
+     * @return read-only view of the image bytes, for writing the image without copying it
+     */
+    public ByteBuf getImageBuffer() {
+        return Unpooled.wrappedBuffer(image).asReadOnly();
+    }
+
+    public int getImageLength() {
+        return image.length;
+    }
+
     public void checkLegacySkinSize() {
         switch (image.length) {
             case SINGLE_SKIN_SIZE:
@@ -0,0 +1,149 @@
+package org.cloudburstmc.protocol.bedrock.data.skin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Content addressed cache of decoded {@link ImageData}.
+ * <p>
+ * The same skins, capes and animation frames are sent again in every PlayerList, PlayerSkin and AddPlayer packet, and
+ * many players share them. Images are hashed and compared while still in the network buffer, so an image that is
+ * already cached is returned without allocating and identical images share one array. {@link ImageData} only hands
+ * out copies or read-only views of that array.
+ * <p>
+ * The cache holds at most {@code maxBytes} of image data and evicts the least recently used images first. It is
+ * thread-safe so a single instance can be shared by every session.
+ */
+public final class ImageDataCache {
+    public static final ImageDataCache SHARED = new ImageDataCache(Long.getLong("cloudburst.imageDataCacheBytes", 16L * 1024 * 1024));
+    public static final ImageDataCache DISABLED = new ImageDataCache(0);
+
+    /**
+     * Smaller images are cheaper to copy than to look up.
+     */
+    private static final int MIN_CACHED_LENGTH = 1024;
+
+    private final long maxBytes;
+    /**
+     * Images by hash, least recently used first. Images with the same hash are chained.
+     */
+    private final LinkedHashMap<Integer, Entry> entries;
+    private long bytes;
+
+    public ImageDataCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.entries = maxBytes > 0 ? new LinkedHashMap<>(64, 0.75f, true) : null;
+    }
+
+    /**
+     * Reads an image of the given length from the buffer, returning the cached instance if an identical image has
+     * been read before.
+     *
+     * @param buffer buffer to read the image from, its reader index is advanced past the image
+     * @param width  width of the image
+     * @param height height of the image
+     * @param length number of image bytes in the buffer
+     * @return image data
+     */
+    public ImageData read(ByteBuf buffer, int width, int height, int length) {
+        if (this.entries == null || length < MIN_CACHED_LENGTH || length > this.maxBytes) {
+            return ImageData.of(width, height, readBytes(buffer, length));
+        }
+
+        int index = buffer.readerIndex();
+        int hash = hash(buffer, index, length);
+        Entry head;
+        synchronized (this) {
+            head = this.entries.get(hash);
+        }
+        // Chains are never modified once published, so they are compared outside the lock
+        for (Entry entry = head; entry != null; entry = entry.next) {
+            if (entry.matches(width, height, buffer, index, length)) {
+                buffer.skipBytes(length);
+                return entry.image;
+            }
+        }
+
+        byte[] bytes = readBytes(buffer, length);
+        ImageData image = ImageData.of(width, height, bytes);
+        synchronized (this) {
+            Entry entry = new Entry(image, Unpooled.wrappedBuffer(bytes), this.entries.get(hash));
+            this.entries.put(hash, entry);
+            this.bytes += weigh(entry);
+            this.evict();
+        }
+        return image;
+    }
+
+    /**
+     * @return number of image bytes held by the cache
+     */
+    public synchronized long weight() {
+        return this.bytes;
+    }
+
+    public synchronized void clear() {
+        if (this.entries == null) {
+            return;
+        }
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while (this.bytes > this.maxBytes && iterator.hasNext()) {
+            for (Entry entry = iterator.next(); entry != null; entry = entry.next) {
+                this.bytes -= weigh(entry);
+            }
+            iterator.remove();
+        }
+    }
+
+    private static int weigh(Entry entry) {
+        return entry.wrapped.capacity();
+    }
+
+    private static byte[] readBytes(ByteBuf buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.readBytes(bytes);
+        return bytes;
+    }
+
+    private static int hash(ByteBuf buffer, int index, int length) {
+        int hash = length;
+        int end = index + (length & ~7);
+        for (; index < end; index += 8) {
+            long value = buffer.getLongLE(index);
+            hash = 31 * hash + (int) (value ^ (value >>> 32));
+        }
+        for (end += length & 7; index < end; index++) {
+            hash = 31 * hash + buffer.getByte(index);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        private final ImageData image;
+        /**
+         * Wraps the image array for comparisons. Only absolute getters are used, so it can be shared across threads.
+         */
+        private final ByteBuf wrapped;
+        private final Entry next;
+
+        private Entry(ImageData image, ByteBuf wrapped, Entry next) {
+            this.image = image;
+            this.wrapped = wrapped;
+            this.next = next;
+        }
+
+        private boolean matches(int width, int height, ByteBuf buffer, int index, int length) {
+            return this.image.getWidth() == width && this.image.getHeight() == height &&
+                    this.wrapped.capacity() == length && ByteBufUtil.equals(buffer, index, this.wrapped, 0, length);
+        }
+    }
+}
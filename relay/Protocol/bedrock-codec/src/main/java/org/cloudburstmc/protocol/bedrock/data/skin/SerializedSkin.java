@@ -127,7 +127,7 @@ public class SerializedSkin {
     private boolean isValidSkin() {
         return skinId != null && !skinId.trim().isEmpty() &&
                 skinData != null && skinData.getWidth() >= 64 && skinData.getHeight() >= 32 &&
-                skinData.getImage().length >= SINGLE_SKIN_SIZE;
+                skinData.getImageLength() >= SINGLE_SKIN_SIZE;
     }
 
     public String getSkinResourcePatch() {
@@ -0,0 +1,99 @@
+package org.cloudburstmc.protocol.bedrock.codec;
+
+import org.cloudburstmc.protocol.bedrock.codec.v291.Bedrock_v291;
+import org.cloudburstmc.protocol.bedrock.codec.v313.Bedrock_v313;
+import org.cloudburstmc.protocol.bedrock.codec.v332.Bedrock_v332;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BedrockCodecRegistryTests {
+
+    // Out of order on purpose, the registry sorts them
+    private static final BedrockCodecRegistry REGISTRY = BedrockCodecRegistry.of(
+            Bedrock_v332.CODEC,
+            Bedrock_v291.CODEC,
+            Bedrock_v313.CODEC
+    );
+
+    @Test
+    public void testVersionBelowOldest() {
+        assertNull(REGISTRY.getClosestCodec(290));
+        assertNull(REGISTRY.getClosestCodec(0));
+        assertNull(REGISTRY.getCodec(290));
+    }
+
+    @Test
+    public void testExactVersion() {
+        assertSame(Bedrock_v291.CODEC, REGISTRY.getClosestCodec(291));
+        assertSame(Bedrock_v313.CODEC, REGISTRY.getClosestCodec(313));
+        assertSame(Bedrock_v332.CODEC, REGISTRY.getClosestCodec(332));
+        assertSame(Bedrock_v313.CODEC, REGISTRY.getCodec(313));
+    }
+
+    @Test
+    public void testVersionBetweenCodecs() {
+        assertSame(Bedrock_v291.CODEC, REGISTRY.getClosestCodec(292));
+        assertSame(Bedrock_v291.CODEC, REGISTRY.getClosestCodec(312));
+        assertSame(Bedrock_v313.CODEC, REGISTRY.getClosestCodec(331));
+        assertNull(REGISTRY.getCodec(312));
+    }
+
+    @Test
+    public void testVersionNewerThanLatest() {
+        assertSame(Bedrock_v332.CODEC, REGISTRY.getClosestCodec(333));
+        assertSame(Bedrock_v332.CODEC, REGISTRY.getClosestCodec(Integer.MAX_VALUE));
+        assertSame(Bedrock_v332.CODEC, REGISTRY.getLatestCodec());
+        assertNull(REGISTRY.getCodec(333));
+    }
+
+    @Test
+    public void testSingleCodec() {
+        BedrockCodecRegistry registry = BedrockCodecRegistry.of(Bedrock_v313.CODEC);
+        assertNull(registry.getClosestCodec(312));
+        assertSame(Bedrock_v313.CODEC, registry.getClosestCodec(313));
+        assertSame(Bedrock_v313.CODEC, registry.getClosestCodec(314));
+    }
+
+    @Test
+    public void testCodecsAreSorted() {
+        assertEquals(Arrays.asList(Bedrock_v291.CODEC, Bedrock_v313.CODEC, Bedrock_v332.CODEC), REGISTRY.getCodecs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateVersion() {
+        BedrockCodec copy = Bedrock_v313.CODEC.toBuilder().build();
+        BedrockCodecRegistry.of(Bedrock_v291.CODEC, Bedrock_v313.CODEC, copy);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoCodecs() {
+        BedrockCodecRegistry.of();
+    }
+
+    @Test
+    public void testMap() {
+        BedrockCodecRegistry mapped = REGISTRY.map(codec -> codec == Bedrock_v313.CODEC ? codec.toBuilder().build() : codec);
+
+        assertSame(Bedrock_v291.CODEC, mapped.getClosestCodec(312));
+        assertSame(Bedrock_v332.CODEC, mapped.getClosestCodec(333));
+        BedrockCodec codec = mapped.getClosestCodec(320);
+        assertNotSame(Bedrock_v313.CODEC, codec);
+        assertEquals(313, codec.getProtocolVersion());
+
+        // The original registry is left as it was
+        assertSame(Bedrock_v313.CODEC, REGISTRY.getClosestCodec(320));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMapToDuplicateVersion() {
+        REGISTRY.map(codec -> codec == Bedrock_v332.CODEC ? codec.toBuilder().protocolVersion(313).build() : codec);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMapToOtherVersion() {
+        REGISTRY.map(codec -> codec == Bedrock_v332.CODEC ? codec.toBuilder().protocolVersion(340).build() : codec);
+    }
+}
@@ -0,0 +1,165 @@
+package org.cloudburstmc.protocol.bedrock.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.cloudburstmc.nbt.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ByteBufNbtTests {
+
+    private static final NbtMap TAG = NbtMap.builder()
+            .putByte("byte", (byte) -12)
+            .putShort("short", (short) -1234)
+            .putInt("int", 123456789)
+            .putInt("negativeInt", -123456789)
+            .putLong("long", 1234567890123456789L)
+            .putLong("negativeLong", Long.MIN_VALUE)
+            .putFloat("float", 1.5f)
+            .putDouble("double", -2.25)
+            .putByteArray("byteArray", new byte[]{1, -2, 3, -4})
+            .putString("string", "minecraft:stone")
+            .putString("unicode", "é世😀")
+            .putString("emptyString", "")
+            .putIntArray("intArray", new int[]{0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE})
+            .putLongArray("longArray", new long[]{0, -1, Long.MAX_VALUE, Long.MIN_VALUE})
+            .putList("byteList", NbtType.BYTE, (byte) 1, (byte) 2)
+            .putList("shortList", NbtType.SHORT, (short) 1, (short) -2)
+            .putList("intList", NbtType.INT, 1, -2, 3)
+            .putList("longList", NbtType.LONG, 1L, -2L)
+            .putList("floatList", NbtType.FLOAT, 1f, -2f)
+            .putList("doubleList", NbtType.DOUBLE, 1d, -2d)
+            .putList("byteArrayList", NbtType.BYTE_ARRAY, new byte[]{1}, new byte[0])
+            .putList("stringList", NbtType.STRING, "a", "b")
+            .putList("listList", NbtType.LIST,
+                    new NbtList<>(NbtType.INT, 1, 2),
+                    new NbtList<>(NbtType.STRING, Collections.emptyList()))
+            .putList("compoundList", NbtType.COMPOUND,
+                    NbtMap.builder().putInt("a", 1).build(),
+                    NbtMap.EMPTY)
+            .putList("intArrayList", NbtType.INT_ARRAY, new int[]{1, 2}, new int[0])
+            .putList("longArrayList", NbtType.LONG_ARRAY, new long[]{1, 2}, new long[0])
+            .putList("emptyIntList", NbtType.INT, Collections.emptyList())
+            .putList("emptyCompoundList", NbtType.COMPOUND, Collections.emptyList())
+            .putList("endList", NbtType.END, Collections.emptyList())
+            .putCompound("compound", NbtMap.builder()
+                    .putCompound("nested", NbtMap.builder().putBoolean("flag", true).build())
+                    .putCompound("empty", NbtMap.EMPTY)
+                    .build())
+            .build();
+
+    @Test
+    public void testNetworkMatchesNbtUtils() throws IOException {
+        ByteBuf expected = writeNbtUtils(TAG, true);
+        ByteBuf actual = Unpooled.buffer();
+        ByteBufNbt.NETWORK.writeTag(actual, TAG);
+
+        assertTrue(ByteBufUtil.equals(expected, actual));
+        assertRoundTrip(ByteBufNbt.NETWORK, expected, true);
+    }
+
+    @Test
+    public void testLittleEndianMatchesNbtUtils() throws IOException {
+        ByteBuf expected = writeNbtUtils(TAG, false);
+        ByteBuf actual = Unpooled.buffer();
+        ByteBufNbt.LITTLE_ENDIAN.writeTag(actual, TAG);
+
+        assertTrue(ByteBufUtil.equals(expected, actual));
+        assertRoundTrip(ByteBufNbt.LITTLE_ENDIAN, expected, false);
+    }
+
+    @Test
+    public void testEmptyListKeepsElementType() throws IOException {
+        for (boolean network : new boolean[]{true, false}) {
+            ByteBufNbt nbt = network ? ByteBufNbt.NETWORK : ByteBufNbt.LITTLE_ENDIAN;
+            ByteBuf buffer = writeNbtUtils(TAG, network);
+            NbtMap tag = (NbtMap) nbt.readTag(buffer, 0);
+
+            assertEquals(NbtType.INT, tag.getList("emptyIntList", NbtType.INT).getType());
+            assertEquals(NbtType.COMPOUND, tag.getList("emptyCompoundList", NbtType.COMPOUND).getType());
+            assertSame(NbtList.EMPTY, tag.get("endList"));
+        }
+    }
+
+    @Test
+    public void testSkipAndSliceSpanTheTag() throws IOException {
+        for (boolean network : new boolean[]{true, false}) {
+            ByteBufNbt nbt = network ? ByteBufNbt.NETWORK : ByteBufNbt.LITTLE_ENDIAN;
+            ByteBuf buffer = writeNbtUtils(TAG, network);
+            int length = buffer.readableBytes();
+            buffer.writeByte(42);
+
+            ByteBuf skipped = buffer.duplicate();
+            nbt.skipTag(skipped, 0);
+            assertEquals(length, skipped.readerIndex());
+
+            ByteBuf slice = nbt.readTagSlice(buffer, 0);
+            try {
+                assertEquals(length, slice.readableBytes());
+                assertEquals(42, buffer.readByte());
+            } finally {
+                slice.release();
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedTagIsRejected() throws IOException {
+        for (boolean network : new boolean[]{true, false}) {
+            ByteBufNbt nbt = network ? ByteBufNbt.NETWORK : ByteBufNbt.LITTLE_ENDIAN;
+            ByteBuf buffer = writeNbtUtils(TAG, network);
+            ByteBuf truncated = buffer.slice(0, buffer.readableBytes() - 1);
+
+            try {
+                nbt.readTag(truncated.duplicate(), 0);
+                fail("Truncated tag was read");
+            } catch (IllegalArgumentException | IndexOutOfBoundsException expected) {
+            }
+            try {
+                nbt.readTag(buffer.duplicate(), buffer.readableBytes() - 1);
+                fail("Tag exceeding the maximum read size was read");
+            } catch (IllegalArgumentException | IndexOutOfBoundsException expected) {
+            }
+        }
+    }
+
+    private static void assertRoundTrip(ByteBufNbt nbt, ByteBuf encoded, boolean network) throws IOException {
+        // Encodings are compared rather than values, as equality does not cover the element types of empty lists
+        Object read = nbt.readTag(encoded.duplicate(), 0);
+        assertTrue(ByteBufUtil.equals(encoded, writeNbtUtils(read, network)));
+
+        ByteBuf rewritten = Unpooled.buffer();
+        nbt.writeTag(rewritten, readNbtUtils(encoded.duplicate(), network));
+        assertTrue(ByteBufUtil.equals(encoded, rewritten));
+
+        NbtMap tag = (NbtMap) read;
+        assertEquals("é世😀", tag.getString("unicode"));
+        assertEquals(Long.MIN_VALUE, tag.getLong("negativeLong"));
+        assertArrayEquals(TAG.getByteArray("byteArray"), tag.getByteArray("byteArray"));
+        assertArrayEquals(TAG.getIntArray("intArray"), tag.getIntArray("intArray"));
+        assertArrayEquals(TAG.getLongArray("longArray"), tag.getLongArray("longArray"));
+    }
+
+    private static ByteBuf writeNbtUtils(Object tag, boolean network) throws IOException {
+        ByteBuf buffer = Unpooled.buffer();
+        try (NBTOutputStream stream = network ? NbtUtils.createNetworkWriter(new ByteBufOutputStream(buffer)) :
+                NbtUtils.createWriterLE(new ByteBufOutputStream(buffer))) {
+            stream.writeTag(tag);
+        }
+        return buffer;
+    }
+
+    private static Object readNbtUtils(ByteBuf buffer, boolean network) throws IOException {
+        try (NBTInputStream stream = network ? NbtUtils.createNetworkReader(new ByteBufInputStream(buffer)) :
+                NbtUtils.createReaderLE(new ByteBufInputStream(buffer))) {
+            return stream.readTag();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.cloudburstmc.protocol.bedrock.data.chunk;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.cloudburstmc.protocol.bedrock.packet.LevelChunkPacket;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChunkViewTests {
+
+    @Test
+    public void testSubChunksAreIndexed() {
+        ByteBuf data = Unpooled.buffer();
+        // Without an embedded Y index the position in the packet is used
+        data.writeByte(8);
+        data.writeByte(1);
+        int[] first = SubChunkViewTests.writeStorage(data, 4, 16);
+        data.writeByte(9);
+        data.writeByte(2);
+        data.writeByte(-1);
+        int[] second = SubChunkViewTests.writeStorage(data, 3, 8);
+        int[] liquids = SubChunkViewTests.writeStorage(data, 1, 2);
+        // Biomes and block entities follow the sub-chunks
+        data.writeZero(32);
+
+        LevelChunkPacket packet = packet(data, 2);
+        ChunkView view = ChunkView.of(packet);
+        try {
+            assertEquals(4, view.getChunkX());
+            assertEquals(-7, view.getChunkZ());
+            assertEquals(2, view.getSubChunkCount());
+            assertEquals(0, view.getSubChunk(0).getY());
+            assertEquals(-1, view.getSubChunk(1).getY());
+            assertSame(view.getSubChunk(1), view.getSubChunkAt(-1));
+            assertNull(view.getSubChunkAt(1));
+
+            assertEquals(first[(1 << 8) | (2 << 4) | 3], view.getBlock(1, 3, 2, 0));
+            assertEquals(second[(1 << 8) | (2 << 4) | 3], view.getBlock(1, -13, 2, 0));
+            assertEquals(liquids[(15 << 8) | (15 << 4) | 15], view.getBlock(15, -1, 15, 1));
+            assertEquals(-1, view.getBlock(0, 16, 0, 0));
+            assertEquals(-1, view.getBlock(0, 0, 0, 1));
+            assertEquals(0, data.readerIndex());
+        } finally {
+            view.release();
+        }
+        assertEquals(1, data.refCnt());
+        packet.release();
+    }
+
+    @Test
+    public void testCachedChunkIsEmpty() {
+        ByteBuf data = Unpooled.buffer();
+        data.writeZero(16);
+        LevelChunkPacket packet = packet(data, 4);
+        packet.setCachingEnabled(true);
+
+        ChunkView view = ChunkView.of(packet);
+        try {
+            assertEquals(0, view.getSubChunkCount());
+            assertNull(view.getSubChunkAt(0));
+            assertEquals(-1, view.getBlock(0, 0, 0, 0));
+        } finally {
+            view.release();
+        }
+        packet.release();
+    }
+
+    @Test
+    public void testTruncatedChunkIsRejected() {
+        ByteBuf data = Unpooled.buffer();
+        data.writeByte(8);
+        data.writeByte(1);
+        SubChunkViewTests.writeStorage(data, 2, 4);
+        // Claims a second sub-chunk that is not there
+        LevelChunkPacket packet = packet(data, 2);
+
+        ChunkView view = ChunkView.of(packet);
+        try {
+            view.getSubChunk(0);
+            fail("Truncated chunk was indexed");
+        } catch (IllegalArgumentException | IndexOutOfBoundsException expected) {
+        } finally {
+            view.release();
+        }
+        // The first sub-chunk was released again when indexing failed
+        assertEquals(1, data.refCnt());
+        packet.release();
+    }
+
+    @Test
+    public void testReleasedViewIsRejected() {
+        LevelChunkPacket packet = packet(Unpooled.buffer(), 0);
+        ChunkView view = ChunkView.of(packet);
+        view.release();
+
+        try {
+            view.getBlock(0, 0, 0, 0);
+            fail("Released view was read");
+        } catch (IllegalStateException expected) {
+        }
+        packet.release();
+    }
+
+    private static LevelChunkPacket packet(ByteBuf data, int subChunks) {
+        LevelChunkPacket packet = new LevelChunkPacket();
+        packet.setChunkX(4);
+        packet.setChunkZ(-7);
+        packet.setSubChunksLength(subChunks);
+        packet.setData(data);
+        return packet;
+    }
+}
@@ -0,0 +1,222 @@
+package org.cloudburstmc.protocol.bedrock.data.chunk;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.cloudburstmc.math.vector.Vector3i;
+import org.cloudburstmc.protocol.bedrock.data.SubChunkData;
+import org.cloudburstmc.protocol.common.util.VarInts;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SubChunkViewTests {
+
+    @Test
+    public void testVersion1() {
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(1);
+        int[] blocks = writeStorage(buffer, 4, 16);
+
+        SubChunkView view = SubChunkView.read(buffer, 3);
+        try {
+            assertEquals(3, view.getY());
+            assertEquals(1, view.getStorageCount());
+            assertBlocks(view, 0, blocks);
+            assertFalse(buffer.isReadable());
+        } finally {
+            view.release();
+        }
+    }
+
+    @Test
+    public void testVersion8WithLiquidLayer() {
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(8);
+        buffer.writeByte(2);
+        int[] blocks = writeStorage(buffer, 8, 200);
+        int[] liquids = writeStorage(buffer, 1, 2);
+
+        SubChunkView view = SubChunkView.read(buffer, 5);
+        try {
+            assertEquals(5, view.getY());
+            assertEquals(2, view.getStorageCount());
+            assertBlocks(view, 0, blocks);
+            assertBlocks(view, 1, liquids);
+            assertEquals(-1, view.getBlock(0, 0, 0, 2));
+        } finally {
+            view.release();
+        }
+    }
+
+    @Test
+    public void testVersion9CarriesY() {
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(9);
+        buffer.writeByte(1);
+        buffer.writeByte(-4);
+        int[] blocks = writeStorage(buffer, 2, 3);
+
+        SubChunkView view = SubChunkView.read(buffer, 0);
+        try {
+            assertEquals(-4, view.getY());
+            assertBlocks(view, 0, blocks);
+        } finally {
+            view.release();
+        }
+    }
+
+    @Test
+    public void testPaddedBitWidths() {
+        // 3, 5 and 6 bits do not divide 32, so each word carries unused high bits
+        for (int bits : new int[]{3, 5, 6}) {
+            ByteBuf buffer = Unpooled.buffer();
+            buffer.writeByte(8);
+            buffer.writeByte(1);
+            int[] blocks = writeStorage(buffer, bits, 1 << bits);
+            buffer.writeByte(0x7f);
+
+            SubChunkView view = SubChunkView.read(buffer, 0);
+            try {
+                assertBlocks(view, 0, blocks);
+                assertEquals(1 << bits, view.getPaletteSize(0));
+                // Data following the block storages is left unread
+                assertEquals(1, buffer.readableBytes());
+            } finally {
+                view.release();
+            }
+        }
+    }
+
+    @Test
+    public void testSingleValuePalette() {
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(8);
+        buffer.writeByte(1);
+        buffer.writeByte(1);
+        VarInts.writeInt(buffer, 1234);
+
+        SubChunkView view = SubChunkView.read(buffer, 0);
+        try {
+            assertEquals(1, view.getPaletteSize(0));
+            assertEquals(1234, view.getPaletteEntry(0, 0));
+            assertEquals(1234, view.getBlock(0, 0, 0, 0));
+            assertEquals(1234, view.getBlock(15, 15, 15, 0));
+            assertTrue(view.paletteContains(0, 1234));
+            assertFalse(view.paletteContains(0, 1));
+            assertFalse(view.paletteContains(1, 1234));
+        } finally {
+            view.release();
+        }
+    }
+
+    @Test
+    public void testTruncatedInput() {
+        ByteBuf complete = Unpooled.buffer();
+        complete.writeByte(8);
+        complete.writeByte(1);
+        writeStorage(complete, 5, 32);
+
+        // Cut inside the palette, inside the words and before the storage header
+        int[] lengths = {complete.writerIndex() - 1, 3 + 200, 2};
+        for (int length : lengths) {
+            ByteBuf truncated = complete.slice(0, length);
+            try {
+                SubChunkView.read(truncated, 0).release();
+                fail("Truncated sub-chunk of " + length + " bytes was read");
+            } catch (IllegalArgumentException | IndexOutOfBoundsException expected) {
+            }
+            assertEquals(1, complete.refCnt());
+        }
+    }
+
+    @Test
+    public void testUnsupportedEncodings() {
+        ByteBuf version = Unpooled.buffer();
+        version.writeByte(0);
+        assertRejected(version);
+
+        ByteBuf persistent = Unpooled.buffer();
+        persistent.writeByte(1);
+        persistent.writeByte(4 << 1);
+        assertRejected(persistent);
+
+        ByteBuf bits = Unpooled.buffer();
+        bits.writeByte(1);
+        bits.writeByte(7 << 1 | 1);
+        assertRejected(bits);
+    }
+
+    @Test
+    public void testOfSubChunkData() {
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(8);
+        buffer.writeByte(1);
+        int[] blocks = writeStorage(buffer, 16, 300);
+
+        SubChunkData data = new SubChunkData();
+        data.setPosition(Vector3i.from(1, -2, 3));
+        data.setData(buffer);
+
+        SubChunkView view = SubChunkView.of(data);
+        try {
+            assertEquals(-2, view.getY());
+            assertBlocks(view, 0, blocks);
+            assertEquals(0, buffer.readerIndex());
+            assertEquals(2, buffer.refCnt());
+        } finally {
+            view.release();
+        }
+        assertEquals(1, buffer.refCnt());
+    }
+
+    private static void assertRejected(ByteBuf buffer) {
+        try {
+            SubChunkView.read(buffer, 0).release();
+            fail("Unsupported sub-chunk was read");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertBlocks(SubChunkView view, int layer, int[] blocks) {
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = 0; y < 16; y++) {
+                    assertEquals(blocks[(x << 8) | (z << 4) | y], view.getBlock(x, y, z, layer));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a runtime block storage of 4096 blocks which cycle through the palette.
+     *
+     * @return runtime ID of each block, in XZY order
+     */
+    static int[] writeStorage(ByteBuf buffer, int bits, int paletteSize) {
+        int[] palette = new int[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = i * 7919 - 1000;
+        }
+        int[] indices = new int[4096];
+        int[] blocks = new int[4096];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (i * 31 + i / 16) % paletteSize;
+            blocks[i] = palette[indices[i]];
+        }
+
+        buffer.writeByte(bits << 1 | 1);
+        int blocksPerWord = 32 / bits;
+        for (int start = 0; start < indices.length; start += blocksPerWord) {
+            int word = 0;
+            for (int i = 0; i < blocksPerWord && start + i < indices.length; i++) {
+                word |= indices[start + i] << (i * bits);
+            }
+            buffer.writeIntLE(word);
+        }
+        VarInts.writeInt(buffer, paletteSize);
+        for (int runtimeId : palette) {
+            VarInts.writeInt(buffer, runtimeId);
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,140 @@
+package org.cloudburstmc.protocol.bedrock.data.skin;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ImageDataCacheTests {
+
+    private static final int LENGTH = ImageData.SINGLE_SKIN_SIZE;
+
+    @Test
+    public void testIdenticalImagesAreShared() {
+        ImageDataCache cache = new ImageDataCache(4 * LENGTH);
+
+        ImageData first = read(cache, image(1));
+        ImageData second = read(cache, image(1));
+        ImageData other = read(cache, image(2));
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertArrayEquals(image(1), first.getImage());
+        assertArrayEquals(image(2), other.getImage());
+        assertEquals(2L * LENGTH, cache.weight());
+    }
+
+    @Test
+    public void testDimensionsAreCompared() {
+        ImageDataCache cache = new ImageDataCache(4 * LENGTH);
+
+        ImageData wide = cache.read(Unpooled.wrappedBuffer(image(1)), 64, 32, LENGTH);
+        ImageData tall = cache.read(Unpooled.wrappedBuffer(image(1)), 32, 64, LENGTH);
+
+        assertNotSame(wide, tall);
+        assertEquals(32, tall.getWidth());
+        assertEquals(64, tall.getHeight());
+    }
+
+    @Test
+    public void testReaderIndexIsAdvanced() {
+        ImageDataCache cache = new ImageDataCache(4 * LENGTH);
+        read(cache, image(1));
+
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(7);
+        buffer.writeBytes(image(1));
+        buffer.writeByte(9);
+        buffer.skipBytes(1);
+
+        cache.read(buffer, 64, 32, LENGTH);
+        assertEquals(1, buffer.readableBytes());
+        assertEquals(9, buffer.readByte());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedImagesAreEvicted() {
+        ImageDataCache cache = new ImageDataCache(2 * LENGTH);
+
+        ImageData first = read(cache, image(1));
+        ImageData second = read(cache, image(2));
+        // Marks the first image as recently used, so the second one is evicted next
+        assertSame(first, read(cache, image(1)));
+        read(cache, image(3));
+
+        assertEquals(2L * LENGTH, cache.weight());
+        assertSame(first, read(cache, image(1)));
+        assertNotSame(second, read(cache, image(2)));
+    }
+
+    @Test
+    public void testWeightIsBoundedByBytes() {
+        ImageDataCache cache = new ImageDataCache(3 * LENGTH + LENGTH / 2);
+
+        for (int i = 0; i < 16; i++) {
+            read(cache, image(i));
+            assertTrue(cache.weight() <= 3L * LENGTH + LENGTH / 2);
+        }
+        assertEquals(3L * LENGTH, cache.weight());
+
+        // Larger images weigh more, so fewer of them are held
+        byte[] large = new byte[ImageData.DOUBLE_SKIN_SIZE];
+        Arrays.fill(large, (byte) 42);
+        cache.read(Unpooled.wrappedBuffer(large), 64, 64, large.length);
+        assertEquals(LENGTH + (long) large.length, cache.weight());
+    }
+
+    @Test
+    public void testImagesLargerThanTheCacheAreNotCached() {
+        ImageDataCache cache = new ImageDataCache(LENGTH - 1);
+
+        ImageData first = read(cache, image(1));
+        assertNotSame(first, read(cache, image(1)));
+        assertEquals(0, cache.weight());
+    }
+
+    @Test
+    public void testDisabledCacheCopies() {
+        ImageData first = read(ImageDataCache.DISABLED, image(1));
+        ImageData second = read(ImageDataCache.DISABLED, image(1));
+
+        assertNotSame(first, second);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testSharedArrayCannotBeModified() {
+        ImageDataCache cache = new ImageDataCache(4 * LENGTH);
+        ImageData image = read(cache, image(1));
+
+        image.getImage()[0] = (byte) 0xFF;
+        assertArrayEquals(image(1), read(cache, image(1)).getImage());
+        assertTrue(image.getImageBuffer().isReadOnly());
+        assertEquals(LENGTH, image.getImageBuffer().readableBytes());
+    }
+
+    @Test
+    public void testClear() {
+        ImageDataCache cache = new ImageDataCache(4 * LENGTH);
+        ImageData first = read(cache, image(1));
+
+        cache.clear();
+        assertEquals(0, cache.weight());
+        assertNotSame(first, read(cache, image(1)));
+    }
+
+    private static ImageData read(ImageDataCache cache, byte[] image) {
+        return cache.read(Unpooled.wrappedBuffer(image), 64, 32, image.length);
+    }
+
+    private static byte[] image(int seed) {
+        byte[] image = new byte[LENGTH];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (seed * 31 + i);
+        }
+        return image;
+    }
+}
@@ -20,4 +20,7 @@ dependencies {
     api(project(":relay:Network:transport-raknet"))
     api(project(":relay:Protocol:bedrock-codec"))
     api(libs.snappy)
+
+    // Tests
+    testImplementation(libs.junit)
 }
\ No newline at end of file
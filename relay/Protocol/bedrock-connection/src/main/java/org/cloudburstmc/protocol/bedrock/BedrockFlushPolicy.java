@@ -0,0 +1,52 @@
+package org.cloudburstmc.protocol.bedrock;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controls when packets queued with {@link BedrockPeer#sendPacket(int, int, org.cloudburstmc.protocol.bedrock.packet.BedrockPacket)}
+ * are written to the channel.
+ */
+@Data
+@Accessors(fluent = true)
+@Builder(builderClassName = "Builder", toBuilder = true)
+public class BedrockFlushPolicy {
+    /**
+     * Queued packets are only written by the periodic 50 ms tick.
+     */
+    public static final BedrockFlushPolicy FIXED_TICK = BedrockFlushPolicy.builder()
+            .tickIntervalMillis(50)
+            .build();
+
+    /**
+     * Queued packets are written as soon as the inbound batch that produced them has been processed,
+     * at the latest 500 µs after the first packet was queued, or once 16KB are waiting. Packets queued
+     * while a flush is pending are coalesced into the same batch.
+     */
+    public static final BedrockFlushPolicy LOW_LATENCY = BedrockFlushPolicy.builder()
+            .tickIntervalMillis(50)
+            .flushOnBatchEnd(true)
+            .coalesceDelayNanos(TimeUnit.MICROSECONDS.toNanos(500))
+            .flushThresholdBytes(1024 * 16) // 16KB
+            .build();
+
+    /**
+     * Interval of the periodic flush that acts as a fallback for every other trigger.
+     */
+    private final long tickIntervalMillis;
+    /**
+     * Whether {@link BedrockPeer#signalBatchEnd()} flushes the queue.
+     */
+    private final boolean flushOnBatchEnd;
+    /**
+     * Maximum time a queued packet waits for other packets to join its batch, or 0 to disable.
+     */
+    private final long coalesceDelayNanos;
+    /**
+     * Number of queued bytes that triggers a flush, or 0 to disable.
+     */
+    private final int flushThresholdBytes;
+}
@@ -1,11 +1,13 @@
 package org.cloudburstmc.protocol.bedrock;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.DecoderException;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.ScheduledFuture;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
@@ -19,6 +21,7 @@ import org.cloudburstmc.protocol.bedrock.codec.BedrockCodec;
 import org.cloudburstmc.protocol.bedrock.codec.BedrockCodecHelper;
 import org.cloudburstmc.protocol.bedrock.codec.v428.Bedrock_v428;
 import org.cloudburstmc.protocol.bedrock.data.PacketCompressionAlgorithm;
+import org.cloudburstmc.protocol.bedrock.netty.BedrockBatchWrapper;
 import org.cloudburstmc.protocol.bedrock.netty.BedrockPacketWrapper;
 import org.cloudburstmc.protocol.bedrock.netty.codec.BlackholeInboundAdapter;
 import org.cloudburstmc.protocol.bedrock.netty.codec.FrameIdCodec;
@@ -30,6 +33,7 @@ import org.cloudburstmc.protocol.bedrock.netty.codec.encryption.BedrockEncryptio
 import org.cloudburstmc.protocol.bedrock.netty.codec.packet.BedrockPacketCodec;
 import org.cloudburstmc.protocol.bedrock.netty.initializer.BedrockChannelInitializer;
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket;
+import org.cloudburstmc.protocol.bedrock.packet.UnknownPacket;
 import org.cloudburstmc.protocol.bedrock.util.EncryptionUtils;
 
 import javax.crypto.SecretKey;
@@ -38,6 +42,7 @@ import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A Bedrock peer that represents a single network connection to the remote peer.
@@ -48,13 +53,21 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
     public static final String NAME = "bedrock-peer";
 
     private static final InternalLogger log = InternalLoggerFactory.getInstance(BedrockPeer.class);
+    // Encoded packets are not available until they are written, so assume a small packet
+    private static final int PACKET_SIZE_ESTIMATE = 64;
 
     protected final Int2ObjectMap<BedrockSession> sessions = new Int2ObjectOpenHashMap<>();
-    protected final Queue<BedrockPacketWrapper> packetQueue = PlatformDependent.newMpscQueue();
+    protected final Queue<ReferenceCounted> packetQueue = PlatformDependent.newMpscQueue();
     protected final Channel channel;
     protected final BedrockSessionFactory sessionFactory;
     protected ScheduledFuture<?> tickFuture;
     protected AtomicBoolean closed = new AtomicBoolean();
+    protected final AtomicInteger queuedBytes = new AtomicInteger();
+    protected final AtomicBoolean flushRequested = new AtomicBoolean();
+    protected final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flushTask = this::flushQueue;
+    protected volatile BedrockFlushPolicy flushPolicy = BedrockFlushPolicy.FIXED_TICK;
+    protected volatile BedrockPeerMetrics metrics;
 
     public BedrockPeer(Channel channel, BedrockSessionFactory sessionFactory) {
         this.channel = channel;
@@ -62,11 +75,24 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
     }
 
     protected void onBedrockPacket(BedrockPacketWrapper wrapper) {
+        BedrockPeerMetrics metrics = this.metrics;
+        if (metrics != null && wrapper.getPacketBuffer() != null) {
+            metrics.packetReceived(wrapper.getPacketId(), wrapper.getPacketBuffer().readableBytes());
+        }
+
         int targetId = wrapper.getTargetSubClientId();
         BedrockSession session = this.sessions.computeIfAbsent(targetId, this::onSessionCreated);
         session.onPacket(wrapper);
     }
 
+    protected void onBedrockBatch(BedrockBatchWrapper batch) {
+        for (BedrockSession session : this.sessions.values()) {
+            session.onBatch(batch);
+        }
+        // Anything the sessions queued in response to this batch can go out now
+        this.signalBatchEnd();
+    }
+
     protected BedrockSession onSessionCreated(int sessionId) {
         return this.sessionFactory.createSession(this, sessionId);
     }
@@ -82,19 +108,110 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
     }
 
     protected void onTick() {
-        if (this.closed.get()) {
+        this.flushQueue();
+    }
+
+    protected void flushQueue() {
+        this.flushRequested.set(false);
+        this.flushScheduled.set(false);
+        if (this.closed.get() || this.packetQueue.isEmpty()) {
             return;
         }
+        // The transport is backed up, leave the packets queued until it becomes writable again
+        if (!this.channel.isWritable()) {
+            return;
+        }
+
+        BedrockPeerMetrics metrics = this.metrics;
+        long now = metrics == null ? 0 : System.nanoTime();
+        int count = 0;
+        int bytes = 0;
+
+        ReferenceCounted packet;
+        while ((packet = this.packetQueue.poll()) != null) {
+            bytes += estimateSize(packet);
+            count++;
+            if (metrics != null) {
+                metrics.packetQueueDelay(now - getQueuedTime(packet));
+            }
+            this.channel.write(packet);
+        }
+        this.queuedBytes.addAndGet(-bytes);
+        this.channel.flush();
+
+        if (metrics != null) {
+            metrics.queueFlushed(count, bytes);
+        }
+    }
+
+    protected void onQueued(ReferenceCounted message) {
+        BedrockFlushPolicy policy = this.flushPolicy;
+        int size = estimateSize(message);
+        int queued = this.queuedBytes.addAndGet(size);
+
+        int threshold = policy.flushThresholdBytes();
+        if (threshold > 0 && queued >= threshold && queued - size < threshold) {
+            this.requestFlush();
+        } else if (policy.coalesceDelayNanos() > 0 && this.flushScheduled.compareAndSet(false, true)) {
+            this.channel.eventLoop().schedule(this.flushTask, policy.coalesceDelayNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
 
-        if (!this.packetQueue.isEmpty()) {
-            BedrockPacketWrapper packet;
-            while ((packet = this.packetQueue.poll()) != null) {
-                this.channel.write(packet);
+    /**
+     * Flushes the packet queue on the next run of the event loop. Requests made before that flush
+     * has run are coalesced into it.
+     */
+    public void requestFlush() {
+        if (this.flushRequested.compareAndSet(false, true)) {
+            if (!this.channel.eventLoop().inEventLoop()) {
+                BedrockPeerMetrics metrics = this.metrics;
+                if (metrics != null) {
+                    metrics.crossThreadHandoff();
+                }
+            }
+            this.channel.eventLoop().execute(this.flushTask);
+        }
+    }
+
+    /**
+     * Signals that an inbound batch which may have produced packets for this peer has been processed.
+     * Depending on the {@link BedrockFlushPolicy}, this flushes the packet queue.
+     */
+    public void signalBatchEnd() {
+        if (this.flushPolicy.flushOnBatchEnd() && !this.packetQueue.isEmpty()) {
+            if (this.channel.eventLoop().inEventLoop()) {
+                // The batch was handled on this peer's thread, flush right away instead of going through the task queue
+                this.flushQueue();
+            } else {
+                this.requestFlush();
             }
-            this.channel.flush();
         }
     }
 
+    private static int estimateSize(ReferenceCounted message) {
+        if (message instanceof BedrockBatchWrapper) {
+            ByteBuf uncompressed = ((BedrockBatchWrapper) message).getUncompressed();
+            return uncompressed == null ? 0 : uncompressed.readableBytes();
+        }
+
+        BedrockPacketWrapper wrapper = (BedrockPacketWrapper) message;
+        if (wrapper.getPacketBuffer() != null) {
+            return wrapper.getPacketBuffer().readableBytes();
+        }
+        BedrockPacket packet = wrapper.getPacket();
+        if (packet instanceof UnknownPacket && ((UnknownPacket) packet).getPayload() != null) {
+            return ((UnknownPacket) packet).getPayload().readableBytes();
+        }
+        return PACKET_SIZE_ESTIMATE;
+    }
+
+    private static long getQueuedTime(ReferenceCounted message) {
+        if (message instanceof BedrockBatchWrapper) {
+            return ((BedrockBatchWrapper) message).getQueuedTime();
+        }
+        return ((BedrockPacketWrapper) message).getQueuedTime();
+    }
+
     private void onRakNetDisconnect(ChannelHandlerContext ctx, RakDisconnectReason reason) {
         CharSequence disconnectReason = BedrockDisconnectReasons.getReason(reason);
         for (BedrockSession session : this.sessions.values()) {
@@ -103,19 +220,59 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
     }
 
     private void free() {
-        for (BedrockPacketWrapper wrapper : this.packetQueue) {
-            ReferenceCountUtil.safeRelease(wrapper);
+        for (ReferenceCounted message : this.packetQueue) {
+            ReferenceCountUtil.safeRelease(message);
         }
     }
 
     public void sendPacket(int senderClientId, int targetClientId, BedrockPacket packet) {
-        this.packetQueue.add(BedrockPacketWrapper.create(0, senderClientId, targetClientId, packet, null));
+        BedrockPacketWrapper wrapper = BedrockPacketWrapper.create(0, senderClientId, targetClientId, packet, null);
+        wrapper.setQueuedTime(System.nanoTime());
+        this.packetQueue.add(wrapper);
+        this.onQueued(wrapper);
     }
 
     public void sendPacketImmediately(int senderClientId, int targetClientId, BedrockPacket packet) {
         this.channel.writeAndFlush(BedrockPacketWrapper.create(0, senderClientId, targetClientId, packet, null));
     }
 
+    /**
+     * Queues a batch received by another peer so it is sent to this peer as a whole, without splitting
+     * it into packets again. The compressed payload is reused when both peers use the same compression
+     * format, otherwise the batch is recompressed from its uncompressed payload. Encryption is always
+     * applied by this peer's pipeline.
+     *
+     * @param source peer the batch was received from
+     * @param batch  inbound batch whose packets were all left untouched
+     */
+    public void forwardBatch(BedrockPeer source, BedrockBatchWrapper batch) {
+        if (batch.getUncompressed() == null) {
+            throw new IllegalArgumentException("Batch was not decompressed");
+        }
+        if (batch.getCompressed() != null && !this.isCompressionCompatible(source)) {
+            batch.setCompressed(null);
+        }
+        batch.setQueuedTime(System.nanoTime());
+        this.packetQueue.add(batch.retain());
+        this.onQueued(batch);
+    }
+
+    private boolean isCompressionCompatible(BedrockPeer source) {
+        ChannelHandler inbound = source.channel.pipeline().get(CompressionCodec.NAME);
+        ChannelHandler outbound = this.channel.pipeline().get(CompressionCodec.NAME);
+        if (!(inbound instanceof CompressionCodec) || !(outbound instanceof CompressionCodec)) {
+            return false;
+        }
+
+        CompressionCodec in = (CompressionCodec) inbound;
+        CompressionCodec out = (CompressionCodec) outbound;
+        if (in.isPrefixed() != out.isPrefixed() || source.getRakVersion() != this.getRakVersion()) {
+            return false;
+        }
+        // Without a prefix the algorithm is implied, so both sides must use the same default compression
+        return in.isPrefixed() || in.getStrategy().getDefaultCompression() == out.getStrategy().getDefaultCompression();
+    }
+
     public void enableEncryption(@NonNull SecretKey secretKey) {
         Objects.requireNonNull(secretKey, "secretKey");
         if (!secretKey.getAlgorithm().equals("AES")) {
@@ -148,11 +305,14 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
 
         boolean needsPrefix = this.getCodec().getProtocolVersion() >= 649; // TODO: do not hardcode
 
+        CompressionCodec codec = new CompressionCodec(strategy, needsPrefix);
+        codec.setMetrics(this.metrics);
+
         ChannelHandler handler = this.channel.pipeline().get(CompressionCodec.NAME);
         if (handler == null) {
-            this.channel.pipeline().addBefore(BedrockBatchDecoder.NAME, CompressionCodec.NAME, new CompressionCodec(strategy, needsPrefix));
+            this.channel.pipeline().addBefore(BedrockBatchDecoder.NAME, CompressionCodec.NAME, codec);
         } else {
-            this.channel.pipeline().replace(CompressionCodec.NAME, CompressionCodec.NAME, new CompressionCodec(strategy, needsPrefix));
+            this.channel.pipeline().replace(CompressionCodec.NAME, CompressionCodec.NAME, codec);
         }
     }
 
@@ -177,6 +337,43 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
         this.channel.pipeline().get(BedrockPacketCodec.class).setCodec(codec);
     }
 
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.channel.pipeline().get(BedrockPacketCodec.class).setLazyDecoding(lazyDecoding);
+    }
+
+    public boolean isLazyDecoding() {
+        return this.channel.pipeline().get(BedrockPacketCodec.class).isLazyDecoding();
+    }
+
+    public BedrockFlushPolicy getFlushPolicy() {
+        return this.flushPolicy;
+    }
+
+    public void setFlushPolicy(BedrockFlushPolicy flushPolicy) {
+        Objects.requireNonNull(flushPolicy, "flushPolicy");
+        BedrockFlushPolicy previous = this.flushPolicy;
+        this.flushPolicy = flushPolicy;
+        if (this.tickFuture != null && previous.tickIntervalMillis() != flushPolicy.tickIntervalMillis()) {
+            this.tickFuture.cancel(false);
+            this.scheduleTick();
+        }
+    }
+
+    public BedrockPeerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sets the metrics this peer and its compression codec report to, or null to stop reporting.
+     */
+    public void setMetrics(BedrockPeerMetrics metrics) {
+        this.metrics = metrics;
+        ChannelHandler handler = this.channel.pipeline().get(CompressionCodec.NAME);
+        if (handler instanceof CompressionCodec) {
+            ((CompressionCodec) handler).setMetrics(metrics);
+        }
+    }
+
     public void close(CharSequence reason) {
         for (BedrockSession session : this.sessions.values()) {
             session.disconnectReason = reason;
@@ -241,7 +438,12 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         this.sessions.put(0, this.sessionFactory.createSession(this, 0));
-        this.tickFuture = this.channel.eventLoop().scheduleAtFixedRate(this::onTick, 50, 50, TimeUnit.MILLISECONDS);
+        this.scheduleTick();
+    }
+
+    private void scheduleTick() {
+        long interval = this.flushPolicy.tickIntervalMillis();
+        this.tickFuture = this.channel.eventLoop().scheduleAtFixedRate(this::onTick, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -249,11 +451,21 @@ public class BedrockPeer extends ChannelInboundHandlerAdapter {
         this.onClose();
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            this.requestFlush();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         try {
             if (msg instanceof BedrockPacketWrapper) {
                 this.onBedrockPacket((BedrockPacketWrapper) msg);
+            } else if (msg instanceof BedrockBatchWrapper) {
+                this.onBedrockBatch((BedrockBatchWrapper) msg);
             } else {
                 throw new DecoderException("Unexpected message type: " + msg.getClass().getName());
             }
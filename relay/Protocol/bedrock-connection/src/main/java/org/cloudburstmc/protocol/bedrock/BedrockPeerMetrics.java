@@ -0,0 +1,62 @@
+package org.cloudburstmc.protocol.bedrock;
+
+import org.cloudburstmc.protocol.bedrock.data.CompressionAlgorithm;
+
+public interface BedrockPeerMetrics {
+
+    /**
+     * Called for every queued packet or batch when it is written to the channel.
+     *
+     * @param nanos time the message spent in the peer's packet queue
+     */
+    default void packetQueueDelay(long nanos) {
+    }
+
+    /**
+     * Called whenever the packet queue is flushed.
+     *
+     * @param count number of messages written
+     * @param bytes estimated uncompressed size of the messages written
+     */
+    default void queueFlushed(int count, int bytes) {
+    }
+
+    /**
+     * Called for every packet received from the remote peer, before it is handled by a session.
+     *
+     * @param packetId ID of the packet
+     * @param bytes    encoded size of the packet including its header
+     */
+    default void packetReceived(int packetId, int bytes) {
+    }
+
+    /**
+     * Called whenever an outbound batch is compressed. Batches which are passed through with their
+     * existing compressed payload are not reported.
+     *
+     * @param algorithm         algorithm used
+     * @param uncompressedBytes size of the batch before compression
+     * @param compressedBytes   size of the batch after compression
+     * @param nanos             time spent compressing
+     */
+    default void batchCompressed(CompressionAlgorithm algorithm, int uncompressedBytes, int compressedBytes, long nanos) {
+    }
+
+    /**
+     * Called whenever an inbound batch is decompressed.
+     *
+     * @param algorithm         algorithm used
+     * @param compressedBytes   size of the batch as received
+     * @param uncompressedBytes size of the batch after decompression
+     * @param nanos             time spent decompressing
+     */
+    default void batchDecompressed(CompressionAlgorithm algorithm, int compressedBytes, int uncompressedBytes, long nanos) {
+    }
+
+    /**
+     * Called whenever a flush of the packet queue is handed to the peer's event loop from another thread.
+     * Peers which are fed from their own event loop never report this.
+     */
+    default void crossThreadHandoff() {
+    }
+}
@@ -6,6 +6,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.cloudburstmc.protocol.bedrock.codec.BedrockCodec;
 import org.cloudburstmc.protocol.bedrock.data.PacketCompressionAlgorithm;
+import org.cloudburstmc.protocol.bedrock.netty.BedrockBatchWrapper;
 import org.cloudburstmc.protocol.bedrock.netty.BedrockPacketWrapper;
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket;
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacketHandler;
@@ -123,6 +124,14 @@ public abstract class BedrockSession {
         }
     }
 
+    /**
+     * Called after every packet of an inbound batch has been passed to {@link #onPacket(BedrockPacketWrapper)}.
+     *
+     * @param batch the inbound batch, still holding its compressed and uncompressed payload
+     */
+    protected void onBatch(BedrockBatchWrapper batch) {
+    }
+
     protected void logOutbound(BedrockPacket packet) {
         if (log.isTraceEnabled() && this.logging) {
             log.trace("Outbound {}{}: {}", this.getSocketAddress(), this.subClientId, packet);
@@ -29,6 +29,10 @@ public class BedrockBatchWrapper extends AbstractReferenceCounted {
     private List<BedrockPacketWrapper> packets = new ObjectArrayList<>();
 
     private boolean modified;
+    /**
+     * {@link System#nanoTime()} at which this message was added to a peer's packet queue.
+     */
+    private long queuedTime;
     private Set<PacketFlag> flags = new ObjectOpenHashSet<>();
 
     private BedrockBatchWrapper(ObjectPool.Handle<BedrockBatchWrapper> handle) {
@@ -68,6 +72,7 @@ public class BedrockBatchWrapper extends AbstractReferenceCounted {
         this.uncompressed = null;
         this.packets.clear();
         this.modified = false;
+        this.queuedTime = 0;
         this.algorithm = null;
         this.flags.clear();
         this.handle.recycle(this);
@@ -1,12 +1,17 @@
 package org.cloudburstmc.protocol.bedrock.netty;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
 import io.netty.util.AbstractReferenceCounted;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.internal.ObjectPool;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.cloudburstmc.protocol.bedrock.codec.BedrockCodec;
+import org.cloudburstmc.protocol.bedrock.codec.BedrockCodecHelper;
+import org.cloudburstmc.protocol.bedrock.data.PacketRecipient;
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket;
 import org.cloudburstmc.protocol.bedrock.util.PacketFlag;
 
@@ -25,6 +30,34 @@ public class BedrockPacketWrapper extends AbstractReferenceCounted {
     private BedrockPacket packet;
     private ByteBuf packetBuffer;
     private Set<PacketFlag> flags = new ObjectOpenHashSet<>();
+    /**
+     * Whether the packet was changed after it was decoded. A modified packet is encoded again from the packet
+     * object, otherwise the packet buffer is written as it is.
+     */
+    private boolean modified;
+    /**
+     * {@link System#nanoTime()} at which this message was added to a peer's packet queue.
+     */
+    private long queuedTime;
+
+    /*
+        Set when the packet codec defers deserialization until the packet is requested
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private BedrockCodec lazyCodec;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private BedrockCodecHelper lazyHelper;
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private PacketRecipient lazyRecipient;
+    /*
+        Set when deferred deserialization failed, so every later caller gets the same failure
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private DecoderException decodeFailure;
 
     public static BedrockPacketWrapper create(int packetId, int senderSubClientId, int targetSubClientId, BedrockPacket packet, ByteBuf packetBuffer) {
         BedrockPacketWrapper wrapper = RECYCLER.get();
@@ -56,6 +89,67 @@ public class BedrockPacketWrapper extends AbstractReferenceCounted {
         this.handle = handle;
     }
 
+    /**
+     * Defers deserialization of this packet until {@link #getPacket()} is called.
+     * The packet buffer and header length must already be set.
+     *
+     * @param codec     codec used to decode the packet
+     * @param helper    helper used to decode the packet
+     * @param recipient expected recipient of the packet, or null to skip the check
+     */
+    public void setLazyDecoder(BedrockCodec codec, BedrockCodecHelper helper, PacketRecipient recipient) {
+        this.lazyCodec = codec;
+        this.lazyHelper = helper;
+        this.lazyRecipient = recipient;
+    }
+
+    /**
+     * Returns the packet, deserializing it from the packet buffer first if decoding was deferred.
+     *
+     * @return decoded packet
+     * @throws DecoderException if the packet could not be decoded, on this or an earlier call
+     */
+    public BedrockPacket getPacket() {
+        if (this.decodeFailure != null) {
+            throw this.decodeFailure;
+        }
+        if (this.packet == null && this.lazyCodec != null && this.packetBuffer != null) {
+            ByteBuf buffer = this.packetBuffer.slice();
+            buffer.skipBytes(this.headerLength);
+            try {
+                this.packet = this.lazyCodec.tryDecode(this.lazyHelper, buffer, this.packetId, this.lazyRecipient);
+            } catch (Exception e) {
+                throw this.decodeFailure = new DecoderException("Failed to decode packet " + this.packetId, e);
+            } finally {
+                this.lazyCodec = null;
+                this.lazyHelper = null;
+                this.lazyRecipient = null;
+            }
+        }
+        return this.packet;
+    }
+
+    /**
+     * @return true if the packet has been deserialized or was created from a packet object
+     */
+    public boolean isDecoded() {
+        return this.packet != null;
+    }
+
+    /**
+     * @return true if deferred deserialization was attempted and failed. The packet buffer is still intact.
+     */
+    public boolean isDecodeFailed() {
+        return this.decodeFailure != null;
+    }
+
+    /**
+     * Marks the packet as changed, so it is encoded again instead of reusing the packet buffer.
+     */
+    public void modify() {
+        this.modified = true;
+    }
+
     public void setFlag(PacketFlag flag) {
         this.flags.add(flag);
     }
@@ -76,8 +170,14 @@ public class BedrockPacketWrapper extends AbstractReferenceCounted {
         this.senderSubClientId = 0;
         this.targetSubClientId = 0;
         this.headerLength = 0;
+        this.queuedTime = 0;
+        this.modified = false;
         this.packet = null;
         this.packetBuffer = null;
+        this.lazyCodec = null;
+        this.lazyHelper = null;
+        this.lazyRecipient = null;
+        this.decodeFailure = null;
         this.flags.clear();
         this.handle.recycle(this);
     }
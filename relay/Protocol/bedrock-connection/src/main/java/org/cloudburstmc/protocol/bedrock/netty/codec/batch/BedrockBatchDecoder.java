@@ -26,5 +26,8 @@ public class BedrockBatchDecoder extends MessageToMessageDecoder<BedrockBatchWra
             ByteBuf packetBuf = buffer.readRetainedSlice(packetLength);
             out.add(packetBuf);
         }
+
+        // Pass the batch on after its packets so the peer knows where the batch ended
+        out.add(msg.retain());
     }
 }
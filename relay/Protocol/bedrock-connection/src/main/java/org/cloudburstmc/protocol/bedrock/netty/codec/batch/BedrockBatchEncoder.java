@@ -21,6 +21,10 @@ public class BedrockBatchEncoder extends ChannelOutboundHandlerAdapter {
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         if (!(msg instanceof BedrockPacketWrapper)) {
+            if (msg instanceof BedrockBatchWrapper && !this.messages.isEmpty()) {
+                // Pre-built batch must not overtake packets accumulated before it
+                this.writeBatch(ctx);
+            }
             super.write(ctx, msg, promise);
             return;
         }
@@ -32,11 +36,13 @@ public class BedrockBatchEncoder extends ChannelOutboundHandlerAdapter {
 
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
-        if (messages.isEmpty()) {
-            super.flush(ctx);
-            return;
+        if (!messages.isEmpty()) {
+            this.writeBatch(ctx);
         }
+        super.flush(ctx);
+    }
 
+    private void writeBatch(ChannelHandlerContext ctx) {
         CompositeByteBuf buf = ctx.alloc().compositeDirectBuffer(messages.size() * 2);
         BedrockBatchWrapper batch = BedrockBatchWrapper.newInstance();
 
@@ -63,8 +69,6 @@ public class BedrockBatchEncoder extends ChannelOutboundHandlerAdapter {
             buf.release();
             batch.release();
         }
-
-        super.flush(ctx);
     }
 
     @Override
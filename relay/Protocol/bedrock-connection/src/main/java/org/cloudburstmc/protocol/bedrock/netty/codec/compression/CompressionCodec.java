@@ -3,6 +3,7 @@ package org.cloudburstmc.protocol.bedrock.netty.codec.compression;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
+import org.cloudburstmc.protocol.bedrock.BedrockPeerMetrics;
 import org.cloudburstmc.protocol.bedrock.data.CompressionAlgorithm;
 import org.cloudburstmc.protocol.bedrock.data.PacketCompressionAlgorithm;
 import org.cloudburstmc.protocol.bedrock.netty.BedrockBatchWrapper;
@@ -14,6 +15,7 @@ public class CompressionCodec extends MessageToMessageCodec<BedrockBatchWrapper,
 
     private final CompressionStrategy strategy;
     private final boolean prefixed;
+    private volatile BedrockPeerMetrics metrics;
 
     public CompressionCodec(CompressionStrategy strategy, boolean prefixed) {
         this.strategy = strategy;
@@ -37,7 +39,13 @@ public class CompressionCodec extends MessageToMessageCodec<BedrockBatchWrapper,
             throw new IllegalStateException("Non-default compression algorithm used without prefixing");
         }
 
+        BedrockPeerMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
         ByteBuf compressed = compression.encode(ctx, msg.getUncompressed());
+        if (metrics != null) {
+            metrics.batchCompressed(compression.getAlgorithm(), msg.getUncompressed().readableBytes(),
+                    compressed.readableBytes(), System.nanoTime() - start);
+        }
         try {
             ByteBuf outBuf;
             if (this.prefixed) {
@@ -70,8 +78,14 @@ public class CompressionCodec extends MessageToMessageCodec<BedrockBatchWrapper,
             compression = this.strategy.getDefaultCompression();
         }
 
+        BedrockPeerMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
         msg.setAlgorithm(compression.getAlgorithm());
         msg.setUncompressed(compression.decode(ctx, compressed.slice()));
+        if (metrics != null) {
+            metrics.batchDecompressed(compression.getAlgorithm(), compressed.readableBytes(),
+                    msg.getUncompressed().readableBytes(), System.nanoTime() - start);
+        }
         this.onDecompressed(ctx, msg);
         out.add(msg.retain());
     }
@@ -129,4 +143,16 @@ public class CompressionCodec extends MessageToMessageCodec<BedrockBatchWrapper,
     public CompressionStrategy getStrategy() {
         return this.strategy;
     }
+
+    public boolean isPrefixed() {
+        return this.prefixed;
+    }
+
+    public BedrockPeerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public void setMetrics(BedrockPeerMetrics metrics) {
+        this.metrics = metrics;
+    }
 }
@@ -20,92 +20,89 @@ public class SnappyCompression implements BatchCompression {
 
     @Override
     public ByteBuf encode(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
-        ByteBuf direct;
-        if (!msg.isDirect() || msg instanceof CompositeByteBuf) {
-            direct = ctx.alloc().ioBuffer(msg.readableBytes());
-            direct.writeBytes(msg);
-        } else {
-            direct = msg;
-        }
-
+        ByteBuf input = addressable(ctx, msg);
         ByteBuf output = ctx.alloc().directBuffer();
         try {
-            long inputAddress = direct.memoryAddress() + direct.readerIndex();
-            long inputEndAddress = inputAddress + direct.readableBytes();
-
-            output.ensureWritable(SnappyRawCompressor.maxCompressedLength(direct.readableBytes()));
-
-            long outputAddress;
-            long outputEndAddress;
-            byte[] outputArray = null;
-            if (output.isDirect() && output.hasMemoryAddress()) {
-                outputAddress = output.memoryAddress() + output.writerIndex();
-                outputEndAddress = outputAddress + output.writableBytes();
-            } else if (output.hasArray()) {
-                outputArray = output.array();
-                outputAddress = ARRAY_BYTE_BASE_OFFSET + output.arrayOffset() + output.writerIndex();
-                outputEndAddress = ARRAY_BYTE_BASE_OFFSET + output.arrayOffset() + output.writableBytes();
-            } else {
-                throw new IllegalStateException("Unsupported ByteBuf " + output.getClass().getSimpleName());
-            }
+            Object inputBase = base(input);
+            long inputAddress = address(input, input.readerIndex());
+            long inputEndAddress = inputAddress + input.readableBytes();
+
+            output.ensureWritable(SnappyRawCompressor.maxCompressedLength(input.readableBytes()));
+
+            long outputAddress = address(output, output.writerIndex());
+            long outputEndAddress = outputAddress + output.writableBytes();
 
-            int compressed = SnappyRawCompressor.compress(null, inputAddress, inputEndAddress, outputArray, outputAddress, outputEndAddress, TABLE.get());
+            int compressed = SnappyRawCompressor.compress(inputBase, inputAddress, inputEndAddress, base(output), outputAddress, outputEndAddress, TABLE.get());
             output.writerIndex(output.writerIndex() + compressed);
             return output.retain();
         } finally {
             output.release();
-            if (direct != msg) {
-                direct.release();
+            if (input != msg) {
+                input.release();
             }
         }
     }
 
     @Override
     public ByteBuf decode(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
-        ByteBuf direct;
-        if (!msg.isDirect() || msg instanceof CompositeByteBuf) {
-            direct = ctx.alloc().ioBuffer(msg.readableBytes());
-            direct.writeBytes(msg);
-        } else {
-            direct = msg;
-        }
-
+        ByteBuf input = addressable(ctx, msg);
         ByteBuf output = ctx.alloc().directBuffer();
         try {
-            long inputAddress = direct.memoryAddress() + direct.readerIndex();
-            long inputEndAddress = inputAddress + direct.readableBytes();
+            Object inputBase = base(input);
+            long inputAddress = address(input, input.readerIndex());
+            long inputEndAddress = inputAddress + input.readableBytes();
 
-            int uncompressedLength = SnappyRawDecompressor.getUncompressedLength(null, inputAddress, inputEndAddress);
+            int uncompressedLength = SnappyRawDecompressor.getUncompressedLength(inputBase, inputAddress, inputEndAddress);
             if (uncompressedLength > MAX_DECOMPRESSED_BYTES) {
                 throw new DataFormatException("Inflated data exceeds maximum size");
             }
             output.ensureWritable(uncompressedLength);
 
-            long outputAddress;
-            long outputEndAddress;
-            byte[] outputArray = null;
-            if (output.isDirect() && output.hasMemoryAddress()) {
-                outputAddress = output.memoryAddress() + output.writerIndex();
-                outputEndAddress = outputAddress + output.writableBytes();
-            } else if (output.hasArray()) {
-                outputArray = output.array();
-                outputAddress = ARRAY_BYTE_BASE_OFFSET + output.arrayOffset() + output.writerIndex();
-                outputEndAddress = ARRAY_BYTE_BASE_OFFSET + output.arrayOffset() + output.writableBytes();
-            } else {
-                throw new IllegalStateException("Unsupported ByteBuf " + output.getClass().getSimpleName());
-            }
+            long outputAddress = address(output, output.writerIndex());
+            long outputEndAddress = outputAddress + output.writableBytes();
 
-            int decompressed = SnappyRawDecompressor.decompress(null, inputAddress, inputEndAddress, outputArray, outputAddress, outputEndAddress);
+            int decompressed = SnappyRawDecompressor.decompress(inputBase, inputAddress, inputEndAddress, base(output), outputAddress, outputEndAddress);
             output.writerIndex(output.writerIndex() + decompressed);
             return output.retain();
         } finally {
             output.release();
-            if (direct != msg) {
-                direct.release();
+            if (input != msg) {
+                input.release();
             }
         }
     }
 
+    /**
+     * Returns a buffer whose memory can be addressed directly, copying the message only if it is neither backed by
+     * native memory nor by a single array.
+     */
+    private static ByteBuf addressable(ChannelHandlerContext ctx, ByteBuf msg) {
+        if (!(msg instanceof CompositeByteBuf) && (msg.hasMemoryAddress() || msg.hasArray())) {
+            return msg;
+        }
+        ByteBuf copy = ctx.alloc().heapBuffer(msg.readableBytes());
+        copy.writeBytes(msg, msg.readerIndex(), msg.readableBytes());
+        return copy;
+    }
+
+    private static Object base(ByteBuf buffer) {
+        if (buffer.hasMemoryAddress()) {
+            return null;
+        } else if (buffer.hasArray()) {
+            return buffer.array();
+        }
+        throw new IllegalStateException("Unsupported ByteBuf " + buffer.getClass().getSimpleName());
+    }
+
+    private static long address(ByteBuf buffer, int index) {
+        if (buffer.hasMemoryAddress()) {
+            return buffer.memoryAddress() + index;
+        } else if (buffer.hasArray()) {
+            return ARRAY_BYTE_BASE_OFFSET + buffer.arrayOffset() + index;
+        }
+        throw new IllegalStateException("Unsupported ByteBuf " + buffer.getClass().getSimpleName());
+    }
+
     @Override
     public CompressionAlgorithm getAlgorithm() {
         return PacketCompressionAlgorithm.SNAPPY;
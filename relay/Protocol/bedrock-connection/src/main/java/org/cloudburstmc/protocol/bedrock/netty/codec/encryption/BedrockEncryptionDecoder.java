@@ -4,27 +4,31 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.MessageToMessageDecoder;
-import lombok.RequiredArgsConstructor;
 import org.cloudburstmc.protocol.bedrock.netty.BedrockBatchWrapper;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
-@RequiredArgsConstructor
 public class BedrockEncryptionDecoder extends MessageToMessageDecoder<BedrockBatchWrapper> {
 
     public static final String NAME = "bedrock-encryption-decoder";
 
     private static final boolean VALIDATE = Boolean.getBoolean("cloudburst.validateEncryption");
 
-    private final AtomicLong packetCounter = new AtomicLong();
-    private final SecretKey key;
+    private final EncryptionTrailer trailer;
     private final Cipher cipher;
 
+    public BedrockEncryptionDecoder(SecretKey key, Cipher cipher) {
+        this(key, cipher, VALIDATE);
+    }
+
+    BedrockEncryptionDecoder(SecretKey key, Cipher cipher, boolean validate) {
+        this.trailer = validate ? new EncryptionTrailer(key) : null;
+        this.cipher = cipher;
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, BedrockBatchWrapper msg, List<Object> out) throws Exception {
         ByteBuffer inBuffer = msg.getCompressed().nioBuffer();
@@ -33,17 +37,11 @@ public class BedrockEncryptionDecoder extends MessageToMessageDecoder<BedrockBat
         // Copy-safe so we can use the same buffer.
         this.cipher.update(inBuffer, outBuffer);
 
-        ByteBuf output = msg.getCompressed().readSlice(msg.getCompressed().readableBytes() - 8);
-
-        if (VALIDATE) {
-            ByteBuf trailer = msg.getCompressed().readSlice(8);
-
-            byte[] actual = new byte[8];
-            trailer.readBytes(actual);
-
-            byte[] expected = BedrockEncryptionEncoder.generateTrailer(output, this.key, this.packetCounter);
+        ByteBuf output = msg.getCompressed().readSlice(msg.getCompressed().readableBytes() - EncryptionTrailer.LENGTH);
 
-            if (!Arrays.equals(expected, actual)) {
+        if (this.trailer != null) {
+            ByteBuf trailer = msg.getCompressed().readSlice(EncryptionTrailer.LENGTH);
+            if (!this.trailer.verify(output, trailer)) {
                 throw new CorruptedFrameException("Invalid encryption trailer");
             }
         }
@@ -0,0 +1,96 @@
+package org.cloudburstmc.protocol.bedrock.netty.codec.encryption;
+
+import io.netty.buffer.ByteBuf;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the trailer appended to every encrypted batch: the first 8 bytes of SHA-256 over the little endian batch
+ * counter, the payload and the key.
+ * <p>
+ * An instance belongs to one direction of one channel and is only used from its event loop, so the digest, the key
+ * bytes and the output are set up once and reused for every batch. The counter is hashed first, which rules out
+ * reusing a digest seeded with a common prefix.
+ */
+final class EncryptionTrailer {
+    static final int LENGTH = 8;
+
+    private final MessageDigest digest;
+    private final byte[] key;
+    private final byte[] counterBytes = new byte[8];
+    private final byte[] hash;
+    private final ByteBuffer trailer;
+    private long counter;
+
+    EncryptionTrailer(SecretKey key) {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+        this.key = key.getEncoded();
+        this.hash = new byte[this.digest.getDigestLength()];
+        this.trailer = ByteBuffer.wrap(this.hash);
+    }
+
+    /**
+     * Computes the trailer of the next batch.
+     *
+     * @param payload buffer holding the payload in its readable bytes
+     * @return trailer of {@link #LENGTH} bytes, only valid until the next call
+     */
+    ByteBuffer next(ByteBuf payload) {
+        long counter = this.counter++;
+        for (int i = 0; i < 8; i++) {
+            this.counterBytes[i] = (byte) (counter >>> (i << 3));
+        }
+        this.digest.update(this.counterBytes);
+
+        int index = payload.readerIndex();
+        int length = payload.readableBytes();
+        if (payload.hasArray()) {
+            this.digest.update(payload.array(), payload.arrayOffset() + index, length);
+        } else if (payload.nioBufferCount() == 1) {
+            this.digest.update(payload.internalNioBuffer(index, length));
+        } else {
+            for (ByteBuffer buffer : payload.nioBuffers(index, length)) {
+                this.digest.update(buffer);
+            }
+        }
+
+        this.digest.update(this.key);
+        try {
+            this.digest.digest(this.hash, 0, this.hash.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+
+        this.trailer.clear().limit(LENGTH);
+        return this.trailer;
+    }
+
+    /**
+     * Checks the trailer received with a batch.
+     *
+     * @param payload buffer holding the decrypted payload in its readable bytes
+     * @param trailer buffer holding the decrypted trailer in its readable bytes
+     * @return true if the trailer matches
+     */
+    boolean verify(ByteBuf payload, ByteBuf trailer) {
+        if (trailer.readableBytes() != LENGTH) {
+            return false;
+        }
+        ByteBuffer expected = this.next(payload);
+        int index = trailer.readerIndex();
+        for (int i = 0; i < LENGTH; i++) {
+            if (trailer.getByte(index + i) != expected.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -26,6 +26,7 @@ public abstract class BedrockPacketCodec extends MessageToMessageCodec<ByteBuf,
     private BedrockCodecHelper helper = codec.createHelper();
 
     private PacketRecipient inboundRecipient;
+    private boolean lazyDecoding;
 
     @Override
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
@@ -37,18 +38,24 @@ public abstract class BedrockPacketCodec extends MessageToMessageCodec<ByteBuf,
 
     @Override
     protected final void encode(ChannelHandlerContext ctx, BedrockPacketWrapper msg, List<Object> out) throws Exception {
-        if (msg.getPacketBuffer() != null) {
+        if (msg.getPacketBuffer() != null && !msg.isModified()) {
             // We have a pre-encoded packet buffer, just use that.
             out.add(msg.retain());
         } else {
             ByteBuf buf = ctx.alloc().buffer(128);
             try {
                 BedrockPacket packet = msg.getPacket();
+                if (msg.getPacketBuffer() != null) {
+                    // The buffer holds the packet as it was before it was modified
+                    msg.getPacketBuffer().release();
+                    msg.setPacketBuffer(null);
+                }
                 msg.setPacketId(getPacketId(packet));
                 encodeHeader(buf, msg);
                 this.codec.tryEncode(helper, buf, packet);
 
                 msg.setPacketBuffer(buf.retain());
+                msg.setModified(false);
                 out.add(msg.retain());
             } catch (Throwable t) {
                 if (log.isDebugEnabled()) {
@@ -69,7 +76,12 @@ public abstract class BedrockPacketCodec extends MessageToMessageCodec<ByteBuf,
             int index = msg.readerIndex();
             this.decodeHeader(msg, wrapper);
             wrapper.setHeaderLength(msg.readerIndex() - index);
-            wrapper.setPacket(this.codec.tryDecode(helper, msg, wrapper.getPacketId(), this.inboundRecipient));
+            if (this.lazyDecoding) {
+                // Packet is only deserialized if something asks for it
+                wrapper.setLazyDecoder(this.codec, this.helper, this.inboundRecipient);
+            } else {
+                wrapper.setPacket(this.codec.tryDecode(helper, msg, wrapper.getPacketId(), this.inboundRecipient));
+            }
             out.add(wrapper.retain());
         } catch (Throwable t) {
             if (log.isDebugEnabled()) {
@@ -104,4 +116,18 @@ public abstract class BedrockPacketCodec extends MessageToMessageCodec<ByteBuf,
     public BedrockCodecHelper getHelper() {
         return helper;
     }
+
+    /**
+     * When enabled, inbound packets are not deserialized by the codec. {@link BedrockPacketWrapper#getPacket()}
+     * decodes them on first access instead, so packets nobody inspects are never deserialized.
+     *
+     * @param lazyDecoding whether to defer packet decoding
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
 }
@@ -0,0 +1,153 @@
+package org.cloudburstmc.protocol.bedrock.netty.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.cloudburstmc.protocol.common.util.Zlib;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import static org.junit.Assert.*;
+
+public class BatchCompressionTests {
+
+    private static final byte[] DATA = data(100_000);
+
+    private static final int MAX_DECOMPRESSED_BYTES = 1024 * 1024 * 10;
+
+    private final ChannelHandlerContext ctx = new EmbeddedChannel(new ChannelInboundHandlerAdapter()).pipeline().firstContext();
+
+    @Test
+    public void testSnappyRoundTrip() throws Exception {
+        assertRoundTrips(new SnappyCompression());
+    }
+
+    @Test
+    public void testZlibRoundTrip() throws Exception {
+        assertRoundTrips(new ZlibCompression(Zlib.RAW));
+        assertRoundTrips(new ZlibCompression(Zlib.DEFAULT));
+    }
+
+    @Test
+    public void testSnappyRejectsTruncatedInput() throws Exception {
+        assertRejectsTruncatedInput(new SnappyCompression());
+    }
+
+    @Test
+    public void testZlibRejectsTruncatedInput() throws Exception {
+        assertRejectsTruncatedInput(new ZlibCompression(Zlib.RAW));
+    }
+
+    @Test
+    public void testSnappyRejectsOversizedInput() throws Exception {
+        assertRejectsOversizedInput(new SnappyCompression());
+    }
+
+    @Test
+    public void testZlibRejectsOversizedInput() throws Exception {
+        assertRejectsOversizedInput(new ZlibCompression(Zlib.RAW));
+    }
+
+    private void assertRoundTrips(BatchCompression compression) throws Exception {
+        for (Input input : Input.values()) {
+            ByteBuf uncompressed = input.create(DATA);
+            int readerIndex = uncompressed.readerIndex();
+            ByteBuf compressed = compression.encode(this.ctx, uncompressed);
+            ByteBuf source = input.create(ByteBufUtil.getBytes(compressed));
+            ByteBuf decompressed = compression.decode(this.ctx, source);
+            try {
+                assertEquals(input.toString(), readerIndex, uncompressed.readerIndex());
+                assertArrayEquals(input.toString(), DATA, ByteBufUtil.getBytes(decompressed));
+            } finally {
+                decompressed.release();
+                source.release();
+                compressed.release();
+                uncompressed.release();
+            }
+        }
+    }
+
+    private void assertRejectsTruncatedInput(BatchCompression compression) throws Exception {
+        ByteBuf compressed = compression.encode(this.ctx, Unpooled.wrappedBuffer(DATA));
+        byte[] bytes = ByteBufUtil.getBytes(compressed);
+        compressed.release();
+
+        for (int length : new int[]{bytes.length - 1, bytes.length / 2}) {
+            for (Input input : Input.values()) {
+                ByteBuf source = input.create(Arrays.copyOf(bytes, length));
+                try {
+                    compression.decode(this.ctx, source).release();
+                    fail("Truncated " + input + " input of " + length + " bytes was decompressed");
+                } catch (DataFormatException | RuntimeException expected) {
+                    // Snappy reports malformed input with an unchecked exception
+                } finally {
+                    source.release();
+                }
+            }
+        }
+    }
+
+    private void assertRejectsOversizedInput(BatchCompression compression) throws Exception {
+        ByteBuf compressed = compression.encode(this.ctx, Unpooled.wrappedBuffer(new byte[MAX_DECOMPRESSED_BYTES + 1]));
+        byte[] bytes = ByteBufUtil.getBytes(compressed);
+        compressed.release();
+
+        for (Input input : Input.values()) {
+            ByteBuf source = input.create(bytes);
+            try {
+                compression.decode(this.ctx, source).release();
+                fail("Input over the size limit was decompressed from " + input);
+            } catch (DataFormatException expected) {
+            } finally {
+                source.release();
+            }
+        }
+    }
+
+    private static byte[] data(int length) {
+        Random random = new Random(1234);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (random.nextInt(16) + (i / 1000));
+        }
+        return data;
+    }
+
+    private enum Input {
+        HEAP {
+            @Override
+            ByteBuf create(byte[] data) {
+                ByteBuf buffer = Unpooled.buffer(data.length + 7);
+                buffer.writeZero(7);
+                buffer.writeBytes(data);
+                return buffer.skipBytes(7);
+            }
+        },
+        DIRECT {
+            @Override
+            ByteBuf create(byte[] data) {
+                ByteBuf buffer = Unpooled.directBuffer(data.length + 7);
+                buffer.writeZero(7);
+                buffer.writeBytes(data);
+                return buffer.skipBytes(7);
+            }
+        },
+        COMPOSITE {
+            @Override
+            ByteBuf create(byte[] data) {
+                int half = data.length / 2;
+                ByteBuf direct = Unpooled.directBuffer(data.length - half);
+                direct.writeBytes(data, half, data.length - half);
+                return Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(data, 0, half), direct);
+            }
+        };
+
+        abstract ByteBuf create(byte[] data);
+    }
+}
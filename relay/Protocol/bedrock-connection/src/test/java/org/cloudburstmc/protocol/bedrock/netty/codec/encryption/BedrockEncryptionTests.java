@@ -0,0 +1,192 @@
+package org.cloudburstmc.protocol.bedrock.netty.codec.encryption;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import org.cloudburstmc.protocol.bedrock.netty.BedrockBatchWrapper;
+import org.cloudburstmc.protocol.bedrock.util.EncryptionUtils;
+import org.junit.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class BedrockEncryptionTests {
+
+    private static final SecretKey KEY = new SecretKeySpec(bytes(32, 1), "AES");
+
+    @Test
+    public void testInPlaceRoundTrip() {
+        for (boolean ctr : new boolean[]{true, false}) {
+            Pipeline pipeline = new Pipeline(ctr, true);
+            for (int i = 0; i < 3; i++) {
+                byte[] payload = bytes(1000 + i, i);
+                ByteBuf buffer = Unpooled.buffer(payload.length).writeBytes(payload);
+
+                byte[] encrypted = pipeline.encrypt(buffer, batch -> {
+                    // Encrypted where it was, with the trailer appended
+                    assertSame(buffer, batch.getCompressed());
+                    return ByteBufUtil.getBytes(batch.getCompressed());
+                });
+                assertEquals(payload.length + EncryptionTrailer.LENGTH, encrypted.length);
+                assertArrayEquals(payload, pipeline.decrypt(encrypted));
+            }
+            pipeline.finish();
+        }
+    }
+
+    @Test
+    public void testRetainedBufferIsCopied() {
+        assertCopied(payload -> {
+            ByteBuf buffer = Unpooled.buffer(payload.length).writeBytes(payload);
+            return new Input(buffer.retain(), buffer);
+        });
+    }
+
+    @Test
+    public void testDerivedBufferIsCopied() {
+        assertCopied(payload -> {
+            ByteBuf buffer = Unpooled.buffer(payload.length + 16).writeBytes(payload).writeZero(16);
+            return new Input(buffer.retainedSlice(0, payload.length), buffer);
+        });
+    }
+
+    @Test
+    public void testReadOnlyBufferIsCopied() {
+        assertCopied(payload -> {
+            ByteBuf buffer = Unpooled.buffer(payload.length + 16).writeBytes(payload);
+            return new Input(buffer.asReadOnly().retain(), buffer);
+        });
+    }
+
+    @Test
+    public void testFullBufferIsCopied() {
+        assertCopied(payload -> {
+            ByteBuf buffer = Unpooled.buffer(payload.length + 4, payload.length + 4).writeZero(4).writeBytes(payload);
+            buffer.skipBytes(4);
+            // Nothing else holds it, but it can not grow by the trailer
+            return new Input(buffer, null);
+        });
+    }
+
+    @Test
+    public void testTamperedTrailerIsRejected() {
+        Pipeline pipeline = new Pipeline(true, true);
+        byte[] payload = bytes(1000, 7);
+        byte[] encrypted = pipeline.encrypt(Unpooled.buffer().writeBytes(payload), batch -> ByteBufUtil.getBytes(batch.getCompressed()));
+        encrypted[encrypted.length - 1] ^= 1;
+        try {
+            pipeline.decrypt(encrypted);
+            fail("Tampered trailer was accepted");
+        } catch (CorruptedFrameException expected) {
+        }
+        pipeline.finish();
+    }
+
+    @Test
+    public void testTrailerValidationIsOptional() {
+        Pipeline pipeline = new Pipeline(true, false);
+        byte[] payload = bytes(1000, 7);
+        byte[] encrypted = pipeline.encrypt(Unpooled.buffer().writeBytes(payload), batch -> ByteBufUtil.getBytes(batch.getCompressed()));
+        encrypted[encrypted.length - 1] ^= 1;
+        assertArrayEquals(payload, pipeline.decrypt(encrypted));
+        pipeline.finish();
+    }
+
+    @Test
+    public void testTrailerCoversCounter() {
+        EncryptionTrailer sender = new EncryptionTrailer(KEY);
+        EncryptionTrailer receiver = new EncryptionTrailer(KEY);
+        ByteBuf payload = Unpooled.wrappedBuffer(bytes(100, 3));
+
+        ByteBuf first = Unpooled.buffer().writeBytes(sender.next(payload));
+        ByteBuf second = Unpooled.buffer().writeBytes(sender.next(payload));
+        assertNotEquals(first, second);
+
+        // The same payload and trailer are rejected when replayed
+        assertTrue(receiver.verify(payload, first));
+        assertFalse(receiver.verify(payload, first));
+        assertFalse(new EncryptionTrailer(KEY).verify(payload, first.slice(0, EncryptionTrailer.LENGTH - 1)));
+    }
+
+    private static void assertCopied(Function<byte[], Input> inputs) {
+        for (boolean ctr : new boolean[]{true, false}) {
+            Pipeline pipeline = new Pipeline(ctr, true);
+            for (int i = 0; i < 3; i++) {
+                byte[] payload = bytes(1000 + i, i);
+                Input input = inputs.apply(payload);
+
+                byte[] encrypted = pipeline.encrypt(input.buffer, batch -> {
+                    assertNotSame(input.buffer, batch.getCompressed());
+                    return ByteBufUtil.getBytes(batch.getCompressed());
+                });
+                assertEquals(payload.length + EncryptionTrailer.LENGTH, encrypted.length);
+                assertArrayEquals(payload, pipeline.decrypt(encrypted));
+
+                if (input.shared != null) {
+                    // Whoever else holds the memory still sees the plain payload
+                    assertArrayEquals(payload, ByteBufUtil.getBytes(input.shared, 0, payload.length));
+                    assertTrue(input.shared.release());
+                }
+            }
+            pipeline.finish();
+        }
+    }
+
+    private static byte[] bytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final class Input {
+        private final ByteBuf buffer;
+        private final ByteBuf shared;
+
+        private Input(ByteBuf buffer, ByteBuf shared) {
+            this.buffer = buffer;
+            this.shared = shared;
+        }
+    }
+
+    private static final class Pipeline {
+        private final EmbeddedChannel encoder;
+        private final EmbeddedChannel decoder;
+
+        private Pipeline(boolean ctr, boolean validate) {
+            this.encoder = new EmbeddedChannel(new BedrockEncryptionEncoder(KEY, EncryptionUtils.createCipher(ctr, true, KEY)));
+            this.decoder = new EmbeddedChannel(new BedrockEncryptionDecoder(KEY, EncryptionUtils.createCipher(ctr, false, KEY), validate));
+        }
+
+        private <T> T encrypt(ByteBuf compressed, Function<BedrockBatchWrapper, T> inspect) {
+            assertTrue(this.encoder.writeOutbound(BedrockBatchWrapper.newInstance(compressed, null)));
+            BedrockBatchWrapper batch = this.encoder.readOutbound();
+            try {
+                return inspect.apply(batch);
+            } finally {
+                batch.release();
+            }
+        }
+
+        private byte[] decrypt(byte[] encrypted) {
+            ByteBuf compressed = Unpooled.copiedBuffer(encrypted);
+            assertTrue(this.decoder.writeInbound(BedrockBatchWrapper.newInstance(compressed, null)));
+            BedrockBatchWrapper batch = this.decoder.readInbound();
+            try {
+                return ByteBufUtil.getBytes(batch.getCompressed());
+            } finally {
+                batch.release();
+            }
+        }
+
+        private void finish() {
+            assertFalse(this.encoder.finish());
+            assertFalse(this.decoder.finish());
+        }
+    }
+}
@@ -19,4 +19,7 @@ dependencies {
     api(libs.fastutil.int.obj.maps)
     api(libs.fastutil.obj.int.maps)
     api(libs.math)
+
+    // Tests
+    testImplementation(libs.junit)
 }
\ No newline at end of file
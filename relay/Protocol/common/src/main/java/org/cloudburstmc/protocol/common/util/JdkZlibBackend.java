@@ -0,0 +1,297 @@
+package org.cloudburstmc.protocol.common.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * {@link ZlibBackend} using the {@link Inflater} and {@link Deflater} of the running JDK.
+ * <p>
+ * On Java 11 and later the buffers are handed to the JDK as {@link ByteBuffer}s, so direct buffers are
+ * (de)compressed in place. Older runtimes, including older Android versions, only accept byte arrays and
+ * direct buffers are copied through a heap array instead.
+ */
+public abstract class JdkZlibBackend implements ZlibBackend {
+
+    private static final int CHUNK = 8192;
+
+    private final FastThreadLocal<Inflater> inflaterLocal = new FastThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(false);
+        }
+    };
+    private final FastThreadLocal<Inflater> rawInflaterLocal = new FastThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+    private final FastThreadLocal<Deflater> deflaterLocal = new FastThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(7, false);
+        }
+    };
+    private final FastThreadLocal<Deflater> rawDeflaterLocal = new FastThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(7, true);
+        }
+    };
+
+    /**
+     * Creates the fastest backend the running JDK supports.
+     */
+    public static JdkZlibBackend create() {
+        if (isByteBufferSupported()) {
+            return new Nio();
+        }
+        return new Array();
+    }
+
+    static boolean isByteBufferSupported() {
+        try {
+            Inflater.class.getMethod("setInput", ByteBuffer.class);
+            Inflater.class.getMethod("inflate", ByteBuffer.class);
+            Deflater.class.getMethod("setInput", ByteBuffer.class);
+            Deflater.class.getMethod("deflate", ByteBuffer.class);
+            Class.forName("java.lang.invoke.MethodHandles");
+            return true;
+        } catch (NoSuchMethodException | ClassNotFoundException | SecurityException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public ByteBuf inflate(ByteBuf buffer, boolean raw, int maxSize) throws DataFormatException {
+        ByteBuf source = null;
+        ByteBuf decompressed = ByteBufAllocator.DEFAULT.ioBuffer();
+
+        try {
+            source = this.singleNioBuffer(buffer);
+
+            Inflater inflater = raw ? this.rawInflaterLocal.get() : this.inflaterLocal.get();
+            inflater.reset();
+            this.setInput(inflater, source.internalNioBuffer(source.readerIndex(), source.readableBytes()));
+
+            while (!inflater.finished()) {
+                decompressed.ensureWritable(CHUNK);
+                int index = decompressed.writerIndex();
+                int written = this.inflate(inflater, decompressed.internalNioBuffer(index, CHUNK));
+                if (written < 1) {
+                    break;
+                }
+                decompressed.writerIndex(index + written);
+                if (maxSize > 0 && decompressed.writerIndex() >= maxSize) {
+                    throw new DataFormatException("Inflated data exceeds maximum size");
+                }
+            }
+            if (!inflater.finished()) {
+                // The inflater ran out of input before the end of the stream
+                throw new DataFormatException("Compressed data is truncated");
+            }
+            return decompressed;
+        } catch (DataFormatException e) {
+            decompressed.release();
+            throw e;
+        } finally {
+            if (source != null && source != buffer) {
+                source.release();
+            }
+        }
+    }
+
+    @Override
+    public void deflate(ByteBuf uncompressed, ByteBuf compressed, boolean raw, int level) throws DataFormatException {
+        ByteBuf source = null;
+        try {
+            source = this.singleNioBuffer(uncompressed);
+
+            Deflater deflater = raw ? this.rawDeflaterLocal.get() : this.deflaterLocal.get();
+            deflater.reset();
+            deflater.setLevel(level);
+            this.setInput(deflater, source.internalNioBuffer(source.readerIndex(), source.readableBytes()));
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                compressed.ensureWritable(CHUNK);
+                int index = compressed.writerIndex();
+                int written = this.deflate(deflater, compressed.internalNioBuffer(index, CHUNK));
+                compressed.writerIndex(index + written);
+            }
+        } finally {
+            if (source != null && source != uncompressed) {
+                source.release();
+            }
+        }
+    }
+
+    private ByteBuf singleNioBuffer(ByteBuf buffer) {
+        if (buffer.nioBufferCount() == 1) {
+            return buffer;
+        }
+        // Composite buffers can not be exposed as a single ByteBuffer
+        ByteBuf copy = ByteBufAllocator.DEFAULT.ioBuffer(buffer.readableBytes());
+        copy.writeBytes(buffer, buffer.readerIndex(), buffer.readableBytes());
+        return copy;
+    }
+
+    protected abstract void setInput(Inflater inflater, ByteBuffer input);
+
+    /**
+     * @return number of bytes written to the output, its position is not required to be updated
+     */
+    protected abstract int inflate(Inflater inflater, ByteBuffer output) throws DataFormatException;
+
+    protected abstract void setInput(Deflater deflater, ByteBuffer input);
+
+    /**
+     * @return number of bytes written to the output, its position is not required to be updated
+     */
+    protected abstract int deflate(Deflater deflater, ByteBuffer output);
+
+    /**
+     * Passes buffers to the {@link ByteBuffer} overloads added in Java 11. The overloads are looked up at runtime as
+     * this module targets Java 8.
+     */
+    static final class Nio extends JdkZlibBackend {
+        private static final MethodHandle INFLATER_SET_INPUT;
+        private static final MethodHandle INFLATER_INFLATE;
+        private static final MethodHandle DEFLATER_SET_INPUT;
+        private static final MethodHandle DEFLATER_DEFLATE;
+
+        static {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            try {
+                INFLATER_SET_INPUT = lookup.findVirtual(Inflater.class, "setInput", MethodType.methodType(void.class, ByteBuffer.class));
+                INFLATER_INFLATE = lookup.findVirtual(Inflater.class, "inflate", MethodType.methodType(int.class, ByteBuffer.class));
+                DEFLATER_SET_INPUT = lookup.findVirtual(Deflater.class, "setInput", MethodType.methodType(void.class, ByteBuffer.class));
+                DEFLATER_DEFLATE = lookup.findVirtual(Deflater.class, "deflate", MethodType.methodType(int.class, ByteBuffer.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        @Override
+        protected void setInput(Inflater inflater, ByteBuffer input) {
+            try {
+                INFLATER_SET_INPUT.invokeExact(inflater, input);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        @Override
+        protected int inflate(Inflater inflater, ByteBuffer output) throws DataFormatException {
+            try {
+                return (int) INFLATER_INFLATE.invokeExact(inflater, output);
+            } catch (DataFormatException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        @Override
+        protected void setInput(Deflater deflater, ByteBuffer input) {
+            try {
+                DEFLATER_SET_INPUT.invokeExact(deflater, input);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        @Override
+        protected int deflate(Deflater deflater, ByteBuffer output) {
+            try {
+                return (int) DEFLATER_DEFLATE.invokeExact(deflater, output);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    /**
+     * Uses the byte array methods available on every JDK and Android version.
+     */
+    static final class Array extends JdkZlibBackend {
+        private final FastThreadLocal<byte[]> chunkBytes = new FastThreadLocal<byte[]>() {
+            @Override
+            protected byte[] initialValue() {
+                return new byte[CHUNK];
+            }
+        };
+
+        @Override
+        protected void setInput(Inflater inflater, ByteBuffer input) {
+            if (input.hasArray()) {
+                inflater.setInput(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            } else {
+                byte[] bytes = new byte[input.remaining()];
+                input.get(bytes);
+                inflater.setInput(bytes);
+            }
+        }
+
+        @Override
+        protected int inflate(Inflater inflater, ByteBuffer output) throws DataFormatException {
+            if (output.hasArray()) {
+                return inflater.inflate(output.array(), output.arrayOffset() + output.position(), output.remaining());
+            } else {
+                int startPos = output.position();
+                byte[] chunkBytes = this.chunkBytes.get();
+                while (output.remaining() > 0 && !inflater.finished()) {
+                    int length = Math.min(output.remaining(), CHUNK);
+                    int result = inflater.inflate(chunkBytes, 0, length);
+                    if (result < 1) {
+                        break;
+                    }
+                    output.put(chunkBytes, 0, result);
+                }
+                return output.position() - startPos;
+            }
+        }
+
+        @Override
+        protected void setInput(Deflater deflater, ByteBuffer input) {
+            if (input.hasArray()) {
+                deflater.setInput(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            } else {
+                byte[] bytes = new byte[input.remaining()];
+                input.get(bytes);
+                deflater.setInput(bytes);
+            }
+        }
+
+        @Override
+        protected int deflate(Deflater deflater, ByteBuffer output) {
+            if (output.hasArray()) {
+                return deflater.deflate(output.array(), output.arrayOffset() + output.position(), output.remaining());
+            } else {
+                int startPos = output.position();
+                byte[] chunkBytes = this.chunkBytes.get();
+                while (output.remaining() > 0 && !deflater.finished()) {
+                    int length = Math.min(output.remaining(), CHUNK);
+                    int result = deflater.deflate(chunkBytes, 0, length);
+                    output.put(chunkBytes, 0, result);
+                }
+                return output.position() - startPos;
+            }
+        }
+    }
+}
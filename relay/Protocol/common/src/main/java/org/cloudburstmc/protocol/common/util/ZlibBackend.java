@@ -0,0 +1,44 @@
+package org.cloudburstmc.protocol.common.util;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * Performs the actual (de)compression for {@link Zlib}.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader}, so a native backend such as libdeflate can be
+ * plugged in by shipping it on the classpath. The first backend reporting itself as available is used, otherwise
+ * {@link Zlib} falls back to {@link JdkZlibBackend}.
+ */
+public interface ZlibBackend {
+
+    /**
+     * Inflates the readable bytes of the buffer without modifying its indexes.
+     *
+     * @param buffer  compressed data
+     * @param raw     whether the data is raw deflate data rather than zlib wrapped
+     * @param maxSize maximum number of inflated bytes, or 0 or less for no limit
+     * @return newly allocated buffer holding the inflated data
+     * @throws DataFormatException if the data is malformed or inflates past maxSize
+     */
+    ByteBuf inflate(ByteBuf buffer, boolean raw, int maxSize) throws DataFormatException;
+
+    /**
+     * Deflates the readable bytes of the uncompressed buffer and writes them to the compressed buffer.
+     *
+     * @param uncompressed data to compress, its indexes are not modified
+     * @param compressed   buffer to write the compressed data to
+     * @param raw          whether to write raw deflate data rather than zlib wrapped
+     * @param level        compression level from 0 to 9
+     * @throws DataFormatException if the data could not be compressed
+     */
+    void deflate(ByteBuf uncompressed, ByteBuf compressed, boolean raw, int level) throws DataFormatException;
+
+    /**
+     * @return whether this backend can be used on the current platform
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+}
@@ -0,0 +1,222 @@
+package org.cloudburstmc.protocol.common.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+public class JdkZlibBackendTests {
+
+    // Spans several inflate and deflate chunks
+    private static final byte[] DATA = data(100_000);
+
+    @Test
+    public void testNioRoundTrip() throws Exception {
+        Assume.assumeTrue("ByteBuffer overloads need Java 11", JdkZlibBackend.isByteBufferSupported());
+        assertRoundTrips(new JdkZlibBackend.Nio());
+    }
+
+    @Test
+    public void testArrayRoundTrip() throws Exception {
+        assertRoundTrips(new JdkZlibBackend.Array());
+    }
+
+    @Test
+    public void testNioRejectsTruncatedInput() throws Exception {
+        Assume.assumeTrue("ByteBuffer overloads need Java 11", JdkZlibBackend.isByteBufferSupported());
+        assertRejectsTruncatedInput(new JdkZlibBackend.Nio());
+    }
+
+    @Test
+    public void testArrayRejectsTruncatedInput() throws Exception {
+        assertRejectsTruncatedInput(new JdkZlibBackend.Array());
+    }
+
+    @Test
+    public void testNioRejectsOversizedInput() throws Exception {
+        Assume.assumeTrue("ByteBuffer overloads need Java 11", JdkZlibBackend.isByteBufferSupported());
+        assertRejectsOversizedInput(new JdkZlibBackend.Nio());
+    }
+
+    @Test
+    public void testArrayRejectsOversizedInput() throws Exception {
+        assertRejectsOversizedInput(new JdkZlibBackend.Array());
+    }
+
+    @Test
+    public void testZlibUsesAvailableBackend() throws Exception {
+        ByteBuf compressed = Unpooled.buffer();
+        Zlib.RAW.deflate(Unpooled.wrappedBuffer(DATA), compressed, 7);
+        ByteBuf inflated = Zlib.RAW.inflate(compressed, DATA.length + 1);
+        try {
+            assertArrayEquals(DATA, ByteBufUtil.getBytes(inflated));
+        } finally {
+            inflated.release();
+            compressed.release();
+        }
+    }
+
+    private static void assertRoundTrips(JdkZlibBackend backend) throws Exception {
+        for (boolean raw : new boolean[]{true, false}) {
+            for (Input input : Input.values()) {
+                for (Input output : new Input[]{Input.HEAP, Input.DIRECT}) {
+                    ByteBuf uncompressed = input.create(DATA);
+                    int readerIndex = uncompressed.readerIndex();
+                    ByteBuf compressed = output.empty();
+                    backend.deflate(uncompressed, compressed, raw, 7);
+                    assertEquals(readerIndex, uncompressed.readerIndex());
+
+                    // The output is plain deflate data, which any inflater reads
+                    String message = input + " to " + output + (raw ? " raw" : " zlib");
+                    assertArrayEquals(message, DATA, jdkInflate(ByteBufUtil.getBytes(compressed), raw));
+
+                    ByteBuf source = input.create(ByteBufUtil.getBytes(compressed));
+                    int compressedReaderIndex = source.readerIndex();
+                    ByteBuf inflated = backend.inflate(source, raw, 0);
+                    try {
+                        assertArrayEquals(message, DATA, ByteBufUtil.getBytes(inflated));
+                        assertEquals(compressedReaderIndex, source.readerIndex());
+                    } finally {
+                        inflated.release();
+                        source.release();
+                        compressed.release();
+                        uncompressed.release();
+                    }
+                }
+            }
+
+            // Data compressed elsewhere inflates as well
+            for (Input input : Input.values()) {
+                ByteBuf source = input.create(jdkDeflate(DATA, raw));
+                ByteBuf inflated = backend.inflate(source, raw, DATA.length + 1);
+                try {
+                    assertArrayEquals(DATA, ByteBufUtil.getBytes(inflated));
+                } finally {
+                    inflated.release();
+                    source.release();
+                }
+            }
+        }
+    }
+
+    private static void assertRejectsTruncatedInput(JdkZlibBackend backend) throws Exception {
+        for (boolean raw : new boolean[]{true, false}) {
+            byte[] compressed = jdkDeflate(DATA, raw);
+            for (int length : new int[]{compressed.length - 1, compressed.length / 2, 1}) {
+                for (Input input : Input.values()) {
+                    ByteBuf source = input.create(Arrays.copyOf(compressed, length));
+                    try {
+                        backend.inflate(source, raw, 0).release();
+                        fail("Truncated " + input + " input of " + length + " bytes was inflated");
+                    } catch (DataFormatException expected) {
+                    } finally {
+                        source.release();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertRejectsOversizedInput(JdkZlibBackend backend) throws Exception {
+        for (boolean raw : new boolean[]{true, false}) {
+            byte[] compressed = jdkDeflate(DATA, raw);
+            for (Input input : Input.values()) {
+                ByteBuf source = input.create(compressed);
+                try {
+                    backend.inflate(source, raw, DATA.length / 2).release();
+                    fail("Input over the size limit was inflated from " + input);
+                } catch (DataFormatException expected) {
+                } finally {
+                    source.release();
+                }
+            }
+        }
+    }
+
+    private static byte[] data(int length) {
+        // Compressible, but not so much that a single chunk holds it
+        Random random = new Random(1234);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (random.nextInt(16) + (i / 1000));
+        }
+        return data;
+    }
+
+    private static byte[] jdkDeflate(byte[] data, boolean raw) {
+        Deflater deflater = new Deflater(7, raw);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] jdkInflate(byte[] data, boolean raw) throws DataFormatException {
+        Inflater inflater = new Inflater(raw);
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        while (!inflater.finished()) {
+            int length = inflater.inflate(chunk);
+            if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("Truncated");
+            }
+            out.write(chunk, 0, length);
+        }
+        inflater.end();
+        return out.toByteArray();
+    }
+
+    private enum Input {
+        HEAP {
+            @Override
+            ByteBuf create(byte[] data) {
+                // Offset into the array, so array offsets are honoured
+                ByteBuf buffer = Unpooled.buffer(data.length + 7);
+                buffer.writeZero(7);
+                buffer.writeBytes(data);
+                return buffer.skipBytes(7);
+            }
+        },
+        DIRECT {
+            @Override
+            ByteBuf create(byte[] data) {
+                ByteBuf buffer = Unpooled.directBuffer(data.length + 7);
+                buffer.writeZero(7);
+                buffer.writeBytes(data);
+                return buffer.skipBytes(7);
+            }
+        },
+        COMPOSITE {
+            @Override
+            ByteBuf create(byte[] data) {
+                // Heap and direct components, which can not be exposed as a single ByteBuffer
+                int half = data.length / 2;
+                ByteBuf direct = Unpooled.directBuffer(data.length - half);
+                direct.writeBytes(data, half, data.length - half);
+                return Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(data, 0, half), direct);
+            }
+        };
+
+        abstract ByteBuf create(byte[] data);
+
+        ByteBuf empty() {
+            return this == DIRECT ? Unpooled.directBuffer() : Unpooled.buffer();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+plugins {
+    id("java")
+    alias(libs.plugins.jmh)
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
+
+dependencies {
+    jmhImplementation(project(":relay:Protocol:bedrock-connection"))
+    jmhImplementation(libs.bundles.netty)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // The gc profiler reports gc.alloc.rate.norm (bytes allocated per operation) next to throughput
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // Captured packet payloads can be supplied with -PbenchmarkCorpus=<dir>, see PacketCorpus
+    findProperty("benchmarkCorpus")?.let {
+        jvmArgsAppend.add("-Dnovarelay.benchmarks.corpus=$it")
+    }
+}
@@ -0,0 +1,64 @@
+package com.radiantbyte.novarelay.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import org.cloudburstmc.protocol.bedrock.codec.BedrockCodecHelper;
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code BedrockCodec#tryDecode} and {@code BedrockCodec#tryEncode} for each packet in the
+ * {@link PacketCorpus}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark {
+
+    @Param({"LevelChunk", "SubChunk", "MoveEntityDelta", "PlayerAuthInput",
+            "SetEntityData", "StartGame", "CraftingData", "BiomeDefinitionList"})
+    public String packet;
+
+    private BedrockCodecHelper helper;
+    private int packetId;
+    private ByteBuf encoded;
+    private ByteBuf output;
+    private BedrockPacket decoded;
+
+    @Setup
+    public void setup() {
+        this.helper = PacketCorpus.createHelper();
+        this.packetId = PacketCorpus.packetId(this.packet);
+
+        byte[] payload = PacketCorpus.payload(this.packet);
+        this.encoded = PooledByteBufAllocator.DEFAULT.directBuffer(payload.length);
+        this.encoded.writeBytes(payload);
+        this.output = PooledByteBufAllocator.DEFAULT.directBuffer(payload.length * 2);
+        this.decoded = PacketCorpus.CODEC.tryDecode(this.helper, this.encoded.duplicate(), this.packetId);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ReferenceCountUtil.release(this.decoded);
+        this.encoded.release();
+        this.output.release();
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) {
+        BedrockPacket packet = PacketCorpus.CODEC.tryDecode(this.helper, this.encoded.duplicate(), this.packetId);
+        blackhole.consume(packet);
+        ReferenceCountUtil.release(packet);
+    }
+
+    @Benchmark
+    public int encode() {
+        this.output.clear();
+        PacketCorpus.CODEC.tryEncode(this.helper, this.output, this.decoded);
+        return this.output.writerIndex();
+    }
+}
@@ -0,0 +1,117 @@
+package com.radiantbyte.novarelay.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.cloudburstmc.protocol.bedrock.netty.BedrockBatchWrapper;
+import org.cloudburstmc.protocol.bedrock.netty.codec.encryption.BedrockEncryptionDecoder;
+import org.cloudburstmc.protocol.bedrock.netty.codec.encryption.BedrockEncryptionEncoder;
+import org.cloudburstmc.protocol.bedrock.util.EncryptionUtils;
+import org.cloudburstmc.protocol.common.util.Zlib;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BedrockEncryptionEncoder} and {@link BedrockEncryptionDecoder} over a compressed batch holding
+ * every packet in the {@link PacketCorpus}. Both handlers run in an {@link EmbeddedChannel} so the benchmark goes
+ * through the same pipeline path as a live connection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EncryptionBenchmark {
+
+    /**
+     * AES/CTR as used by current clients, or AES/CFB8 as used before 1.16.210.
+     */
+    @Param({"true", "false"})
+    public boolean ctr;
+
+    private EmbeddedChannel encoderChannel;
+    private EmbeddedChannel decoderChannel;
+    private ByteBuf compressed;
+    private ByteBuf input;
+
+    @Setup
+    public void setup() throws Exception {
+        byte[] keyBytes = new byte[32];
+        new Random(844).nextBytes(keyBytes);
+        SecretKey key = new SecretKeySpec(keyBytes, "AES");
+
+        this.encoderChannel = new EmbeddedChannel(
+                new BedrockEncryptionEncoder(key, EncryptionUtils.createCipher(this.ctr, true, key)));
+        this.decoderChannel = new EmbeddedChannel(
+                new BedrockEncryptionDecoder(key, EncryptionUtils.createCipher(this.ctr, false, key)));
+
+        byte[] batch = PacketCorpus.batch();
+        ByteBuf uncompressed = PooledByteBufAllocator.DEFAULT.directBuffer(batch.length);
+        try {
+            uncompressed.writeBytes(batch);
+            this.compressed = PooledByteBufAllocator.DEFAULT.directBuffer(batch.length);
+            Zlib.RAW.deflate(uncompressed, this.compressed, 7);
+        } finally {
+            uncompressed.release();
+        }
+    }
+
+    /**
+     * Copies the batch into a buffer with a reference count of one, which the encoder may encrypt in place like a
+     * freshly compressed batch. The copy is handed over to the channel and released there.
+     */
+    @Setup(Level.Invocation)
+    public void copyInput() {
+        int length = this.compressed.readableBytes();
+        // Leaves room for the 8 byte trailer, so the encoder does not have to grow the buffer
+        this.input = PooledByteBufAllocator.DEFAULT.directBuffer(length + 8);
+        this.input.writeBytes(this.compressed, this.compressed.readerIndex(), length);
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseInput() {
+        if (this.input != null) {
+            this.input.release();
+            this.input = null;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.compressed.release();
+        this.encoderChannel.finishAndReleaseAll();
+        this.decoderChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encrypt() {
+        this.encoderChannel.writeOutbound(BedrockBatchWrapper.newInstance(this.takeInput(), null));
+        BedrockBatchWrapper batch = this.encoderChannel.readOutbound();
+        try {
+            return batch.getCompressed().readableBytes();
+        } finally {
+            batch.release();
+        }
+    }
+
+    @Benchmark
+    public int decrypt() {
+        // The input is not a real ciphertext. The cipher cost does not depend on the contents and the trailer is only
+        // checked with cloudburst.validateEncryption.
+        this.decoderChannel.writeInbound(BedrockBatchWrapper.newInstance(this.takeInput(), null));
+        BedrockBatchWrapper batch = this.decoderChannel.readInbound();
+        try {
+            return batch.getCompressed().readableBytes();
+        } finally {
+            batch.release();
+        }
+    }
+
+    private ByteBuf takeInput() {
+        ByteBuf input = this.input;
+        this.input = null;
+        return input;
+    }
+}
@@ -0,0 +1,415 @@
+package com.radiantbyte.novarelay.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import org.cloudburstmc.math.vector.Vector2f;
+import org.cloudburstmc.math.vector.Vector3f;
+import org.cloudburstmc.math.vector.Vector3i;
+import org.cloudburstmc.nbt.NbtList;
+import org.cloudburstmc.nbt.NbtMap;
+import org.cloudburstmc.nbt.NbtType;
+import org.cloudburstmc.protocol.bedrock.codec.BedrockCodec;
+import org.cloudburstmc.protocol.bedrock.codec.BedrockCodecHelper;
+import org.cloudburstmc.protocol.bedrock.codec.v844.Bedrock_v844;
+import org.cloudburstmc.protocol.bedrock.data.*;
+import org.cloudburstmc.protocol.bedrock.data.biome.BiomeDefinitionData;
+import org.cloudburstmc.protocol.bedrock.data.biome.BiomeDefinitions;
+import org.cloudburstmc.protocol.bedrock.data.definitions.BlockDefinition;
+import org.cloudburstmc.protocol.bedrock.data.definitions.ItemDefinition;
+import org.cloudburstmc.protocol.bedrock.data.definitions.SimpleBlockDefinition;
+import org.cloudburstmc.protocol.bedrock.data.definitions.SimpleItemDefinition;
+import org.cloudburstmc.protocol.bedrock.data.entity.EntityDataTypes;
+import org.cloudburstmc.protocol.bedrock.data.entity.EntityFlag;
+import org.cloudburstmc.protocol.bedrock.data.inventory.ItemData;
+import org.cloudburstmc.protocol.bedrock.data.inventory.crafting.ContainerMixData;
+import org.cloudburstmc.protocol.bedrock.data.inventory.crafting.CraftingDataType;
+import org.cloudburstmc.protocol.bedrock.data.inventory.crafting.PotionMixData;
+import org.cloudburstmc.protocol.bedrock.data.inventory.crafting.recipe.FurnaceRecipeData;
+import org.cloudburstmc.protocol.bedrock.packet.*;
+import org.cloudburstmc.protocol.common.Definition;
+import org.cloudburstmc.protocol.common.DefinitionRegistry;
+import org.cloudburstmc.protocol.common.util.OptionalBoolean;
+import org.cloudburstmc.protocol.common.util.VarInts;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Packet payloads used by the codec and compression benchmarks.
+ * <p>
+ * If the {@value #CORPUS_PROPERTY} system property points to a directory, a file named {@code <Name>.bin} in it
+ * (for example {@code LevelChunk.bin}) is used as the payload for that packet. The file holds a single packet body
+ * as it appears in a decompressed batch after the packet header, captured from a {@value #CODEC_NAME} server.
+ * Packets without a captured payload fall back to a synthetic packet shaped like the vanilla one.
+ */
+public final class PacketCorpus {
+
+    public static final String CORPUS_PROPERTY = "novarelay.benchmarks.corpus";
+    public static final BedrockCodec CODEC = Bedrock_v844.CODEC;
+
+    static final String CODEC_NAME = "v844";
+
+    public static final String[] PACKETS = {
+            "LevelChunk", "SubChunk", "MoveEntityDelta", "PlayerAuthInput",
+            "SetEntityData", "StartGame", "CraftingData", "BiomeDefinitionList"
+    };
+
+    private static final Map<String, Class<? extends BedrockPacket>> PACKET_CLASSES = new HashMap<>();
+
+    static {
+        PACKET_CLASSES.put("LevelChunk", LevelChunkPacket.class);
+        PACKET_CLASSES.put("SubChunk", SubChunkPacket.class);
+        PACKET_CLASSES.put("MoveEntityDelta", MoveEntityDeltaPacket.class);
+        PACKET_CLASSES.put("PlayerAuthInput", PlayerAuthInputPacket.class);
+        PACKET_CLASSES.put("SetEntityData", SetEntityDataPacket.class);
+        PACKET_CLASSES.put("StartGame", StartGamePacket.class);
+        PACKET_CLASSES.put("CraftingData", CraftingDataPacket.class);
+        PACKET_CLASSES.put("BiomeDefinitionList", BiomeDefinitionListPacket.class);
+    }
+
+    private PacketCorpus() {
+    }
+
+    /**
+     * Creates a codec helper that accepts every item and block runtime id, so captured payloads decode without
+     * the server's item and block palettes.
+     */
+    public static BedrockCodecHelper createHelper() {
+        BedrockCodecHelper helper = CODEC.createHelper();
+        helper.setItemDefinitions(new PermissiveRegistry<ItemDefinition>(
+                runtimeId -> new SimpleItemDefinition("minecraft:item_" + runtimeId, runtimeId, false)));
+        helper.setBlockDefinitions(new PermissiveRegistry<BlockDefinition>(
+                runtimeId -> new SimpleBlockDefinition("minecraft:block_" + runtimeId, runtimeId, NbtMap.EMPTY)));
+        return helper;
+    }
+
+    public static int packetId(String name) {
+        return CODEC.getPacketDefinition(packetClass(name)).getId();
+    }
+
+    /**
+     * Returns the encoded packet body for the given corpus entry.
+     */
+    public static byte[] payload(String name) {
+        Path captured = capturedPayload(name);
+        if (captured != null) {
+            try {
+                return Files.readAllBytes(captured);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read captured payload " + captured, e);
+            }
+        }
+
+        BedrockPacket packet = createPacket(name);
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            CODEC.tryEncode(createHelper(), buffer, packet);
+            return ByteBufUtil.getBytes(buffer);
+        } finally {
+            buffer.release();
+            ReferenceCountUtil.release(packet);
+        }
+    }
+
+    /**
+     * Returns every corpus packet framed the way it appears in a decompressed batch, for the compression and
+     * encryption benchmarks.
+     */
+    public static byte[] batch() {
+        ByteBuf batch = Unpooled.buffer();
+        ByteBuf packet = Unpooled.buffer();
+        try {
+            for (String name : PACKETS) {
+                packet.clear();
+                VarInts.writeUnsignedInt(packet, packetId(name));
+                packet.writeBytes(payload(name));
+                VarInts.writeUnsignedInt(batch, packet.readableBytes());
+                batch.writeBytes(packet);
+            }
+            return ByteBufUtil.getBytes(batch);
+        } finally {
+            batch.release();
+            packet.release();
+        }
+    }
+
+    private static Class<? extends BedrockPacket> packetClass(String name) {
+        Class<? extends BedrockPacket> packetClass = PACKET_CLASSES.get(name);
+        if (packetClass == null) {
+            throw new IllegalArgumentException("Unknown corpus packet " + name);
+        }
+        return packetClass;
+    }
+
+    private static Path capturedPayload(String name) {
+        String directory = System.getProperty(CORPUS_PROPERTY);
+        if (directory == null) {
+            return null;
+        }
+        Path path = Paths.get(directory, name + ".bin");
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    private static BedrockPacket createPacket(String name) {
+        Random random = new Random(name.hashCode());
+        switch (name) {
+            case "LevelChunk":
+                return levelChunk(random);
+            case "SubChunk":
+                return subChunk(random);
+            case "MoveEntityDelta":
+                return moveEntityDelta();
+            case "PlayerAuthInput":
+                return playerAuthInput();
+            case "SetEntityData":
+                return setEntityData();
+            case "StartGame":
+                return startGame();
+            case "CraftingData":
+                return craftingData(random);
+            case "BiomeDefinitionList":
+                return biomeDefinitionList(random);
+            default:
+                throw new IllegalArgumentException("Unknown corpus packet " + name);
+        }
+    }
+
+    private static LevelChunkPacket levelChunk(Random random) {
+        LevelChunkPacket packet = new LevelChunkPacket();
+        packet.setChunkX(12);
+        packet.setChunkZ(-7);
+        packet.setDimension(0);
+        packet.setSubChunksLength(8);
+        ByteBuf data = Unpooled.buffer();
+        for (int y = -4; y < 4; y++) {
+            writeSubChunk(data, random, y);
+        }
+        // Biome palettes and the border block count
+        for (int i = 0; i < 24; i++) {
+            data.writeByte(1);
+            VarInts.writeInt(data, random.nextInt(64));
+        }
+        data.writeByte(0);
+        packet.setData(data);
+        return packet;
+    }
+
+    private static SubChunkPacket subChunk(Random random) {
+        SubChunkPacket packet = new SubChunkPacket();
+        packet.setDimension(0);
+        packet.setCacheEnabled(false);
+        packet.setCenterPosition(Vector3i.from(12, 2, -7));
+        for (int i = 0; i < 4; i++) {
+            ByteBuf data = Unpooled.buffer();
+            writeSubChunk(data, random, i);
+
+            ByteBuf heightMap = Unpooled.buffer(256);
+            for (int j = 0; j < 256; j++) {
+                heightMap.writeByte(random.nextInt(16));
+            }
+
+            SubChunkData subChunk = new SubChunkData();
+            subChunk.setPosition(Vector3i.from(0, i - 2, 0));
+            subChunk.setResult(SubChunkRequestResult.SUCCESS);
+            subChunk.setData(data);
+            subChunk.setHeightMapType(HeightMapDataType.HAS_DATA);
+            subChunk.setHeightMapData(heightMap);
+            subChunk.setRenderHeightMapType(HeightMapDataType.NO_DATA);
+            packet.getSubChunks().add(subChunk);
+        }
+        return packet;
+    }
+
+    /**
+     * Writes a version 9 sub-chunk with a single 4 bit paletted block storage, which is what most terrain sends.
+     */
+    private static void writeSubChunk(ByteBuf buffer, Random random, int y) {
+        buffer.writeByte(9);
+        buffer.writeByte(1);
+        buffer.writeByte(y);
+        buffer.writeByte(4 << 1 | 1);
+        int[] words = new int[32];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = random.nextInt();
+        }
+        for (int i = 0; i < 4096 / 8; i++) {
+            // Terrain is mostly runs of the same few blocks, so reuse a small set of words
+            buffer.writeIntLE(words[random.nextInt(words.length)]);
+        }
+        VarInts.writeInt(buffer, 16);
+        for (int i = 0; i < 16; i++) {
+            VarInts.writeInt(buffer, random.nextInt(14000));
+        }
+    }
+
+    private static MoveEntityDeltaPacket moveEntityDelta() {
+        MoveEntityDeltaPacket packet = new MoveEntityDeltaPacket();
+        packet.setRuntimeEntityId(4821);
+        Collections.addAll(packet.getFlags(), MoveEntityDeltaPacket.Flag.HAS_X, MoveEntityDeltaPacket.Flag.HAS_Y,
+                MoveEntityDeltaPacket.Flag.HAS_Z, MoveEntityDeltaPacket.Flag.HAS_YAW,
+                MoveEntityDeltaPacket.Flag.HAS_HEAD_YAW, MoveEntityDeltaPacket.Flag.ON_GROUND);
+        packet.setX(203.51f);
+        packet.setY(64.0f);
+        packet.setZ(-118.27f);
+        packet.setYaw(87.1875f);
+        packet.setHeadYaw(87.1875f);
+        return packet;
+    }
+
+    private static PlayerAuthInputPacket playerAuthInput() {
+        PlayerAuthInputPacket packet = new PlayerAuthInputPacket();
+        packet.setRotation(Vector3f.from(12.5f, 87.25f, 87.25f));
+        packet.setPosition(Vector3f.from(203.51f, 65.62f, -118.27f));
+        packet.setMotion(Vector2f.from(0f, 1f));
+        Collections.addAll(packet.getInputData(), PlayerAuthInputData.UP, PlayerAuthInputData.SPRINTING,
+                PlayerAuthInputData.VERTICAL_COLLISION);
+        packet.setInputMode(InputMode.MOUSE);
+        packet.setPlayMode(ClientPlayMode.NORMAL);
+        packet.setInputInteractionModel(InputInteractionModel.CROSSHAIR);
+        packet.setInteractRotation(Vector2f.from(12.5f, 87.25f));
+        packet.setTick(183_204);
+        packet.setDelta(Vector3f.from(0.28f, -0.0784f, 0.013f));
+        packet.setAnalogMoveVector(Vector2f.ZERO);
+        packet.setCameraOrientation(Vector3f.from(0.05f, -0.21f, 0.97f));
+        packet.setRawMoveVector(Vector2f.from(0f, 1f));
+        return packet;
+    }
+
+    private static SetEntityDataPacket setEntityData() {
+        SetEntityDataPacket packet = new SetEntityDataPacket();
+        packet.setRuntimeEntityId(4821);
+        packet.setTick(183_204);
+        packet.getMetadata().setFlag(EntityFlag.HAS_GRAVITY, true);
+        packet.getMetadata().setFlag(EntityFlag.BREATHING, true);
+        packet.getMetadata().setFlag(EntityFlag.CAN_CLIMB, true);
+        packet.getMetadata().put(EntityDataTypes.NAME, "Zombie");
+        packet.getMetadata().put(EntityDataTypes.VARIANT, 0);
+        packet.getMetadata().put(EntityDataTypes.AIR_SUPPLY, (short) 300);
+        packet.getMetadata().put(EntityDataTypes.SCALE, 1f);
+        packet.getMetadata().put(EntityDataTypes.WIDTH, 0.6f);
+        packet.getMetadata().put(EntityDataTypes.HEIGHT, 1.9f);
+        return packet;
+    }
+
+    private static StartGamePacket startGame() {
+        StartGamePacket packet = new StartGamePacket();
+        packet.setUniqueEntityId(-4294967295L);
+        packet.setRuntimeEntityId(1);
+        packet.setPlayerGameType(GameType.SURVIVAL);
+        packet.setPlayerPosition(Vector3f.from(0.5f, 72f, 0.5f));
+        packet.setRotation(Vector2f.ZERO);
+        packet.setSeed(-1L);
+        packet.setSpawnBiomeType(SpawnBiomeType.DEFAULT);
+        packet.setCustomBiomeName("plains");
+        packet.setLevelGameType(GameType.SURVIVAL);
+        packet.setDifficulty(2);
+        packet.setDefaultSpawn(Vector3i.from(0, 72, 0));
+        packet.setDayCycleStopTime(-1);
+        packet.setEducationProductionId("");
+        packet.setMultiplayerGame(true);
+        packet.setBroadcastingToLan(true);
+        packet.setXblBroadcastMode(GamePublishSetting.PUBLIC);
+        packet.setPlatformBroadcastMode(GamePublishSetting.PUBLIC);
+        packet.setCommandsEnabled(true);
+        packet.getExperiments().add(new ExperimentData("data_driven_items", true));
+        packet.getExperiments().add(new ExperimentData("upcoming_creator_features", true));
+        packet.setDefaultPlayerPermission(PlayerPermission.MEMBER);
+        packet.setServerChunkTickRange(4);
+        packet.setVanillaVersion("*");
+        packet.setLimitedWorldWidth(16);
+        packet.setLimitedWorldHeight(16);
+        packet.setForceExperimentalGameplay(OptionalBoolean.empty());
+        packet.setChatRestrictionLevel(ChatRestrictionLevel.NONE);
+        packet.setLevelId("");
+        packet.setLevelName("Bedrock level");
+        packet.setPremiumWorldTemplateId("00000000-0000-0000-0000-000000000000");
+        packet.setAuthoritativeMovementMode(AuthoritativeMovementMode.SERVER_WITH_REWIND);
+        packet.setRewindHistorySize(40);
+        packet.setCurrentTick(183_204);
+        packet.setBlockPalette(new NbtList<>(NbtType.COMPOUND));
+        for (int i = 0; i < 64; i++) {
+            packet.getBlockProperties().add(new BlockPropertyData("custom:block_" + i, NbtMap.builder()
+                    .putString("name", "custom:block_" + i)
+                    .putInt("molangVersion", 12)
+                    .putCompound("components", NbtMap.builder()
+                            .putCompound("minecraft:destructible_by_mining", NbtMap.builder()
+                                    .putFloat("value", 1.5f)
+                                    .build())
+                            .build())
+                    .build()));
+        }
+        packet.setMultiplayerCorrelationId(new UUID(0x5eed, 0x1).toString());
+        packet.setInventoriesServerAuthoritative(true);
+        packet.setServerEngine("1.21.110");
+        packet.setPlayerPropertyData(NbtMap.EMPTY);
+        packet.setWorldTemplateId(new UUID(0, 0));
+        packet.setServerId("");
+        packet.setWorldId("");
+        packet.setScenarioId("");
+        packet.setOwnerId("");
+        return packet;
+    }
+
+    private static CraftingDataPacket craftingData(Random random) {
+        CraftingDataPacket packet = new CraftingDataPacket();
+        for (int i = 0; i < 256; i++) {
+            ItemData result = ItemData.builder()
+                    .definition(new SimpleItemDefinition("minecraft:item_" + (i + 1), i + 1, false))
+                    .count(1 + random.nextInt(4))
+                    .build();
+            packet.getCraftingData().add(FurnaceRecipeData.of(CraftingDataType.FURNACE, 1 + random.nextInt(1500), 0,
+                    result, i % 3 == 0 ? "blast_furnace" : "furnace"));
+        }
+        for (int i = 0; i < 64; i++) {
+            packet.getPotionMixData().add(new PotionMixData(random.nextInt(1500), random.nextInt(40),
+                    random.nextInt(1500), 0, random.nextInt(1500), random.nextInt(40)));
+        }
+        for (int i = 0; i < 8; i++) {
+            packet.getContainerMixData().add(new ContainerMixData(random.nextInt(1500), random.nextInt(1500),
+                    random.nextInt(1500)));
+        }
+        packet.setCleanRecipes(true);
+        return packet;
+    }
+
+    private static BiomeDefinitionListPacket biomeDefinitionList(Random random) {
+        Map<String, BiomeDefinitionData> definitions = new LinkedHashMap<>();
+        for (int i = 0; i < 87; i++) {
+            String id = "minecraft:biome_" + i;
+            List<String> tags = Arrays.asList("overworld", "monster", i % 2 == 0 ? "warm" : "cold", "biome_" + i);
+            definitions.put(id, new BiomeDefinitionData(id, random.nextFloat() * 2f, random.nextFloat(),
+                    0f, random.nextFloat(), random.nextFloat(), new Color(random.nextInt(), true), random.nextBoolean(),
+                    tags, null));
+        }
+        BiomeDefinitionListPacket packet = new BiomeDefinitionListPacket();
+        packet.setBiomes(new BiomeDefinitions(definitions));
+        return packet;
+    }
+
+    private static final class PermissiveRegistry<D extends Definition> implements DefinitionRegistry<D> {
+
+        private final IntFunction<D> factory;
+
+        PermissiveRegistry(IntFunction<D> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public D getDefinition(int runtimeId) {
+            return this.factory.apply(runtimeId);
+        }
+
+        @Override
+        public boolean isRegistered(D definition) {
+            return true;
+        }
+    }
+}
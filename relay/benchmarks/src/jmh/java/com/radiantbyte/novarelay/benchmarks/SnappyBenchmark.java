@@ -0,0 +1,65 @@
+package com.radiantbyte.novarelay.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.cloudburstmc.protocol.bedrock.netty.codec.compression.SnappyCompression;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SnappyCompression} over a batch holding every packet in the {@link PacketCorpus}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnappyBenchmark {
+
+    private final SnappyCompression compression = new SnappyCompression();
+
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+    private ByteBuf uncompressed;
+    private ByteBuf compressed;
+
+    @Setup
+    public void setup() throws Exception {
+        this.channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        this.ctx = this.channel.pipeline().firstContext();
+
+        byte[] batch = PacketCorpus.batch();
+        this.uncompressed = PooledByteBufAllocator.DEFAULT.directBuffer(batch.length);
+        this.uncompressed.writeBytes(batch);
+        this.compressed = this.compression.encode(this.ctx, this.uncompressed.duplicate());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.uncompressed.release();
+        this.compressed.release();
+        this.channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        ByteBuf encoded = this.compression.encode(this.ctx, this.uncompressed.duplicate());
+        try {
+            return encoded.readableBytes();
+        } finally {
+            encoded.release();
+        }
+    }
+
+    @Benchmark
+    public int decode() throws Exception {
+        ByteBuf decoded = this.compression.decode(this.ctx, this.compressed.duplicate());
+        try {
+            return decoded.readableBytes();
+        } finally {
+            decoded.release();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.radiantbyte.novarelay.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.cloudburstmc.protocol.common.util.VarInts;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link VarInts} over a mix of value sizes, where {@code bytes} is the encoded length of each value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VarIntsBenchmark {
+
+    private static final int VALUES = 1024;
+
+    @Param({"1", "2", "3", "5"})
+    public int bytes;
+
+    private final int[] ints = new int[VALUES];
+    private final long[] longs = new long[VALUES];
+    private ByteBuf intBuffer;
+    private ByteBuf longBuffer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(this.bytes);
+        // Keep every value at exactly the requested encoded length
+        int bits = Math.min(this.bytes * 7, 32);
+        int floor = this.bytes == 1 ? 0 : 1 << ((this.bytes - 1) * 7);
+        this.intBuffer = PooledByteBufAllocator.DEFAULT.directBuffer(VALUES * 5);
+        this.longBuffer = PooledByteBufAllocator.DEFAULT.directBuffer(VALUES * 10);
+        for (int i = 0; i < VALUES; i++) {
+            int value = bits == 32
+                    ? floor | random.nextInt(Integer.MAX_VALUE - floor)
+                    : floor + random.nextInt((1 << bits) - floor);
+            this.ints[i] = value;
+            this.longs[i] = value;
+            VarInts.writeUnsignedInt(this.intBuffer, value);
+            VarInts.writeUnsignedLong(this.longBuffer, value);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.intBuffer.release();
+        this.longBuffer.release();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public ByteBuf writeUnsignedInt() {
+        ByteBuf buffer = this.intBuffer.clear();
+        for (int value : this.ints) {
+            VarInts.writeUnsignedInt(buffer, value);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int readUnsignedInt() {
+        ByteBuf buffer = this.intBuffer.readerIndex(0);
+        int sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += VarInts.readUnsignedInt(buffer);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public ByteBuf writeUnsignedLong() {
+        ByteBuf buffer = this.longBuffer.clear();
+        for (long value : this.longs) {
+            VarInts.writeUnsignedLong(buffer, value);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public long readUnsignedLong() {
+        ByteBuf buffer = this.longBuffer.readerIndex(0);
+        long sum = 0;
+        for (int i = 0; i < VALUES; i++) {
+            sum += VarInts.readUnsignedLong(buffer);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,60 @@
+package com.radiantbyte.novarelay.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.cloudburstmc.protocol.common.util.Zlib;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * Measures {@link Zlib#RAW}, the batch compression used by the Bedrock connection, over a batch holding every
+ * packet in the {@link PacketCorpus}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ZlibBenchmark {
+
+    @Param({"1", "6", "7"})
+    public int level;
+
+    private ByteBuf uncompressed;
+    private ByteBuf compressed;
+    private ByteBuf output;
+
+    @Setup
+    public void setup() throws DataFormatException {
+        byte[] batch = PacketCorpus.batch();
+        this.uncompressed = PooledByteBufAllocator.DEFAULT.directBuffer(batch.length);
+        this.uncompressed.writeBytes(batch);
+        this.compressed = PooledByteBufAllocator.DEFAULT.directBuffer(batch.length);
+        Zlib.RAW.deflate(this.uncompressed.duplicate(), this.compressed, this.level);
+        this.output = PooledByteBufAllocator.DEFAULT.directBuffer(batch.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.uncompressed.release();
+        this.compressed.release();
+        this.output.release();
+    }
+
+    @Benchmark
+    public int deflate() throws DataFormatException {
+        this.output.clear();
+        Zlib.RAW.deflate(this.uncompressed.duplicate(), this.output, this.level);
+        return this.output.writerIndex();
+    }
+
+    @Benchmark
+    public int inflate() throws DataFormatException {
+        ByteBuf inflated = Zlib.RAW.inflate(this.compressed.duplicate(), 0);
+        try {
+            return inflated.readableBytes();
+        } finally {
+            inflated.release();
+        }
+    }
+}
@@ -29,6 +29,12 @@ dependencies {
     api(libs.bundles.netty)
     
     testImplementation(kotlin("test"))
+    // Native datagram transports for Linux hosts, picked up by RakTransport.best(). They are kept off the runtime
+    // classpath so the app does not package them into the APK, where the relay falls back to NIO
+    for (platform in listOf("linux-x86_64", "linux-aarch_64")) {
+        testRuntimeOnly(variantOf(libs.netty.transport.native.epoll) { classifier(platform) })
+        testRuntimeOnly(variantOf(libs.netty.transport.native.io.uring) { classifier(platform) })
+    }
 }
 
 kotlin {
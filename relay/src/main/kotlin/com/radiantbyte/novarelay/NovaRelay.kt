@@ -4,16 +4,15 @@ import com.radiantbyte.novarelay.NovaRelaySession.ClientSession
 import com.radiantbyte.novarelay.address.NovaAddress
 import com.radiantbyte.novarelay.address.inetSocketAddress
 import com.radiantbyte.novarelay.config.EnhancedServerConfig
-import com.radiantbyte.novarelay.connection.ConnectionManager
+import com.radiantbyte.novarelay.listener.AutoCodecPacketListener
 import com.radiantbyte.novarelay.util.ServerCompatUtils
-import io.netty.bootstrap.Bootstrap
 import io.netty.bootstrap.ServerBootstrap
 import io.netty.channel.Channel
 import io.netty.channel.ChannelFuture
-import io.netty.channel.nio.NioEventLoopGroup
-import io.netty.channel.socket.nio.NioDatagramChannel
-import kotlinx.coroutines.*
+import io.netty.channel.EventLoopGroup
+import io.netty.util.concurrent.DefaultThreadFactory
 import org.cloudburstmc.netty.channel.raknet.RakChannelFactory
+import org.cloudburstmc.netty.channel.raknet.RakTransport
 import org.cloudburstmc.netty.channel.raknet.config.RakChannelOption
 import org.cloudburstmc.netty.handler.codec.raknet.server.RakServerRateLimiter
 import org.cloudburstmc.protocol.bedrock.BedrockPeer
@@ -22,6 +21,10 @@ import org.cloudburstmc.protocol.bedrock.PacketDirection
 import org.cloudburstmc.protocol.bedrock.codec.BedrockCodec
 import org.cloudburstmc.protocol.bedrock.codec.v844.Bedrock_v844
 import org.cloudburstmc.protocol.bedrock.netty.initializer.BedrockChannelInitializer
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.SocketAddress
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.random.Random
 
 class NovaRelay(
@@ -50,17 +53,54 @@ class NovaRelay(
 
     @Suppress("MemberVisibilityCanBePrivate")
     val isRunning: Boolean
-        get() = channelFuture != null
-
-    private var channelFuture: ChannelFuture? = null
-
+        get() = channelFutures.isNotEmpty()
+
+    // One per listening socket, several when they share the port through SO_REUSEPORT
+    private var channelFutures: List<ChannelFuture> = emptyList()
+
+    /**
+     * Datagram transport the relay runs on, chosen when it starts.
+     */
+    var transport: RakTransport? = null
+        private set
+
+    // The server channels and the RakNet sessions of their clients run on the boss group, everything else on the
+    // workers. With several listening sockets both are the same group, see start()
+    private var bossGroup: EventLoopGroup? = null
+    internal var workerGroup: EventLoopGroup? = null
+        private set
+
+    private val sessionMap = ConcurrentHashMap<SocketAddress, NovaRelaySession>()
+
+    // Servers that clients were transferred to, taken by the next session from the same host
+    private val pendingTransfers = ConcurrentHashMap<InetAddress, NovaAddress>()
+
+    /**
+     * Sessions of the clients currently connected to the relay.
+     */
+    val sessions: Collection<NovaRelaySession>
+        get() = sessionMap.values
+
+    /**
+     * Most recently created session.
+     */
+    @Volatile
     var novaRelaySession: NovaRelaySession? = null
         internal set
-    internal var connectionManager: ConnectionManager? = null
 
+    /**
+     * Server new sessions connect to, unless their client was transferred elsewhere.
+     */
     var remoteAddress: NovaAddress? = null
         internal set
 
+    /**
+     * @return session of the client connected from the address, or null if there is none
+     */
+    fun session(clientAddress: SocketAddress): NovaRelaySession? {
+        return sessionMap[clientAddress]
+    }
+
     fun capture(
         remoteAddress: NovaAddress = NovaAddress("geo.hivebedrock.network", 19132),
         onSessionCreated: NovaRelaySession.() -> Unit
@@ -87,23 +127,55 @@ class NovaRelay(
             .ipv4Port(localAddress.port)
             .ipv6Port(localAddress.port)
 
-        ServerBootstrap()
-            .group(NioEventLoopGroup())
-            .channelFactory(RakChannelFactory.server(NioDatagramChannel::class.java))
+        AutoCodecPacketListener.preloadCodecs()
+
+        val requestedTransport = serverConfig.transport
+        val transport = requestedTransport?.takeIf { it.isAvailable } ?: RakTransport.best()
+        if (requestedTransport != null && requestedTransport != transport) {
+            println(
+                "Warning: ${requestedTransport.name.lowercase()} transport was requested but is not available, " +
+                        "using ${transport.name.lowercase()} instead. Add its native library to the runtime classpath"
+            )
+        }
+        val sockets = if (transport.supportsReusePort()) {
+            serverConfig.listenerSockets.takeIf { it > 0 }?.coerceAtMost(serverConfig.workerThreads)
+                ?: serverConfig.workerThreads
+        } else {
+            1
+        }
+        println("Using ${transport.name.lowercase()} transport with $sockets listening socket(s)")
+
+        val bossGroup: EventLoopGroup
+        val workerGroup: EventLoopGroup
+        if (sockets > 1) {
+            // Every socket gets its own event loop and the group registers each client on the loop of its socket, the
+            // upstream connection follows in ConnectionManager. A whole session then runs on one thread and forwarding
+            // never hands a packet to another thread
+            workerGroup = transport.newEventLoopGroup(serverConfig.workerThreads, DefaultThreadFactory("NovaRelay-Worker"))
+            bossGroup = workerGroup
+        } else {
+            // A single socket would put every session on one thread, so keep the RakNet sessions apart from the rest
+            bossGroup = transport.newEventLoopGroup(1, DefaultThreadFactory("NovaRelay-Boss"))
+            workerGroup = transport.newEventLoopGroup(serverConfig.workerThreads, DefaultThreadFactory("NovaRelay-Worker"))
+        }
+        this.transport = transport
+        this.bossGroup = bossGroup
+        this.workerGroup = workerGroup
+
+        val bootstrap = ServerBootstrap()
+            .group(bossGroup, workerGroup)
+            .channelFactory(RakChannelFactory.server(transport, sockets > 1))
             .option(RakChannelOption.RAK_ADVERTISEMENT, advertisement.toByteBuf())
             .option(RakChannelOption.RAK_GUID, Random.nextLong())
             .childHandler(object : BedrockChannelInitializer<NovaRelaySession.ServerSession>() {
 
                 override fun createSession0(peer: BedrockPeer, subClientId: Int): NovaRelaySession.ServerSession {
-                    return NovaRelaySession(peer, subClientId, this@NovaRelay)
+                    return NovaRelaySession(peer, subClientId, this@NovaRelay, remoteAddressFor(peer.socketAddress))
                         .also {
-                            novaRelaySession = it
-                            val config = if (remoteAddress != null && ServerCompatUtils.isProtectedServer(remoteAddress!!)) {
-                                ServerCompatUtils.getRecommendedConfig(remoteAddress!!)
-                            } else {
-                                serverConfig
+                            sessionMap.put(peer.socketAddress, it)?.let { previous ->
+                                runCatching { previous.server.disconnect() }
                             }
-                            connectionManager = ConnectionManager(it, config)
+                            novaRelaySession = it
                             it.onSessionCreated()
                         }
                         .server
@@ -118,59 +190,66 @@ class NovaRelay(
 
             })
             .localAddress(localAddress.inetSocketAddress)
-            .bind()
-            .awaitUninterruptibly()
-            .also {
-                it.channel().pipeline().remove(RakServerRateLimiter.NAME)
-                channelFuture = it
-            }
+
+        // Each bind registers a server channel on the next boss event loop, and the kernel spreads clients across them
+        channelFutures = List(sockets) {
+            bootstrap.bind()
+                .awaitUninterruptibly()
+                .also { it.channel().pipeline().remove(RakServerRateLimiter.NAME) }
+        }
 
         return this
     }
 
-    internal fun connectToServer(onSessionCreated: ClientSession.() -> Unit) {
-        val manager = connectionManager ?: throw IllegalStateException("Connection manager not initialized")
-        val address = remoteAddress ?: throw IllegalStateException("Remote address not set")
-
-        CoroutineScope(Dispatchers.IO).launch {
-            try {
-                val result = manager.connectToServer(address, onSessionCreated)
-                if (result.isFailure) {
-                    println("Failed to connect to server: ${result.exceptionOrNull()?.message}")
-                    result.exceptionOrNull()?.printStackTrace()
-                    novaRelaySession?.server?.disconnect("Failed to connect to server: ${result.exceptionOrNull()?.message}")
-                    novaRelaySession?.listeners?.forEach { listener ->
-                        runCatching {
-                            listener.onDisconnect("Connection failed: ${result.exceptionOrNull()?.message}")
-                        }
-                    }
-                }
-            } catch (e: Exception) {
-                println("Error during connection: ${e.message}")
-                e.printStackTrace()
-                novaRelaySession?.server?.disconnect("Connection error: ${e.message}")
-            }
-        }
+    /**
+     * Connects the most recently created session to its server.
+     */
+    suspend fun connectToServerAsync(onSessionCreated: ClientSession.() -> Unit): Result<ClientSession> {
+        val session = novaRelaySession ?: return Result.failure(IllegalStateException("No session to connect"))
+        return session.connectToServerAsync(onSessionCreated)
     }
 
-    suspend fun connectToServerAsync(onSessionCreated: ClientSession.() -> Unit): Result<ClientSession> {
-        val manager = connectionManager ?: return Result.failure(IllegalStateException("Connection manager not initialized"))
-        val address = remoteAddress ?: return Result.failure(IllegalStateException("Remote address not set"))
+    /**
+     * Makes the next session from the host of the client connect to the given server.
+     */
+    internal fun transfer(session: NovaRelaySession, remoteAddress: NovaAddress) {
+        val host = (session.server.peer.socketAddress as? InetSocketAddress)?.address ?: return
+        pendingTransfers[host] = remoteAddress
+    }
+
+    private fun remoteAddressFor(clientAddress: SocketAddress): NovaAddress {
+        val host = (clientAddress as? InetSocketAddress)?.address
+        return host?.let { pendingTransfers.remove(it) }
+            ?: remoteAddress
+            ?: throw IllegalStateException("Remote address not set")
+    }
 
-        return manager.connectToServer(address, onSessionCreated)
+    internal fun removeSession(session: NovaRelaySession) {
+        sessionMap.remove(session.server.peer.socketAddress, session)
+        if (novaRelaySession === session) {
+            novaRelaySession = null
+        }
     }
 
     fun stop() {
         try {
-            connectionManager?.cleanup()
-            novaRelaySession?.client?.disconnect()
-            novaRelaySession?.server?.disconnect()
-            channelFuture?.channel()?.close()?.sync()
-            channelFuture = null
+            sessions.forEach {
+                it.connectionManager.cleanup()
+                it.client?.disconnect()
+                it.server.disconnect()
+            }
+            channelFutures.forEach { it.channel().close().sync() }
+            channelFutures = emptyList()
+            sessionMap.clear()
+            pendingTransfers.clear()
             novaRelaySession = null
-            connectionManager = null
         } catch (e: Exception) {
             println("Error stopping NovaRelay: ${e.message}")
+        } finally {
+            bossGroup?.takeIf { it !== workerGroup }?.shutdownGracefully()
+            workerGroup?.shutdownGracefully()
+            bossGroup = null
+            workerGroup = null
         }
     }
 }
@@ -1,24 +1,61 @@
 package com.radiantbyte.novarelay
 
+import com.radiantbyte.novarelay.address.NovaAddress
+import com.radiantbyte.novarelay.config.EnhancedServerConfig
+import com.radiantbyte.novarelay.connection.ConnectionManager
 import com.radiantbyte.novarelay.listener.NovaRelayPacketListener
+import com.radiantbyte.novarelay.listener.ObserverExecutor
+import com.radiantbyte.novarelay.listener.PacketListenerDispatch
+import com.radiantbyte.novarelay.metrics.RelayMetrics
+import com.radiantbyte.novarelay.util.ServerCompatUtils
+import io.netty.handler.codec.DecoderException
+import io.netty.util.ReferenceCountUtil
 import io.netty.util.internal.PlatformDependent
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
 import net.kyori.adventure.text.Component
 import org.cloudburstmc.protocol.bedrock.BedrockClientSession
 import org.cloudburstmc.protocol.bedrock.BedrockPeer
 import org.cloudburstmc.protocol.bedrock.BedrockServerSession
+import org.cloudburstmc.protocol.bedrock.netty.BedrockBatchWrapper
 import org.cloudburstmc.protocol.bedrock.netty.BedrockPacketWrapper
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacketHandler
+import org.cloudburstmc.protocol.bedrock.packet.RequestNetworkSettingsPacket
 import org.cloudburstmc.protocol.bedrock.packet.UnknownPacket
 import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
 
 
 class NovaRelaySession internal constructor(
     peer: BedrockPeer,
     subClientId: Int,
-    val novaRelay: NovaRelay
+    val novaRelay: NovaRelay,
+    remoteAddress: NovaAddress
 ) {
 
+    /**
+     * Server this session connects to.
+     */
+    var remoteAddress: NovaAddress = remoteAddress
+        internal set
+
+    internal val connectionManager = ConnectionManager(
+        this,
+        if (ServerCompatUtils.isProtectedServer(remoteAddress)) {
+            ServerCompatUtils.getRecommendedConfig(remoteAddress)
+        } else {
+            novaRelay.serverConfig
+        }
+    )
+
+    /**
+     * Latency and throughput metrics of this session, see [RelayMetrics.snapshot].
+     */
+    val metrics = RelayMetrics()
+
     val server = ServerSession(peer, subClientId)
 
     var client: ClientSession? = null
@@ -56,12 +93,40 @@ class NovaRelaySession internal constructor(
             field = value
         }
 
-    val listeners: MutableList<NovaRelayPacketListener> = ArrayList()
+    val listeners: MutableList<NovaRelayPacketListener> = ListenerList()
+
+    private val listenerVersion = AtomicInteger()
+    private var serverBoundDispatch: PacketListenerDispatch? = null
+    private var clientBoundDispatch: PacketListenerDispatch? = null
+
+    /**
+     * Whether inbound batches whose packets all passed through untouched are forwarded as a whole,
+     * reusing their compressed payload where possible instead of being rebuilt and recompressed.
+     */
+    var batchPassThrough = true
+
+    /**
+     * Runs the `after*` callbacks of listeners, so slow listeners do not hold up either connection.
+     */
+    val observers = ObserverExecutor(
+        novaRelay.serverConfig.observerQueueCapacity,
+        novaRelay.serverConfig.observerOverflowPolicy
+    )
 
     private val packetQueue: Queue<Pair<BedrockPacket, Boolean>> = PlatformDependent.newMpscQueue()
     private val maxQueueSize = 1000
 
+    private val serverBoundBatch =
+        PendingBatch({ server.peer }, { client?.peer }, ::sendServerBound, metrics.serverBound)
+    private val clientBoundBatch =
+        PendingBatch({ client?.peer }, { server.peer }, ::sendClientBound, metrics.clientBound)
+
     fun clientBound(packet: BedrockPacket) {
+        clientBoundBatch.flush()
+        sendClientBound(packet)
+    }
+
+    private fun sendClientBound(packet: BedrockPacket) {
         try {
             server.sendPacket(packet)
         } catch (e: Exception) {
@@ -70,6 +135,7 @@ class NovaRelaySession internal constructor(
     }
 
     fun clientBoundImmediately(packet: BedrockPacket) {
+        clientBoundBatch.flush()
         try {
             server.sendPacketImmediately(packet)
         } catch (e: Exception) {
@@ -78,6 +144,11 @@ class NovaRelaySession internal constructor(
     }
 
     fun serverBound(packet: BedrockPacket) {
+        serverBoundBatch.flush()
+        sendServerBound(packet)
+    }
+
+    private fun sendServerBound(packet: BedrockPacket) {
         if (client != null) {
             try {
                 client!!.sendPacket(packet)
@@ -94,6 +165,7 @@ class NovaRelaySession internal constructor(
     }
 
     fun serverBoundImmediately(packet: BedrockPacket) {
+        serverBoundBatch.flush()
         if (client != null) {
             try {
                 client!!.sendPacketImmediately(packet)
@@ -109,13 +181,307 @@ class NovaRelaySession internal constructor(
         }
     }
 
+    /**
+     * Marks a packet a listener changed in [NovaRelayPacketListener.beforeClientBound] or
+     * [NovaRelayPacketListener.beforeServerBound], so the changed packet is encoded and forwarded in place of its
+     * original bytes. Only the packet currently being handled on the calling thread can be marked.
+     *
+     * @return false if the packet is not the one currently being handled
+     */
+    fun markModified(packet: BedrockPacket): Boolean {
+        return server.markModified(packet) || client?.markModified(packet) == true
+    }
+
+    /**
+     * Decodes the packet for the listeners interested in it.
+     *
+     * @return false if the packet cannot be decoded
+     */
+    private fun decode(wrapper: BedrockPacketWrapper): Boolean {
+        return try {
+            wrapper.packet != null
+        } catch (e: DecoderException) {
+            println("Forwarding packet ${wrapper.packetId} undecoded: ${e.cause?.message ?: e.message}")
+            false
+        }
+    }
+
+    /**
+     * Adds the packet to the batch, unless one of the listeners which receive it undecoded takes it over.
+     *
+     * @return false if a listener took the packet over
+     */
+    private inline fun forward(
+        wrapper: BedrockPacketWrapper,
+        batch: PendingBatch,
+        undecoded: Array<NovaRelayPacketListener>,
+        before: (NovaRelayPacketListener, BedrockPacket) -> Boolean
+    ): Boolean {
+        val packet = forwardedPacket(wrapper, batch)
+        for (listener in undecoded) {
+            try {
+                if (before(listener, packet)) {
+                    // Listeners retain what they keep
+                    ReferenceCountUtil.release(packet)
+                    batch.invalidate()
+                    return false
+                }
+            } catch (e: Throwable) {
+                println("Undecoded packet listener error: ${e.message}")
+                e.printStackTrace()
+            }
+        }
+        batch.add(packet)
+        return true
+    }
+
+    /**
+     * Forwards the original bytes of the packet, or the packet itself if a listener changed it.
+     */
+    private fun forwardedPacket(wrapper: BedrockPacketWrapper, batch: PendingBatch): BedrockPacket {
+        if (wrapper.isModified) {
+            // The target peer encodes the packet again, so the batch can no longer be passed through as it is
+            batch.invalidate()
+            return ReferenceCountUtil.retain(wrapper.packet)
+        }
+
+        val unknownPacket = UnknownPacket()
+        unknownPacket.payload = wrapper.packetBuffer
+            .retainedSlice()
+            .skipBytes(wrapper.headerLength)
+        unknownPacket.packetId = wrapper.packetId
+        return unknownPacket
+    }
+
+    /**
+     * Whether [preconnect] opened the connection to the server. The login listeners then only send the login
+     * instead of connecting themselves.
+     */
+    @Volatile
+    var preconnecting = false
+        private set
+
+    /**
+     * Opens the connection to the server while the client is still logging in, without the configured connection
+     * delays, and requests network settings from the server once connected. Called when the client requests network
+     * settings; does nothing if [EnhancedServerConfig.preconnect] is disabled or a connection was already opened.
+     */
+    internal fun preconnect() {
+        if (!novaRelay.serverConfig.preconnect || preconnecting || client != null) {
+            return
+        }
+        preconnecting = true
+        connectToServer(immediate = true) {
+            val packet = RequestNetworkSettingsPacket()
+            packet.protocolVersion = server.codec.protocolVersion
+            serverBoundImmediately(packet)
+        }
+    }
+
+    internal fun connectToServer(immediate: Boolean = false, onSessionCreated: ClientSession.() -> Unit) {
+        // Captured before switching threads, see connectToServerAsync
+        val eventLoop = server.peer.channel.eventLoop()
+        CoroutineScope(Dispatchers.IO).launch {
+            try {
+                val result = connectionManager.connectToServer(remoteAddress, eventLoop, immediate, onSessionCreated)
+                if (result.isFailure) {
+                    println("Failed to connect to server: ${result.exceptionOrNull()?.message}")
+                    result.exceptionOrNull()?.printStackTrace()
+                    server.disconnect("Failed to connect to server: ${result.exceptionOrNull()?.message}")
+                    listeners.forEach { listener ->
+                        runCatching {
+                            listener.onDisconnect("Connection failed: ${result.exceptionOrNull()?.message}")
+                        }
+                    }
+                }
+            } catch (e: Exception) {
+                println("Error during connection: ${e.message}")
+                e.printStackTrace()
+                server.disconnect("Connection error: ${e.message}")
+            }
+        }
+    }
+
+    /**
+     * Connects this session to [remoteAddress]. The connection shares the event loop of the client's connection,
+     * unless this is called from that event loop, which would block it until the connection is made.
+     */
+    suspend fun connectToServerAsync(onSessionCreated: ClientSession.() -> Unit): Result<ClientSession> {
+        val eventLoop = server.peer.channel.eventLoop().takeUnless { it.inEventLoop() }
+        return connectionManager.connectToServer(remoteAddress, eventLoop, onSessionCreated = onSessionCreated)
+    }
+
+    private inline fun observe(
+        listeners: Array<NovaRelayPacketListener>,
+        packet: BedrockPacket,
+        crossinline after: (NovaRelayPacketListener, BedrockPacket) -> Unit
+    ) {
+        var deferred = false
+        for (listener in listeners) {
+            if (!listener.observesOnEventLoop) {
+                deferred = true
+                continue
+            }
+            try {
+                after(listener, packet)
+            } catch (e: Throwable) {
+                println("Packet observer error: ${e.message}")
+                e.printStackTrace()
+            }
+        }
+        if (!deferred) {
+            return
+        }
+        observers.execute(packet) {
+            for (listener in listeners) {
+                if (!listener.observesOnEventLoop) {
+                    try {
+                        after(listener, packet)
+                    } catch (e: Throwable) {
+                        println("Packet observer error: ${e.message}")
+                        e.printStackTrace()
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the packet dispatch tables. Listeners call this when their [NovaRelayPacketListener.interestedPackets]
+     * or [NovaRelayPacketListener.interestedPacketIds] change.
+     */
+    fun invalidateListeners() {
+        listenerVersion.incrementAndGet()
+    }
+
+    private fun dispatchFor(peer: BedrockPeer, current: PacketListenerDispatch?): PacketListenerDispatch {
+        val version = listenerVersion.get()
+        if (current != null && current.version == version && current.codec === peer.codec) {
+            return current
+        }
+        return PacketListenerDispatch(peer.codec, version, listeners.toTypedArray())
+    }
+
+    /**
+     * Listener list which invalidates the packet dispatch tables whenever it is modified.
+     * It is safe to modify while packets are being dispatched.
+     */
+    private inner class ListenerList : AbstractMutableList<NovaRelayPacketListener>() {
+
+        private val delegate = CopyOnWriteArrayList<NovaRelayPacketListener>()
+
+        override val size: Int
+            get() = delegate.size
+
+        override fun get(index: Int): NovaRelayPacketListener = delegate[index]
+
+        override fun iterator(): MutableIterator<NovaRelayPacketListener> = delegate.iterator()
+
+        override fun add(index: Int, element: NovaRelayPacketListener) {
+            delegate.add(index, element)
+            listenerVersion.incrementAndGet()
+        }
+
+        override fun removeAt(index: Int): NovaRelayPacketListener {
+            return delegate.removeAt(index).also { listenerVersion.incrementAndGet() }
+        }
+
+        override fun set(index: Int, element: NovaRelayPacketListener): NovaRelayPacketListener {
+            return delegate.set(index, element).also { listenerVersion.incrementAndGet() }
+        }
+
+    }
+
+    /**
+     * Collects the packets forwarded from the inbound batch currently being processed. When the batch
+     * ends and none of its packets were intercepted, the original batch is handed to the target peer
+     * instead of re-batching the individual packets.
+     */
+    private inner class PendingBatch(
+        private val source: () -> BedrockPeer?,
+        private val target: () -> BedrockPeer?,
+        private val send: (BedrockPacket) -> Unit,
+        private val metrics: RelayMetrics.DirectionMetrics
+    ) {
+
+        private val packets: MutableList<BedrockPacket> = ArrayList()
+        private var intact = true
+        private var startTime = 0L
+
+        /**
+         * Marks the arrival of a packet of the current batch, so the handling time of the batch can be recorded.
+         */
+        fun begin() {
+            if (startTime == 0L) {
+                startTime = System.nanoTime()
+            }
+        }
+
+        fun add(packet: BedrockPacket) {
+            packets.add(packet)
+        }
+
+        fun invalidate() {
+            intact = false
+        }
+
+        fun flush() {
+            // Only the source event loop touches the pending packets
+            if (packets.isEmpty() || source()?.channel?.eventLoop()?.inEventLoop() != true) {
+                return
+            }
+            intact = false
+            packets.forEach(send)
+            packets.clear()
+        }
+
+        fun complete(batch: BedrockBatchWrapper) {
+            val source = source()
+            val target = target()
+            try {
+                if (batchPassThrough && intact && packets.isNotEmpty() && source != null && target != null) {
+                    packets.forEach { ReferenceCountUtil.release(it) }
+                    target.forwardBatch(source, batch)
+                } else {
+                    packets.forEach(send)
+                }
+            } finally {
+                packets.clear()
+                intact = true
+                if (startTime != 0L) {
+                    metrics.handlingTime.record(System.nanoTime() - startTime)
+                    startTime = 0L
+                }
+                target?.signalBatchEnd()
+            }
+        }
+
+    }
+
     inner class ServerSession(peer: BedrockPeer, subClientId: Int) :
         BedrockServerSession(peer, subClientId) {
 
+        // Packet being handled by the listeners, only accessed on this session's event loop
+        private var current: BedrockPacketWrapper? = null
+
+        internal fun markModified(packet: BedrockPacket): Boolean {
+            val wrapper = current
+            if (wrapper == null || !peer.channel.eventLoop().inEventLoop() || wrapper.packet !== packet) {
+                return false
+            }
+            wrapper.modify()
+            return true
+        }
+
         init {
+            peer.isLazyDecoding = true
+            peer.flushPolicy = novaRelay.serverConfig.flushPolicy
+            metrics.attachClientPeer(peer)
             packetHandler = object : BedrockPacketHandler {
                 override fun onDisconnect(reason: CharSequence) {
                     println("Client disconnect: $reason")
+                    novaRelay.removeSession(this@NovaRelaySession)
+                    observers.close()
                     runCatching {
                         client?.disconnect()
                     }
@@ -124,16 +490,28 @@ class NovaRelaySession internal constructor(
                             it.onDisconnect(reason.toString())
                         }
                     }
-                    novaRelay.connectionManager?.cleanup()
+                    connectionManager.cleanup()
                 }
             }
         }
 
         override fun onPacket(wrapper: BedrockPacketWrapper) {
+            serverBoundBatch.begin()
             try {
-                listeners.forEach { listener ->
+                val dispatch = dispatchFor(peer, serverBoundDispatch).also { serverBoundDispatch = it }
+                val interested = dispatch.listenersFor(wrapper.packetId)
+                if (interested.isNotEmpty() && !decode(wrapper)) {
+                    // Listeners and observers are skipped, the packet is forwarded as it was received
+                    forward(wrapper, serverBoundBatch, dispatch.undecodedListeners) { listener, packet ->
+                        listener.beforeClientBound(packet)
+                    }
+                    return
+                }
+                current = wrapper
+                interested.forEach { listener ->
                     try {
                         if (listener.beforeClientBound(wrapper.packet)) {
+                            serverBoundBatch.invalidate()
                             return
                         }
                     } catch (e: Throwable) {
@@ -142,26 +520,29 @@ class NovaRelaySession internal constructor(
                     }
                 }
 
-                val buffer = wrapper.packetBuffer
-                    .retainedSlice()
-                    .skipBytes(wrapper.headerLength)
-
-                val unknownPacket = UnknownPacket()
-                unknownPacket.payload = buffer
-                unknownPacket.packetId = wrapper.packetId
-                serverBound(unknownPacket)
+                val undecoded = dispatch.undecodedListenersFor(wrapper.packetId)
+                if (!forward(wrapper, serverBoundBatch, undecoded) { listener, packet -> listener.beforeClientBound(packet) }) {
+                    return
+                }
 
-                listeners.forEach { listener ->
-                    try {
-                        listener.afterClientBound(wrapper.packet)
-                    } catch (e: Throwable) {
-                        println("After client bound error: ${e.message}")
-                        e.printStackTrace()
-                    }
+                if (interested.isNotEmpty()) {
+                    observe(interested, wrapper.packet) { listener, packet -> listener.afterClientBound(packet) }
                 }
             } catch (e: Exception) {
+                serverBoundBatch.invalidate()
                 println("Error processing client packet: ${e.message}")
                 e.printStackTrace()
+            } finally {
+                current = null
+            }
+        }
+
+        override fun onBatch(batch: BedrockBatchWrapper) {
+            try {
+                serverBoundBatch.complete(batch)
+            } catch (e: Exception) {
+                println("Error forwarding client batch: ${e.message}")
+                e.printStackTrace()
             }
         }
 
@@ -170,11 +551,27 @@ class NovaRelaySession internal constructor(
     inner class ClientSession(peer: BedrockPeer, subClientId: Int) :
         BedrockClientSession(peer, subClientId) {
 
+        // Packet being handled by the listeners, only accessed on this session's event loop
+        private var current: BedrockPacketWrapper? = null
+
+        internal fun markModified(packet: BedrockPacket): Boolean {
+            val wrapper = current
+            if (wrapper == null || !peer.channel.eventLoop().inEventLoop() || wrapper.packet !== packet) {
+                return false
+            }
+            wrapper.modify()
+            return true
+        }
+
         init {
+            peer.isLazyDecoding = true
+            peer.flushPolicy = novaRelay.serverConfig.flushPolicy
+            metrics.attachServerPeer(peer)
             packetHandler = object : BedrockPacketHandler {
 
                 override fun onDisconnect(reason: CharSequence) {
                     println("Server disconnect: $reason")
+                    observers.close()
                     runCatching {
                         server.disconnect(reason.toString())
                     }
@@ -183,17 +580,29 @@ class NovaRelaySession internal constructor(
                             it.onDisconnect(reason.toString())
                         }
                     }
-                    novaRelay.connectionManager?.cleanup()
+                    connectionManager.cleanup()
                 }
 
             }
         }
 
         override fun onPacket(wrapper: BedrockPacketWrapper) {
+            clientBoundBatch.begin()
             try {
-                listeners.forEach { listener ->
+                val dispatch = dispatchFor(peer, clientBoundDispatch).also { clientBoundDispatch = it }
+                val interested = dispatch.listenersFor(wrapper.packetId)
+                if (interested.isNotEmpty() && !decode(wrapper)) {
+                    // Listeners and observers are skipped, the packet is forwarded as it was received
+                    forward(wrapper, clientBoundBatch, dispatch.undecodedListeners) { listener, packet ->
+                        listener.beforeServerBound(packet)
+                    }
+                    return
+                }
+                current = wrapper
+                interested.forEach { listener ->
                     try {
                         if (listener.beforeServerBound(wrapper.packet)) {
+                            clientBoundBatch.invalidate()
                             return
                         }
                     } catch (e: Throwable) {
@@ -202,26 +611,29 @@ class NovaRelaySession internal constructor(
                     }
                 }
 
-                val buffer = wrapper.packetBuffer
-                    .retainedSlice()
-                    .skipBytes(wrapper.headerLength)
-
-                val unknownPacket = UnknownPacket()
-                unknownPacket.payload = buffer
-                unknownPacket.packetId = wrapper.packetId
-                clientBound(unknownPacket)
+                val undecoded = dispatch.undecodedListenersFor(wrapper.packetId)
+                if (!forward(wrapper, clientBoundBatch, undecoded) { listener, packet -> listener.beforeServerBound(packet) }) {
+                    return
+                }
 
-                listeners.forEach { listener ->
-                    try {
-                        listener.afterServerBound(wrapper.packet)
-                    } catch (e: Throwable) {
-                        println("After server bound error: ${e.message}")
-                        e.printStackTrace()
-                    }
+                if (interested.isNotEmpty()) {
+                    observe(interested, wrapper.packet) { listener, packet -> listener.afterServerBound(packet) }
                 }
             } catch (e: Exception) {
+                clientBoundBatch.invalidate()
                 println("Error processing server packet: ${e.message}")
                 e.printStackTrace()
+            } finally {
+                current = null
+            }
+        }
+
+        override fun onBatch(batch: BedrockBatchWrapper) {
+            try {
+                clientBoundBatch.complete(batch)
+            } catch (e: Exception) {
+                println("Error forwarding server batch: ${e.message}")
+                e.printStackTrace()
             }
         }
 
@@ -0,0 +1,204 @@
+package com.radiantbyte.novarelay.cache
+
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.ByteBufUtil
+import io.netty.buffer.Unpooled
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Content addressed store for the chunk blobs of the client cache protocol, keyed by blob ID.
+ *
+ * The most recently used blobs are kept in memory up to [maxMemoryBytes]. When a [directory] is given every blob is
+ * also written to disk, so a blob evicted from memory, or received in an earlier session, is still served locally.
+ * The directory is kept below [maxDiskBytes] by deleting the least recently used blobs. Blob IDs are hashes of the
+ * blob contents, so one store can be shared by every session and server.
+ *
+ * Only [getCached], [contains] and [put] may be called from an event loop: they never touch the disk. Blobs that are
+ * only on disk are read through [load], which completes on the store's own thread.
+ */
+class BlobStore(
+    val directory: File? = null,
+    val maxMemoryBytes: Long = 32L * 1024 * 1024,
+    val maxDiskBytes: Long = 256L * 1024 * 1024
+) {
+
+    private val memory = LinkedHashMap<Long, ByteArray>(256, 0.75f, true)
+    private var memoryBytes = 0L
+
+    // Sizes of the blobs on disk, least recently used first. Only written on the IO thread
+    private val disk = LinkedHashMap<Long, Int>(256, 0.75f, true)
+    private var diskBytes = 0L
+
+    // Disk reads and writes must not hold up the event loops
+    private val io: ExecutorService? = directory?.let {
+        Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "NovaRelay-BlobStore").apply { isDaemon = true }
+        }
+    }
+
+    init {
+        io?.execute(::indexDirectory)
+    }
+
+    /**
+     * @return the blob as a read-only buffer if it is held in memory, otherwise null
+     */
+    fun getCached(blobId: Long): ByteBuf? {
+        synchronized(memory) {
+            return memory[blobId]?.let { Unpooled.wrappedBuffer(it).asReadOnly() }
+        }
+    }
+
+    /**
+     * Whether the blob is held in memory or on disk. A blob on disk may still be evicted before it is loaded.
+     */
+    fun contains(blobId: Long): Boolean {
+        synchronized(memory) {
+            if (memory.containsKey(blobId)) {
+                return true
+            }
+        }
+        synchronized(disk) {
+            return disk.containsKey(blobId)
+        }
+    }
+
+    /**
+     * Loads the blob as a read-only buffer. Completes right away when the blob is in memory, otherwise on the
+     * store's thread, with null if the blob is not stored.
+     */
+    fun load(blobId: Long): CompletableFuture<ByteBuf?> {
+        getCached(blobId)?.let { return CompletableFuture.completedFuture(it) }
+        val io = io ?: return CompletableFuture.completedFuture(null)
+
+        val future = CompletableFuture<ByteBuf?>()
+        io.execute {
+            val bytes = readFromDisk(blobId)
+            if (bytes != null) {
+                putInMemory(blobId, bytes)
+            }
+            future.complete(bytes?.let { Unpooled.wrappedBuffer(it).asReadOnly() })
+        }
+        return future
+    }
+
+    /**
+     * Stores the readable bytes of the buffer. The buffer is not released or modified.
+     *
+     * @return the stored blob as a read-only buffer, which stays valid after the blob is evicted
+     */
+    fun put(blobId: Long, blob: ByteBuf): ByteBuf {
+        val bytes = ByteBufUtil.getBytes(blob)
+        putInMemory(blobId, bytes)
+        io?.execute { writeToDisk(blobId, bytes) }
+        return Unpooled.wrappedBuffer(bytes).asReadOnly()
+    }
+
+    /**
+     * Drops every blob held in memory. Blobs on disk are kept.
+     */
+    fun clearMemory() {
+        synchronized(memory) {
+            memory.clear()
+            memoryBytes = 0
+        }
+    }
+
+    private fun putInMemory(blobId: Long, bytes: ByteArray) {
+        synchronized(memory) {
+            val previous = memory.put(blobId, bytes)
+            memoryBytes += bytes.size - (previous?.size ?: 0)
+
+            val iterator = memory.values.iterator()
+            while (memoryBytes > maxMemoryBytes && memory.size > 1 && iterator.hasNext()) {
+                memoryBytes -= iterator.next().size
+                iterator.remove()
+            }
+        }
+    }
+
+    private fun indexDirectory() {
+        val directory = directory ?: return
+        directory.mkdirs()
+        val files = directory.listFiles() ?: return
+        files.sortBy { it.lastModified() }
+        for (file in files) {
+            if (file.name.endsWith(".tmp")) {
+                file.delete()
+                continue
+            }
+            val blobId = file.name.toULongOrNull(16)?.toLong() ?: continue
+            synchronized(disk) {
+                disk[blobId] = file.length().toInt()
+                diskBytes += file.length()
+            }
+        }
+        trimDisk()
+    }
+
+    private fun readFromDisk(blobId: Long): ByteArray? {
+        synchronized(disk) {
+            // Also marks the blob as recently used
+            disk[blobId] ?: return null
+        }
+        return try {
+            fileFor(blobId).readBytes()
+        } catch (e: IOException) {
+            forget(blobId)
+            null
+        }
+    }
+
+    private fun writeToDisk(blobId: Long, bytes: ByteArray) {
+        synchronized(disk) {
+            if (disk.containsKey(blobId)) {
+                return
+            }
+        }
+        val file = fileFor(blobId)
+        try {
+            val temp = File(file.parentFile, file.name + ".tmp")
+            temp.writeBytes(bytes)
+            if (!temp.renameTo(file)) {
+                temp.delete()
+                return
+            }
+        } catch (e: IOException) {
+            println("Failed to store blob ${file.name}: ${e.message}")
+            return
+        }
+        synchronized(disk) {
+            disk[blobId] = bytes.size
+            diskBytes += bytes.size
+        }
+        trimDisk()
+    }
+
+    private fun trimDisk() {
+        while (true) {
+            val blobId = synchronized(disk) {
+                if (diskBytes <= maxDiskBytes || disk.isEmpty()) {
+                    return
+                }
+                disk.keys.first()
+            }
+            fileFor(blobId).delete()
+            forget(blobId)
+        }
+    }
+
+    private fun forget(blobId: Long) {
+        synchronized(disk) {
+            disk.remove(blobId)?.let { diskBytes -= it }
+        }
+    }
+
+    private fun fileFor(blobId: Long): File {
+        return File(directory, java.lang.Long.toHexString(blobId))
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.radiantbyte.novarelay.config
 
+import com.radiantbyte.novarelay.listener.ObserverExecutor
+import org.cloudburstmc.netty.channel.raknet.RakTransport
+import org.cloudburstmc.protocol.bedrock.BedrockFlushPolicy
+
 data class EnhancedServerConfig(
 
     val maxRetryAttempts: Int = 5,
@@ -22,7 +26,37 @@ data class EnhancedServerConfig(
 
     val enableConnectionThrottling: Boolean = true,
 
-    val connectionThrottleDelay: Long = 3000L
+    val connectionThrottleDelay: Long = 3000L,
+
+    val flushPolicy: BedrockFlushPolicy = BedrockFlushPolicy.LOW_LATENCY,
+
+    val observerQueueCapacity: Int = 4096,
+
+    val observerOverflowPolicy: ObserverExecutor.OverflowPolicy = ObserverExecutor.OverflowPolicy.DROP_OLDEST,
+
+    val workerThreads: Int = Runtime.getRuntime().availableProcessors(),
+
+    /**
+     * Datagram transport to use, or null for the best one available on this host. A transport that is not available
+     * falls back to the best one, with a warning.
+     *
+     * The relay only ships the classes of the native transports. Linux hosts that want epoll or io_uring add
+     * `io.netty:netty-transport-native-epoll` or `io.netty:netty-transport-native-io_uring` to their runtime
+     * classpath, with the `linux-x86_64` or `linux-aarch_64` classifier of their architecture, in the relay's netty
+     * version. Without them the relay, including the examples, runs on NIO with a single listening socket.
+     */
+    val transport: RakTransport? = null,
+
+    /**
+     * Sockets bound to the listening port when the transport supports SO_REUSEPORT, or 0 for one per worker thread.
+     */
+    val listenerSockets: Int = 0,
+
+    /**
+     * Whether to open the connection to the server as soon as the client requests network settings, without the
+     * configured connection delays, so the RakNet handshake overlaps with the client's login.
+     */
+    val preconnect: Boolean = true
 ) {
 
     companion object {
@@ -9,13 +9,13 @@ import com.radiantbyte.novarelay.util.ServerCompatUtils
 import io.netty.bootstrap.Bootstrap
 import io.netty.channel.Channel
 import io.netty.channel.ChannelFuture
-import io.netty.channel.nio.NioEventLoopGroup
-import io.netty.channel.socket.nio.NioDatagramChannel
+import io.netty.channel.EventLoopGroup
 import kotlinx.coroutines.*
 import kotlin.coroutines.resume
 import kotlin.coroutines.resumeWithException
 import kotlin.coroutines.suspendCoroutine
 import org.cloudburstmc.netty.channel.raknet.RakChannelFactory
+import org.cloudburstmc.netty.channel.raknet.RakTransport
 import org.cloudburstmc.netty.channel.raknet.config.RakChannelOption
 import org.cloudburstmc.protocol.bedrock.BedrockPeer
 import org.cloudburstmc.protocol.bedrock.PacketDirection
@@ -31,7 +31,6 @@ class ConnectionManager(
     private val connectionCounts = mutableMapOf<String, Int>()
     private val rateLimitResetTime = mutableMapOf<String, Long>()
     private var isConnecting = false
-    private var eventLoopGroup: NioEventLoopGroup? = null
 
     companion object {
         private const val RATE_LIMIT_WINDOW_MS = 60000L
@@ -39,16 +38,21 @@ class ConnectionManager(
     }
 
     fun cleanup() {
-        eventLoopGroup?.shutdownGracefully()
-        eventLoopGroup = null
         connectionAttempts.clear()
         connectionCounts.clear()
         rateLimitResetTime.clear()
         isConnecting = false
     }
 
+    /**
+     * @param eventLoop event loop to register the connection on, or null to use any of the relay's workers
+     * @param immediate whether to skip the initial and realistic connection delays, for connections opened while
+     * the client is still logging in
+     */
     suspend fun connectToServer(
         remoteAddress: NovaAddress,
+        eventLoop: EventLoopGroup?,
+        immediate: Boolean = false,
         onSessionCreated: NovaRelaySession.ClientSession.() -> Unit
     ): Result<NovaRelaySession.ClientSession> = withContext(Dispatchers.IO) {
         
@@ -69,7 +73,7 @@ class ConnectionManager(
                 applyRateLimiting(remoteAddress.hostName)
             }
 
-            if (config.initialConnectionDelay > 0) {
+            if (config.initialConnectionDelay > 0 && !immediate) {
                 delay(config.initialConnectionDelay)
             }
             
@@ -79,7 +83,7 @@ class ConnectionManager(
                 try {
                     println("Connection attempt ${attempt + 1}/${config.maxRetryAttempts}")
                     
-                    val clientSession = attemptConnection(remoteAddress, config, onSessionCreated)
+                    val clientSession = attemptConnection(remoteAddress, config, eventLoop, immediate, onSessionCreated)
                     println("Successfully connected to ${remoteAddress.hostName}:${remoteAddress.port}")
                     return@withContext Result.success(clientSession)
                     
@@ -146,6 +150,8 @@ class ConnectionManager(
     private suspend fun attemptConnection(
         remoteAddress: NovaAddress,
         config: EnhancedServerConfig,
+        eventLoop: EventLoopGroup?,
+        immediate: Boolean,
         onSessionCreated: NovaRelaySession.ClientSession.() -> Unit
     ): NovaRelaySession.ClientSession = suspendCancellableCoroutine { continuation ->
 
@@ -156,7 +162,7 @@ class ConnectionManager(
             ClientIdentification.getStandardClientConfig()
         }
 
-        if (clientConfig.useRealisticTiming) {
+        if (clientConfig.useRealisticTiming && !immediate) {
             val delay = ClientIdentification.getRealisticConnectionDelay()
             println("Adding realistic connection delay: ${delay}ms")
             CoroutineScope(Dispatchers.IO).launch {
@@ -164,13 +170,16 @@ class ConnectionManager(
             }
         }
 
-        if (eventLoopGroup == null || eventLoopGroup!!.isShuttingDown || eventLoopGroup!!.isShutdown) {
-            eventLoopGroup = NioEventLoopGroup()
+        // Sharing the event loop of the client's connection keeps both legs of the session on one thread
+        val group = eventLoop ?: novaRelaySession.novaRelay.workerGroup
+        if (group == null || group.isShuttingDown) {
+            continuation.resumeWithException(IllegalStateException("NovaRelay is not running"))
+            return@suspendCancellableCoroutine
         }
-        
+
         val bootstrap = Bootstrap()
-            .group(eventLoopGroup)
-            .channelFactory(RakChannelFactory.client(NioDatagramChannel::class.java))
+            .group(group)
+            .channelFactory(RakChannelFactory.client(novaRelaySession.novaRelay.transport ?: RakTransport.NIO))
             .option(RakChannelOption.RAK_PROTOCOL_VERSION, clientConfig.protocolVersion)
             .option(RakChannelOption.RAK_GUID, clientConfig.guid)
             .option(RakChannelOption.RAK_CONNECT_TIMEOUT, config.connectionTimeout)
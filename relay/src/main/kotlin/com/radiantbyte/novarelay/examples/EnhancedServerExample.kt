@@ -8,6 +8,9 @@ import com.radiantbyte.novarelay.util.ServerCompatUtils
 import kotlinx.coroutines.runBlocking
 import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 
+/**
+ * Runs on NIO unless the native transport libraries are added to the classpath, see [EnhancedServerConfig.transport].
+ */
 object EnhancedServerExample {
     
     @JvmStatic
@@ -4,6 +4,7 @@ import com.radiantbyte.novarelay.NovaRelay
 import com.radiantbyte.novarelay.NovaRelaySession
 import com.radiantbyte.novarelay.definition.Definitions
 import org.cloudburstmc.protocol.bedrock.codec.BedrockCodec
+import org.cloudburstmc.protocol.bedrock.codec.BedrockCodecRegistry
 import org.cloudburstmc.protocol.bedrock.codec.v729.serializer.InventoryContentSerializer_v729
 import org.cloudburstmc.protocol.bedrock.codec.v729.serializer.InventorySlotSerializer_v729
 import org.cloudburstmc.protocol.bedrock.data.EncodingSettings
@@ -16,48 +17,46 @@ class AutoCodecPacketListener(
     val patchCodec: Boolean = true
 ) : NovaRelayPacketListener {
 
-    companion object {
-
-        private val protocols = AutoCodecPacketListener::class.java
-            .getResourceAsStream("protocol_mapping.txt")
-            ?.bufferedReader()
-            ?.use {
-                it.readLines()
-                    .map { version -> version.toInt() }
-            } ?: emptyList()
+    override val interestedPackets: Set<Class<out BedrockPacket>> = setOf(
+        RequestNetworkSettingsPacket::class.java
+    )
 
-        private fun fetchCodecIfClosest(
-            protocolVersion: Int
-        ): BedrockCodec {
-            val closestProtocolVersion = protocols.findLast { currentProtocolVersion ->
-                protocolVersion >= currentProtocolVersion
-            } ?: NovaRelay.DefaultCodec.protocolVersion
+    companion object {
 
-            val bedrockCodecClass = Class.forName("org.cloudburstmc.protocol.bedrock.codec.v$closestProtocolVersion.Bedrock_v$closestProtocolVersion")
-            val bedrockCodecField = bedrockCodecClass.getDeclaredField("CODEC")
-            bedrockCodecField.isAccessible = true
+        // Built once, so a joining client only costs a binary search
+        private val patchedCodecs = BedrockCodecRegistry.getDefault().map { codec ->
+            if (codec.protocolVersion > 729) {
+                codec.toBuilder()
+                    .updateSerializer(InventoryContentPacket::class.java, InventoryContentSerializer_v729.INSTANCE)
+                    .updateSerializer(InventorySlotPacket::class.java, InventorySlotSerializer_v729.INSTANCE)
+                    .build()
+            } else {
+                codec
+            }
+        }
 
-            return bedrockCodecField.get(null) as BedrockCodec
+        /**
+         * Builds the codecs ahead of the first client, whose join would otherwise wait for it.
+         */
+        internal fun preloadCodecs() {
+            patchedCodecs.latestCodec
         }
 
     }
 
-    private fun patchCodecIfNeeded(codec: BedrockCodec): BedrockCodec {
-        return if (patchCodec && codec.protocolVersion > 729) {
-            codec.toBuilder()
-                .updateSerializer(InventoryContentPacket::class.java, InventoryContentSerializer_v729.INSTANCE)
-                .updateSerializer(InventorySlotPacket::class.java, InventorySlotSerializer_v729.INSTANCE)
-                .build()
-        } else {
-            codec
-        }
+    private fun fetchCodecIfClosest(protocolVersion: Int): BedrockCodec {
+        val registry = if (patchCodec) patchedCodecs else BedrockCodecRegistry.getDefault()
+        // Clients older than every codec get the default one
+        return registry.getClosestCodec(protocolVersion)
+            ?: registry.getCodec(NovaRelay.DefaultCodec.protocolVersion)
+            ?: NovaRelay.DefaultCodec
     }
 
     override fun beforeClientBound(packet: BedrockPacket): Boolean {
         if (packet is RequestNetworkSettingsPacket) {
             try {
                 val protocolVersion = packet.protocolVersion
-                val bedrockCodec = patchCodecIfNeeded(fetchCodecIfClosest(protocolVersion))
+                val bedrockCodec = fetchCodecIfClosest(protocolVersion)
                 println("Fetched bedrock codec: ${bedrockCodec.protocolVersion} for protocol: $protocolVersion")
 
                 novaRelaySession.server.codec = bedrockCodec
@@ -81,6 +80,9 @@ class AutoCodecPacketListener(
                 novaRelaySession.clientBoundImmediately(networkSettingsPacket)
                 novaRelaySession.server.setCompression(PacketCompressionAlgorithm.ZLIB)
                 println("Client enabled compression: ZLIB with threshold 1")
+
+                // The codec is known now, so the server handshake can run while the client logs in
+                novaRelaySession.preconnect()
             } catch (e: Exception) {
                 println("Failed to process network settings: ${e.message}")
                 e.printStackTrace()
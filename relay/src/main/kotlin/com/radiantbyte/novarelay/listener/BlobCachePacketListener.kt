@@ -0,0 +1,421 @@
+package com.radiantbyte.novarelay.listener
+
+import com.radiantbyte.novarelay.NovaRelaySession
+import com.radiantbyte.novarelay.cache.BlobStore
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import io.netty.channel.EventLoop
+import io.netty.util.ReferenceCountUtil
+import io.netty.util.concurrent.ScheduledFuture
+import it.unimi.dsi.fastutil.longs.LongArrayList
+import it.unimi.dsi.fastutil.longs.LongList
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import org.cloudburstmc.protocol.bedrock.data.SubChunkRequestResult
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
+import org.cloudburstmc.protocol.bedrock.packet.ClientCacheBlobStatusPacket
+import org.cloudburstmc.protocol.bedrock.packet.ClientCacheMissResponsePacket
+import org.cloudburstmc.protocol.bedrock.packet.ClientCacheStatusPacket
+import org.cloudburstmc.protocol.bedrock.packet.LevelChunkPacket
+import org.cloudburstmc.protocol.bedrock.packet.SubChunkPacket
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+/**
+ * Serves the chunk blobs of the client cache protocol from a local [BlobStore].
+ *
+ * Every blob the server sends is stored. When the client supports the cache, blobs it reports missing are answered
+ * from the store and only the rest are requested from the server. When the client does not support the cache and
+ * [negotiateWithServer] is set, the relay enables it with the server on the client's behalf: cached chunks are held
+ * back until their blobs are available locally and are then forwarded in the uncached format.
+ *
+ * While chunks are held, every later packet from the server is queued behind them, so the client never applies a
+ * chunk over newer block updates. Listeners added after this one do not see the queued packets, so add it last.
+ * Blobs still missing after [BLOB_TIMEOUT_MILLIS] are requested again, and the client is disconnected once
+ * [MAX_BLOB_RETRIES] requests went unanswered.
+ */
+@Suppress("MemberVisibilityCanBePrivate")
+class BlobCachePacketListener(
+    val novaRelaySession: NovaRelaySession,
+    val store: BlobStore,
+    val negotiateWithServer: Boolean = true
+) : NovaRelayPacketListener {
+
+    // Chunks are only decoded while the relay resolves them for the client
+    override val interestedPackets: Set<Class<out BedrockPacket>>
+        get() = if (resolvingForClient) RESOLVING_PACKETS else CACHE_PACKETS
+
+    // While chunks are held the packets after them are queued as they were received, without decoding them
+    override val receivesUndecoded: Boolean
+        get() = holding
+
+    /**
+     * Whether the relay enabled the cache with the server for a client that does not support it.
+     */
+    @Volatile
+    var resolvingForClient = false
+        private set
+
+    @Volatile
+    private var holding = false
+
+    // Held chunks and the packets queued behind them, in the order the server sent them
+    private val pending = ArrayDeque<PendingPacket>()
+
+    // Blobs requested from the server that have not arrived yet
+    private val requested = LongOpenHashSet()
+    private var timeoutTask: ScheduledFuture<*>? = null
+
+    override fun beforeClientBound(packet: BedrockPacket): Boolean {
+        if (packet is ClientCacheStatusPacket) {
+            if (packet.isSupported || !negotiateWithServer) {
+                return false
+            }
+            resolvingForClient = true
+            novaRelaySession.invalidateListeners()
+            novaRelaySession.serverBound(ClientCacheStatusPacket().apply { isSupported = true })
+            return true
+        }
+        if (packet is ClientCacheBlobStatusPacket && packet.naks.isNotEmpty()) {
+            return answerMisses(packet)
+        }
+        return false
+    }
+
+    override fun beforeServerBound(packet: BedrockPacket): Boolean {
+        when (packet) {
+            is ClientCacheMissResponsePacket -> {
+                val received = packet.blobs.long2ObjectEntrySet().map { it.longKey to store.put(it.longKey, it.value) }
+                if (!resolvingForClient) {
+                    return false
+                }
+                synchronized(pending) {
+                    // Resolved from the received copies, so evicting them from the store cannot strand a chunk
+                    for ((blobId, blob) in received) {
+                        requested.remove(blobId)
+                        resolve(blobId, blob)
+                    }
+                    flushResolved()
+                }
+                return true
+            }
+
+            is LevelChunkPacket -> {
+                if (resolvingForClient && packet.isCachingEnabled) {
+                    hold(packet, packet.blobIds)
+                    return true
+                }
+            }
+
+            is SubChunkPacket -> {
+                if (resolvingForClient && packet.isCacheEnabled) {
+                    val blobIds = LongArrayList()
+                    packet.subChunks.forEach {
+                        if (it.result == SubChunkRequestResult.SUCCESS) {
+                            blobIds.add(it.blobId)
+                        }
+                    }
+                    hold(packet, blobIds)
+                    return true
+                }
+            }
+        }
+
+        // Packets other than chunks arrive undecoded while chunks are held
+        synchronized(pending) {
+            if (pending.isEmpty()) {
+                return false
+            }
+            ReferenceCountUtil.retain(packet)
+            enqueue(PendingPacket(packet, LongArrayList(), false))
+        }
+        return true
+    }
+
+    override fun onDisconnect(reason: String) {
+        synchronized(pending) {
+            pending.forEach { ReferenceCountUtil.release(it.packet) }
+            pending.clear()
+            requested.clear()
+            stopHolding()
+        }
+    }
+
+    /**
+     * Answers the blobs the client is missing that are stored locally, and forwards the remaining misses to the
+     * server. Blobs answered locally are reported to the server as received.
+     */
+    private fun answerMisses(packet: ClientCacheBlobStatusPacket): Boolean {
+        val response = ClientCacheMissResponsePacket()
+        val onDisk = LongArrayList()
+        val naks = LongArrayList()
+        for (i in 0 until packet.naks.size) {
+            val blobId = packet.naks.getLong(i)
+            val blob = store.getCached(blobId)
+            if (blob != null) {
+                response.blobs.put(blobId, blob)
+            } else if (store.contains(blobId)) {
+                onDisk.add(blobId)
+            } else {
+                naks.add(blobId)
+            }
+        }
+        if (response.blobs.isEmpty() && onDisk.isEmpty()) {
+            return false
+        }
+
+        if (response.blobs.isNotEmpty()) {
+            novaRelaySession.clientBound(response)
+        }
+        novaRelaySession.serverBound(ClientCacheBlobStatusPacket().apply {
+            acks.addAll(packet.acks)
+            acks.addAll(response.blobs.keys)
+            this.naks.addAll(naks)
+        })
+        if (onDisk.isNotEmpty()) {
+            answerFromDisk(onDisk)
+        }
+        return true
+    }
+
+    /**
+     * Loads blobs the client is missing from disk, away from the event loop, and answers them once loaded. Blobs
+     * evicted in the meantime are requested from the server instead.
+     */
+    private fun answerFromDisk(blobIds: LongList) {
+        val loads = blobIds.map { blobId -> store.load(blobId).thenApply { blobId to it } }
+        CompletableFuture.allOf(*loads.toTypedArray()).thenRun {
+            val response = ClientCacheMissResponsePacket()
+            val status = ClientCacheBlobStatusPacket()
+            for (load in loads) {
+                val (blobId, blob) = load.join()
+                if (blob != null) {
+                    response.blobs.put(blobId, blob)
+                    status.acks.add(blobId)
+                } else {
+                    status.naks.add(blobId)
+                }
+            }
+            onEventLoop {
+                if (response.blobs.isNotEmpty()) {
+                    novaRelaySession.clientBound(response)
+                }
+                novaRelaySession.serverBound(status)
+            }
+        }
+    }
+
+    private fun hold(packet: BedrockPacket, blobIds: LongList) {
+        val entry = PendingPacket(packet, blobIds, true)
+        val status = ClientCacheBlobStatusPacket()
+        val onDisk = LongArrayList()
+        synchronized(pending) {
+            for (i in 0 until blobIds.size) {
+                val blobId = blobIds.getLong(i)
+                val blob = store.getCached(blobId)
+                if (blob != null) {
+                    entry.resolve(blobId, blob)
+                    status.acks.add(blobId)
+                } else if (store.contains(blobId)) {
+                    onDisk.add(blobId)
+                } else if (requested.add(blobId)) {
+                    status.naks.add(blobId)
+                }
+            }
+            ReferenceCountUtil.retain(packet)
+            enqueue(entry)
+            flushResolved()
+        }
+        if (status.acks.isNotEmpty() || status.naks.isNotEmpty()) {
+            novaRelaySession.serverBound(status)
+        }
+
+        for (i in 0 until onDisk.size) {
+            val blobId = onDisk.getLong(i)
+            store.load(blobId).thenAccept { blob -> upstreamLoop()?.execute { onLoaded(blobId, blob) } }
+        }
+    }
+
+    private fun onLoaded(blobId: Long, blob: ByteBuf?) {
+        val status = ClientCacheBlobStatusPacket()
+        synchronized(pending) {
+            if (blob != null) {
+                status.acks.add(blobId)
+                resolve(blobId, blob)
+                flushResolved()
+            } else if (requested.add(blobId)) {
+                // Evicted from disk before it was loaded
+                status.naks.add(blobId)
+            }
+        }
+        if (status.acks.isNotEmpty() || status.naks.isNotEmpty()) {
+            novaRelaySession.serverBound(status)
+        }
+    }
+
+    private fun resolve(blobId: Long, blob: ByteBuf) {
+        pending.forEach { it.resolve(blobId, blob) }
+    }
+
+    private fun enqueue(entry: PendingPacket) {
+        pending.addLast(entry)
+        if (!holding) {
+            holding = true
+            novaRelaySession.invalidateListeners()
+            timeoutTask = upstreamLoop()?.scheduleAtFixedRate(
+                ::checkTimeout, BLOB_TIMEOUT_MILLIS, BLOB_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS
+            )
+        }
+    }
+
+    private fun stopHolding() {
+        if (holding) {
+            holding = false
+            novaRelaySession.invalidateListeners()
+            timeoutTask?.cancel(false)
+            timeoutTask = null
+        }
+    }
+
+    /**
+     * Forwards the held packets from the front of the queue until one still waits for blobs.
+     */
+    private fun flushResolved() {
+        while (true) {
+            val entry = pending.firstOrNull() ?: break
+            if (entry.missing > 0) {
+                return
+            }
+            pending.removeFirst()
+            // A blob can belong to several chunks, each of which releases what it was given
+            val packet = if (entry.cached) {
+                uncached(entry.packet, entry.blobs.map { it!!.retainedDuplicate() })
+            } else {
+                entry.packet
+            }
+            novaRelaySession.clientBound(packet)
+        }
+        stopHolding()
+    }
+
+    /**
+     * Requests the blobs of the oldest held chunk again once they are overdue, and gives up on the client when the
+     * server does not answer.
+     */
+    private fun checkTimeout() {
+        val status = ClientCacheBlobStatusPacket()
+        synchronized(pending) {
+            val entry = pending.firstOrNull() ?: return
+            if (System.currentTimeMillis() - entry.waitingSince < BLOB_TIMEOUT_MILLIS) {
+                return
+            }
+            if (entry.retries >= MAX_BLOB_RETRIES) {
+                println("Chunk blobs were not received after $MAX_BLOB_RETRIES requests, disconnecting")
+                novaRelaySession.server.disconnect("Timed out waiting for chunk data")
+                return
+            }
+            entry.retries++
+            entry.waitingSince = System.currentTimeMillis()
+            entry.missingBlobIds().forEach { blobId ->
+                requested.add(blobId)
+                status.naks.add(blobId)
+            }
+        }
+        novaRelaySession.serverBound(status)
+    }
+
+    /**
+     * Converts a cached packet to the uncached format by prepending each blob to the data it belongs to.
+     */
+    private fun uncached(packet: BedrockPacket, blobs: List<ByteBuf>): BedrockPacket {
+        when (packet) {
+            is LevelChunkPacket -> {
+                // The sub-chunk blobs come first and the biome blob last, followed by the remainder of the chunk
+                packet.data = Unpooled.wrappedBuffer(blobs.size + 1, *blobs.toTypedArray(), packet.data)
+                packet.isCachingEnabled = false
+                packet.blobIds.clear()
+            }
+
+            is SubChunkPacket -> {
+                var index = 0
+                packet.subChunks.forEach {
+                    when (it.result) {
+                        SubChunkRequestResult.SUCCESS -> {
+                            it.data = Unpooled.wrappedBuffer(blobs[index++], it.data)
+                        }
+
+                        SubChunkRequestResult.SUCCESS_ALL_AIR -> {
+                            if (it.data == null) {
+                                it.data = Unpooled.EMPTY_BUFFER
+                            }
+                        }
+
+                        else -> {}
+                    }
+                    it.blobId = 0
+                }
+                packet.isCacheEnabled = false
+            }
+        }
+        return packet
+    }
+
+    private fun onEventLoop(task: () -> Unit) {
+        novaRelaySession.server.peer.channel.eventLoop().execute(task)
+    }
+
+    // Server packets and the held chunks are handled on the event loop of the connection to the server
+    private fun upstreamLoop(): EventLoop? {
+        return novaRelaySession.client?.peer?.channel?.eventLoop()
+    }
+
+    private class PendingPacket(
+        val packet: BedrockPacket,
+        val blobIds: LongList,
+        val cached: Boolean
+    ) {
+
+        val blobs = arrayOfNulls<ByteBuf>(blobIds.size)
+        var missing = blobIds.size
+        var waitingSince = System.currentTimeMillis()
+        var retries = 0
+
+        fun resolve(blobId: Long, blob: ByteBuf) {
+            for (i in 0 until blobIds.size) {
+                if (blobs[i] == null && blobIds.getLong(i) == blobId) {
+                    blobs[i] = blob
+                    missing--
+                }
+            }
+        }
+
+        fun missingBlobIds(): LongList {
+            val blobIds = LongArrayList()
+            for (i in 0 until this.blobIds.size) {
+                if (blobs[i] == null) {
+                    blobIds.add(this.blobIds.getLong(i))
+                }
+            }
+            return blobIds
+        }
+
+    }
+
+    companion object {
+
+        private val CACHE_PACKETS: Set<Class<out BedrockPacket>> = setOf(
+            ClientCacheStatusPacket::class.java,
+            ClientCacheBlobStatusPacket::class.java,
+            ClientCacheMissResponsePacket::class.java
+        )
+
+        private val RESOLVING_PACKETS: Set<Class<out BedrockPacket>> = CACHE_PACKETS + setOf(
+            LevelChunkPacket::class.java,
+            SubChunkPacket::class.java
+        )
+
+        const val BLOB_TIMEOUT_MILLIS = 5000L
+        const val MAX_BLOB_RETRIES = 2
+
+    }
+
+}
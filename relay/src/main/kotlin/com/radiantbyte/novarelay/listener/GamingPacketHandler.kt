@@ -15,6 +15,12 @@ class GamingPacketHandler(
     val novaRelaySession: NovaRelaySession
 ) : NovaRelayPacketListener {
 
+    override val interestedPackets: Set<Class<out BedrockPacket>> = setOf(
+        org.cloudburstmc.protocol.bedrock.packet.DisconnectPacket::class.java,
+        StartGamePacket::class.java,
+        CameraPresetsPacket::class.java
+    )
+
     override fun beforeClientBound(packet: BedrockPacket): Boolean {
         if (packet is org.cloudburstmc.protocol.bedrock.packet.DisconnectPacket) {
             println("Server sent disconnect: ${packet.kickMessage}")
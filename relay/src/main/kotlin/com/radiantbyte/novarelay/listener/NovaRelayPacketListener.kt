@@ -4,6 +4,39 @@ import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
 
 interface NovaRelayPacketListener {
 
+    /**
+     * Packet classes this listener inspects. When both this and [interestedPacketIds] are null, the listener
+     * receives every packet. Packets that no listener is interested in are forwarded without being decoded.
+     * Call [com.radiantbyte.novarelay.NovaRelaySession.invalidateListeners] after this changes.
+     */
+    val interestedPackets: Set<Class<out BedrockPacket>>?
+        get() = null
+
+    /**
+     * Packet IDs this listener inspects in addition to [interestedPackets], or null for none.
+     * Useful for packets the codec does not define, which are delivered as [org.cloudburstmc.protocol.bedrock.packet.UnknownPacket].
+     */
+    val interestedPacketIds: Set<Int>?
+        get() = null
+
+    /**
+     * Whether the packets this listener is not interested in are passed to [beforeClientBound] and
+     * [beforeServerBound] as well, in the form they are forwarded in: an
+     * [org.cloudburstmc.protocol.bedrock.packet.UnknownPacket] holding their original bytes, or the packet itself if
+     * another listener changed it. Packets which fail to decode are passed the same way. Lets a listener hold packets
+     * back in order without decoding them. Such packets are not observed. Call [com.radiantbyte.novarelay.NovaRelaySession.invalidateListeners] after this changes.
+     */
+    val receivesUndecoded: Boolean
+        get() = false
+
+    /**
+     * Whether [afterClientBound] and [afterServerBound] run on the event loop that received the packet, before the
+     * next packet is handled. Listeners whose callbacks block or take long should return false, so they run on the
+     * session's [ObserverExecutor], away from the event loop, at the cost of queueing every packet they observe.
+     */
+    val observesOnEventLoop: Boolean
+        get() = true
+
     fun beforeClientBound(packet: BedrockPacket): Boolean {
         return false
     }
@@ -18,4 +51,4 @@ interface NovaRelayPacketListener {
 
     fun onDisconnect(reason: String) {}
 
-}
\ No newline at end of file
+}
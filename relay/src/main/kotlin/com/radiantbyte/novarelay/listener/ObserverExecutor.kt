@@ -0,0 +1,130 @@
+package com.radiantbyte.novarelay.listener
+
+import io.netty.util.ReferenceCountUtil
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Runs the `after*` callbacks of a session's listeners away from the Netty event loop, one at a time and in the
+ * order the packets were received.
+ *
+ * Tasks wait in a queue of [capacity] entries. When the queue is full, [overflowPolicy] decides whether a packet
+ * goes unobserved or whether the event loop runs the callbacks itself.
+ */
+class ObserverExecutor(
+    val capacity: Int,
+    val overflowPolicy: OverflowPolicy,
+    dispatcher: CoroutineDispatcher = Dispatchers.Default
+) {
+
+    enum class OverflowPolicy {
+        /**
+         * Drops the oldest queued packet to make room for the new one.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Drops the new packet.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Runs the callbacks of the new packet on the event loop. No packet goes unobserved, but a slow listener
+         * slows down the connection and the packet is observed ahead of the queued ones.
+         */
+        CALLER_RUNS
+    }
+
+    private val dropped = AtomicLong()
+
+    /**
+     * Number of packets that were not observed because the queue was full or the executor was closed.
+     */
+    val droppedCount: Long
+        get() = dropped.get()
+
+    private val tasks = Channel<Task>(
+        capacity,
+        when (overflowPolicy) {
+            OverflowPolicy.DROP_OLDEST -> BufferOverflow.DROP_OLDEST
+            OverflowPolicy.DROP_NEWEST -> BufferOverflow.DROP_LATEST
+            OverflowPolicy.CALLER_RUNS -> BufferOverflow.SUSPEND
+        }
+    ) { task ->
+        dropped.incrementAndGet()
+        task.discard()
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + dispatcher)
+
+    init {
+        scope.launch {
+            for (task in tasks) {
+                task.run()
+            }
+        }
+    }
+
+    /**
+     * Queues an observation of the packet. The packet is retained until the observation has run or been dropped.
+     */
+    fun execute(packet: BedrockPacket, action: () -> Unit) {
+        val task = Task(ReferenceCountUtil.retain(packet), action)
+        val result = tasks.trySend(task)
+        if (result.isSuccess) {
+            return
+        }
+        if (result.isClosed) {
+            dropped.incrementAndGet()
+            task.discard()
+            return
+        }
+        task.run()
+    }
+
+    /**
+     * Stops accepting packets. Packets that are already queued are still observed.
+     */
+    fun close() {
+        tasks.close()
+    }
+
+    /**
+     * Stops accepting packets and drops the queued ones.
+     */
+    fun shutdownNow() {
+        tasks.cancel()
+        scope.cancel()
+    }
+
+    private class Task(
+        private val packet: BedrockPacket,
+        private val action: () -> Unit
+    ) {
+
+        fun run() {
+            try {
+                action()
+            } catch (e: Throwable) {
+                println("Packet observer error: ${e.message}")
+                e.printStackTrace()
+            } finally {
+                ReferenceCountUtil.release(packet)
+            }
+        }
+
+        fun discard() {
+            ReferenceCountUtil.release(packet)
+        }
+
+    }
+
+}
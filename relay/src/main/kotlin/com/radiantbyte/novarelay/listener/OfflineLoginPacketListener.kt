@@ -19,6 +19,11 @@ class OfflineLoginPacketListener(
     val keyPair: KeyPair = DefaultKeyPair
 ) : NovaRelayPacketListener {
 
+    override val interestedPackets: Set<Class<out BedrockPacket>> = setOf(
+        LoginPacket::class.java,
+        NetworkSettingsPacket::class.java
+    )
+
     companion object {
 
         val DefaultKeyPair: KeyPair = EncryptionUtils.createKeyPair()
@@ -29,8 +34,14 @@ class OfflineLoginPacketListener(
 
     private var extraData: JSONObject? = null
 
+    @Volatile
     private var skinData: JSONObject? = null
 
+    @Volatile
+    private var networkSettingsReceived = false
+
+    private var loginSent = false
+
     override fun beforeClientBound(packet: BedrockPacket): Boolean {
         if (packet is LoginPacket) {
             val authPayload = packet.authPayload
@@ -51,7 +62,10 @@ class OfflineLoginPacketListener(
                 jws.compactSerialization = packet.clientJwt
 
                 skinData = JSONObject(JsonUtil.parseJson(jws.unverifiedPayload))
-                connectServer()
+                if (!novaRelaySession.preconnecting) {
+                    connectServer()
+                }
+                sendLoginIfReady()
                 return true
             }
         }
@@ -69,32 +83,47 @@ class OfflineLoginPacketListener(
                 println("Compression threshold set to 0")
             }
 
-            try {
-                val chain = AuthUtilsOffline.fetchOfflineChain(keyPair, extraData!!, chain!!)
-                val skinData = AuthUtilsOffline.fetchOfflineSkinData(keyPair, skinData!!)
-
-                val loginPacket = LoginPacket()
-                loginPacket.protocolVersion = novaRelaySession.server.codec.protocolVersion
-                val authPayload = CertificateChainPayload(chain)
-                loginPacket.authPayload = authPayload
-                loginPacket.clientJwt = skinData
-                novaRelaySession.serverBoundImmediately(loginPacket)
-
-                println("Login success")
-            } catch (e: Throwable) {
-                novaRelaySession.clientBound(DisconnectPacket().apply {
-                    kickMessage = e.toString()
-                })
-                println("Login failed: $e")
-            }
-
+            networkSettingsReceived = true
+            sendLoginIfReady()
             return true
         }
         return super.beforeServerBound(packet)
     }
 
+    /**
+     * Sends the login to the server once both its network settings and the client's login are known. With a
+     * preconnected server either can come first.
+     */
+    @Synchronized
+    private fun sendLoginIfReady() {
+        val skinData = skinData
+        if (loginSent || !networkSettingsReceived || skinData == null) {
+            return
+        }
+        loginSent = true
+
+        try {
+            val chain = AuthUtilsOffline.fetchOfflineChain(keyPair, extraData!!, chain!!)
+            val signedSkinData = AuthUtilsOffline.fetchOfflineSkinData(keyPair, skinData)
+
+            val loginPacket = LoginPacket()
+            loginPacket.protocolVersion = novaRelaySession.server.codec.protocolVersion
+            val authPayload = CertificateChainPayload(chain)
+            loginPacket.authPayload = authPayload
+            loginPacket.clientJwt = signedSkinData
+            novaRelaySession.serverBoundImmediately(loginPacket)
+
+            println("Login success")
+        } catch (e: Throwable) {
+            novaRelaySession.clientBound(DisconnectPacket().apply {
+                kickMessage = e.toString()
+            })
+            println("Login failed: $e")
+        }
+    }
+
     private fun connectServer() {
-        novaRelaySession.novaRelay.connectToServer {
+        novaRelaySession.connectToServer {
             println("Connected to server")
 
             val packet = RequestNetworkSettingsPacket()
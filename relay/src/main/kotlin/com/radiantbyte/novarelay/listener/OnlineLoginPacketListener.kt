@@ -3,6 +3,9 @@ package com.radiantbyte.novarelay.listener
 import com.radiantbyte.novarelay.NovaRelaySession
 import com.radiantbyte.novarelay.util.AuthUtils
 import com.radiantbyte.novarelay.util.refresh
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
 import net.kyori.adventure.text.Component
 import net.raphimc.minecraftauth.step.bedrock.session.StepFullBedrockSession
 import org.cloudburstmc.protocol.bedrock.data.PacketCompressionAlgorithm
@@ -22,13 +25,29 @@ import kotlin.io.encoding.ExperimentalEncodingApi
 @Suppress("MemberVisibilityCanBePrivate")
 class OnlineLoginPacketListener(
     val novaRelaySession: NovaRelaySession,
-    private var fullBedrockSession: StepFullBedrockSession.FullBedrockSession
+    @Volatile private var fullBedrockSession: StepFullBedrockSession.FullBedrockSession
 ) : NovaRelayPacketListener {
 
+    override val interestedPackets: Set<Class<out BedrockPacket>> = setOf(
+        LoginPacket::class.java,
+        NetworkSettingsPacket::class.java,
+        ServerToClientHandshakePacket::class.java
+    )
+
+    @Volatile
     private var skinData: JSONObject? = null
 
-    override fun beforeClientBound(packet: BedrockPacket): Boolean {
-        if (packet is LoginPacket) {
+    @Volatile
+    private var sessionReady = false
+
+    @Volatile
+    private var networkSettingsReceived = false
+
+    private var loginSent = false
+
+    init {
+        // Refresh while the client and the server are still shaking hands, instead of after the client's login
+        CoroutineScope(Dispatchers.IO).launch {
             if (fullBedrockSession.isExpired) {
                 println("Session expired, attempting to refresh tokens...")
 
@@ -39,10 +58,16 @@ class OnlineLoginPacketListener(
                     println("Failed to refresh session: ${e.message}")
                     e.printStackTrace()
                     novaRelaySession.server.disconnect("Your session has expired and could not be refreshed. Please re-login in the Nova Client.")
-                    return true
+                    return@launch
                 }
             }
+            sessionReady = true
+            sendLoginIfReady()
+        }
+    }
 
+    override fun beforeClientBound(packet: BedrockPacket): Boolean {
+        if (packet is LoginPacket) {
             println("Processing login packet")
 
             try {
@@ -50,7 +75,10 @@ class OnlineLoginPacketListener(
                 jws.compactSerialization = packet.clientJwt
 
                 skinData = JSONObject(JsonUtil.parseJson(jws.unverifiedPayload))
-                connectServer()
+                if (!novaRelaySession.preconnecting) {
+                    connectServer()
+                }
+                sendLoginIfReady()
             } catch (e: Exception) {
                 println("Failed to process login packet: ${e.message}")
                 e.printStackTrace()
@@ -74,29 +102,8 @@ class OnlineLoginPacketListener(
                 println("Compression disabled")
             }
 
-            try {
-                val chain = AuthUtils.fetchOnlineChain(fullBedrockSession)
-                val skinData =
-                    AuthUtils.fetchOnlineSkinData(
-                        fullBedrockSession,
-                        skinData!!,
-                        novaRelaySession.novaRelay.remoteAddress!!
-                    )
-
-                val loginPacket = LoginPacket()
-                loginPacket.protocolVersion = novaRelaySession.server.codec.protocolVersion
-                loginPacket.authPayload = CertificateChainPayload(chain, AuthType.FULL)
-                loginPacket.clientJwt = skinData
-                novaRelaySession.serverBoundImmediately(loginPacket)
-
-                println("Login packet sent successfully")
-            } catch (e: Throwable) {
-                println("Login failed: ${e.message}")
-                e.printStackTrace()
-                novaRelaySession.server.disconnect("Authentication failed: ${e.message}")
-                return true
-            }
-
+            networkSettingsReceived = true
+            sendLoginIfReady()
             return true
         }
         if (packet is ServerToClientHandshakePacket) {
@@ -139,9 +146,44 @@ class OnlineLoginPacketListener(
         return false
     }
 
+    /**
+     * Sends the login to the server once its network settings, the client's login and the refreshed session are all
+     * known. With a preconnected server they come in any order and from different threads.
+     */
+    @Synchronized
+    private fun sendLoginIfReady() {
+        val skinData = skinData
+        if (loginSent || !sessionReady || !networkSettingsReceived || skinData == null) {
+            return
+        }
+        loginSent = true
+
+        try {
+            val chain = AuthUtils.fetchOnlineChain(fullBedrockSession)
+            val signedSkinData =
+                AuthUtils.fetchOnlineSkinData(
+                    fullBedrockSession,
+                    skinData,
+                    novaRelaySession.remoteAddress
+                )
+
+            val loginPacket = LoginPacket()
+            loginPacket.protocolVersion = novaRelaySession.server.codec.protocolVersion
+            loginPacket.authPayload = CertificateChainPayload(chain, AuthType.FULL)
+            loginPacket.clientJwt = signedSkinData
+            novaRelaySession.serverBoundImmediately(loginPacket)
+
+            println("Login packet sent successfully")
+        } catch (e: Throwable) {
+            println("Login failed: ${e.message}")
+            e.printStackTrace()
+            novaRelaySession.server.disconnect("Authentication failed: ${e.message}")
+        }
+    }
+
     private fun connectServer() {
         try {
-            novaRelaySession.novaRelay.connectToServer {
+            novaRelaySession.connectToServer {
                 println("Connected to server, sending network settings request")
 
                 try {
@@ -0,0 +1,73 @@
+package com.radiantbyte.novarelay.listener
+
+import org.cloudburstmc.protocol.bedrock.codec.BedrockCodec
+import org.cloudburstmc.protocol.bedrock.packet.BedrockPacket
+import org.cloudburstmc.protocol.bedrock.packet.UnknownPacket
+
+/**
+ * Maps packet IDs to the listeners interested in them for one codec and one snapshot of the listeners.
+ * Entries are resolved the first time an ID is seen, so a packet only visits the listeners that want it.
+ * Only the event loop of the session it belongs to may use a dispatch.
+ */
+internal class PacketListenerDispatch(
+    val codec: BedrockCodec,
+    val version: Int,
+    private val listeners: Array<NovaRelayPacketListener>
+) {
+
+    private val byId = arrayOfNulls<Array<NovaRelayPacketListener>>(MAX_CACHED_ID + 1)
+    private val undecodedById = arrayOfNulls<Array<NovaRelayPacketListener>>(MAX_CACHED_ID + 1)
+
+    /**
+     * Listeners which receive packets without decoding them, see [NovaRelayPacketListener.receivesUndecoded].
+     */
+    val undecodedListeners: Array<NovaRelayPacketListener> = listeners.filter { it.receivesUndecoded }.toTypedArray()
+
+    fun listenersFor(packetId: Int): Array<NovaRelayPacketListener> {
+        if (packetId < 0 || packetId > MAX_CACHED_ID) {
+            return resolve(packetId)
+        }
+        return byId[packetId] ?: resolve(packetId).also { byId[packetId] = it }
+    }
+
+    /**
+     * Listeners which receive the packet undecoded because they are not interested in it.
+     */
+    fun undecodedListenersFor(packetId: Int): Array<NovaRelayPacketListener> {
+        if (undecodedListeners.isEmpty()) {
+            return undecodedListeners
+        }
+        if (packetId < 0 || packetId > MAX_CACHED_ID) {
+            return resolveUndecoded(packetId)
+        }
+        return undecodedById[packetId] ?: resolveUndecoded(packetId).also { undecodedById[packetId] = it }
+    }
+
+    private fun resolve(packetId: Int): Array<NovaRelayPacketListener> {
+        if (listeners.isEmpty()) {
+            return listeners
+        }
+        val packetClass = codec.getPacketDefinition(packetId)?.packetClass ?: UnknownPacket::class.java
+        return listeners.filter { it.isInterestedIn(packetClass, packetId) }.toTypedArray()
+    }
+
+    private fun resolveUndecoded(packetId: Int): Array<NovaRelayPacketListener> {
+        val interested = listenersFor(packetId)
+        return undecodedListeners.filter { it !in interested }.toTypedArray()
+    }
+
+    private fun NovaRelayPacketListener.isInterestedIn(packetClass: Class<out BedrockPacket>, packetId: Int): Boolean {
+        val packets = interestedPackets
+        val packetIds = interestedPacketIds
+        if (packets == null && packetIds == null) {
+            return true
+        }
+        // Same rule as module subscriptions: a listener interested in a class also receives its subclasses
+        return packets?.any { it.isAssignableFrom(packetClass) } == true || packetIds?.contains(packetId) == true
+    }
+
+    private companion object {
+        const val MAX_CACHED_ID = 1023
+    }
+
+}
@@ -10,17 +10,20 @@ class TransferPacketListener(
     val novaRelaySession: NovaRelaySession
 ) : NovaRelayPacketListener {
 
+    override val interestedPackets: Set<Class<out BedrockPacket>> = setOf(
+        TransferPacket::class.java
+    )
+
     override fun beforeServerBound(packet: BedrockPacket): Boolean {
         if (packet is TransferPacket) {
             val remoteAddress = NovaAddress(packet.address, packet.port)
             val localAddress = novaRelaySession.novaRelay.localAddress
-            novaRelaySession.novaRelay.remoteAddress = remoteAddress
+            novaRelaySession.novaRelay.transfer(novaRelaySession, remoteAddress)
             novaRelaySession.clientBoundImmediately(TransferPacket().apply {
                 address = localAddress.hostName
                 port = localAddress.port
             })
 
-            novaRelaySession.novaRelay.novaRelaySession = null
             return true
         }
         return false
@@ -0,0 +1,129 @@
+package com.radiantbyte.novarelay.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock-free histogram of non-negative values with logarithmic buckets, in the style of HdrHistogram.
+ *
+ * Values below 2^[precisionBits] are counted exactly. Every higher power of two is split into 2^[precisionBits]
+ * buckets, so a recorded value is off by at most 1 / 2^[precisionBits] of itself, 6.25% by default. Recording
+ * never allocates, so it is safe to call from the event loops for every packet.
+ */
+class LatencyHistogram(val precisionBits: Int = 4) {
+
+    init {
+        require(precisionBits in 1..10) { "precisionBits must be between 1 and 10" }
+    }
+
+    private val subBuckets = 1 shl precisionBits
+    private val counts = AtomicLongArray((64 - precisionBits + 1) * subBuckets)
+    private val total = AtomicLong()
+    private val sum = AtomicLong()
+    private val max = AtomicLong()
+
+    fun record(value: Long) {
+        val clamped = if (value < 0) 0 else value
+        counts.incrementAndGet(indexOf(clamped))
+        total.incrementAndGet()
+        sum.addAndGet(clamped)
+
+        var current = max.get()
+        while (clamped > current && !max.compareAndSet(current, clamped)) {
+            current = max.get()
+        }
+    }
+
+    /**
+     * Copies the recorded values. Values recorded while the copy is taken may or may not be included.
+     */
+    fun snapshot(): Snapshot {
+        val copy = LongArray(counts.length())
+        var count = 0L
+        for (i in copy.indices) {
+            copy[i] = counts.get(i)
+            count += copy[i]
+        }
+        return Snapshot(copy, count, sum.get(), max.get())
+    }
+
+    fun reset() {
+        for (i in 0 until counts.length()) {
+            counts.set(i, 0)
+        }
+        total.set(0)
+        sum.set(0)
+        max.set(0)
+    }
+
+    val count: Long
+        get() = total.get()
+
+    private fun indexOf(value: Long): Int {
+        if (value < subBuckets) {
+            return value.toInt()
+        }
+        val shift = 63 - java.lang.Long.numberOfLeadingZeros(value) - precisionBits
+        val mantissa = (value ushr shift).toInt()
+        return (shift + 1) * subBuckets + (mantissa - subBuckets)
+    }
+
+    /**
+     * @return highest value counted by the bucket at the index
+     */
+    private fun highestValueOf(index: Int): Long {
+        if (index < subBuckets) {
+            return index.toLong()
+        }
+        val shift = index / subBuckets - 1
+        val mantissa = (index % subBuckets + subBuckets).toLong()
+        val highest = ((mantissa + 1) shl shift) - 1
+        // The last bucket ends at 2^64, which does not fit in a long
+        return if (highest < 0) Long.MAX_VALUE else highest
+    }
+
+    inner class Snapshot internal constructor(
+        private val counts: LongArray,
+        val count: Long,
+        private val sum: Long,
+        val max: Long
+    ) {
+
+        val mean: Double
+            get() = if (count == 0L) 0.0 else sum.toDouble() / count
+
+        /**
+         * @param percentile percentile between 0 and 100
+         * @return value at or below which the given percentage of the recorded values lie, or 0 if nothing was
+         * recorded
+         */
+        fun valueAt(percentile: Double): Long {
+            if (count == 0L) {
+                return 0
+            }
+            val target = maxOf(1L, Math.ceil(percentile.coerceIn(0.0, 100.0) / 100.0 * count).toLong())
+            var seen = 0L
+            for (i in counts.indices) {
+                seen += counts[i]
+                if (seen >= target) {
+                    return minOf(highestValueOf(i), max)
+                }
+            }
+            return max
+        }
+
+        val p50: Long
+            get() = valueAt(50.0)
+
+        val p90: Long
+            get() = valueAt(90.0)
+
+        val p99: Long
+            get() = valueAt(99.0)
+
+        val p999: Long
+            get() = valueAt(99.9)
+
+    }
+
+}
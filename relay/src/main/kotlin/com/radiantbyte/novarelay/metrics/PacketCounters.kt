@@ -0,0 +1,56 @@
+package com.radiantbyte.novarelay.metrics
+
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock-free packet and byte counters per packet ID.
+ */
+class PacketCounters {
+
+    private val packets = AtomicLongArray(MAX_PACKET_ID + 1)
+    private val bytes = AtomicLongArray(MAX_PACKET_ID + 1)
+
+    fun record(packetId: Int, size: Int) {
+        val index = packetId and MAX_PACKET_ID
+        packets.incrementAndGet(index)
+        bytes.addAndGet(index, size.toLong())
+    }
+
+    fun packets(packetId: Int): Long = packets.get(packetId and MAX_PACKET_ID)
+
+    fun bytes(packetId: Int): Long = bytes.get(packetId and MAX_PACKET_ID)
+
+    /**
+     * @return counters of the packet IDs that were seen, most frequent first
+     */
+    fun snapshot(limit: Int = Int.MAX_VALUE): List<Entry> {
+        val entries = ArrayList<Entry>()
+        for (packetId in 0..MAX_PACKET_ID) {
+            val count = packets.get(packetId)
+            if (count > 0) {
+                entries.add(Entry(packetId, count, bytes.get(packetId)))
+            }
+        }
+        entries.sortByDescending { it.packets }
+        return if (entries.size > limit) entries.subList(0, limit) else entries
+    }
+
+    fun reset() {
+        for (i in 0..MAX_PACKET_ID) {
+            packets.set(i, 0)
+            bytes.set(i, 0)
+        }
+    }
+
+    data class Entry(
+        val packetId: Int,
+        val packets: Long,
+        val bytes: Long
+    )
+
+    companion object {
+        // Packet IDs take the low 10 bits of the packet header
+        const val MAX_PACKET_ID = 0x3ff
+    }
+
+}
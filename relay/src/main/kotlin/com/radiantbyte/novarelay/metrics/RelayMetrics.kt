@@ -0,0 +1,351 @@
+package com.radiantbyte.novarelay.metrics
+
+import org.cloudburstmc.netty.channel.raknet.config.RakChannelMetrics
+import org.cloudburstmc.netty.channel.raknet.config.RakChannelOption
+import org.cloudburstmc.protocol.bedrock.BedrockPeer
+import org.cloudburstmc.protocol.bedrock.BedrockPeerMetrics
+import org.cloudburstmc.protocol.bedrock.data.CompressionAlgorithm
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Latency and throughput metrics of one relay session.
+ *
+ * Traffic is split by direction: [serverBound] is what the client sends to the server and [clientBound] what the
+ * server sends to the client. [clientLink] and [serverLink] hold the RakNet statistics of the connection to the
+ * client and to the server. Everything is recorded lock-free on the event loops and read through [snapshot].
+ */
+class RelayMetrics {
+
+    val serverBound = DirectionMetrics()
+    val clientBound = DirectionMetrics()
+    val clientLink = LinkMetrics()
+    val serverLink = LinkMetrics()
+
+    @Volatile
+    private var startTime = System.nanoTime()
+
+    /**
+     * Reports the metrics of the peer connected to the client.
+     */
+    fun attachClientPeer(peer: BedrockPeer) {
+        attach(peer, serverBound, clientBound, clientLink)
+    }
+
+    /**
+     * Reports the metrics of the peer connected to the server.
+     */
+    fun attachServerPeer(peer: BedrockPeer) {
+        attach(peer, clientBound, serverBound, serverLink)
+    }
+
+    private fun attach(peer: BedrockPeer, inbound: DirectionMetrics, outbound: DirectionMetrics, link: LinkMetrics) {
+        peer.metrics = PeerMetrics(inbound, outbound)
+        peer.channel.config().setOption(RakChannelOption.RAK_METRICS, link)
+    }
+
+    fun snapshot(): Snapshot {
+        return Snapshot(
+            System.nanoTime() - startTime,
+            serverBound.snapshot(),
+            clientBound.snapshot(),
+            clientLink.snapshot(),
+            serverLink.snapshot()
+        )
+    }
+
+    fun reset() {
+        serverBound.reset()
+        clientBound.reset()
+        clientLink.reset()
+        serverLink.reset()
+        startTime = System.nanoTime()
+    }
+
+    class DirectionMetrics {
+
+        val packetCounters = PacketCounters()
+        private val packets = AtomicLong()
+        private val bytes = AtomicLong()
+
+        /**
+         * Nanoseconds from the first packet of an inbound batch reaching the session until the batch is handed to
+         * the target peer. Together with [queueDelay] this is the inbound to outbound forwarding delay.
+         */
+        val handlingTime = LatencyHistogram()
+
+        /**
+         * Nanoseconds a packet or batch spends in the target peer's queue before it is written.
+         */
+        val queueDelay = LatencyHistogram()
+
+        /**
+         * Messages written per flush of the target peer's queue.
+         */
+        val flushSize = LatencyHistogram()
+
+        val decompression = CompressionMetrics()
+        val compression = CompressionMetrics()
+
+        /**
+         * Flushes of the target peer's queue that had to be handed to its event loop from another thread. Stays at 0
+         * while both connections of the session share an event loop.
+         */
+        private val crossThreadHandoffs = AtomicLong()
+
+        internal fun crossThreadHandoff() {
+            crossThreadHandoffs.incrementAndGet()
+        }
+
+        internal fun packetReceived(packetId: Int, size: Int) {
+            packetCounters.record(packetId, size)
+            packets.incrementAndGet()
+            bytes.addAndGet(size.toLong())
+        }
+
+        fun snapshot(): DirectionSnapshot {
+            return DirectionSnapshot(
+                packets.get(),
+                bytes.get(),
+                packetCounters.snapshot(TOP_PACKETS),
+                handlingTime.snapshot(),
+                queueDelay.snapshot(),
+                flushSize.snapshot(),
+                decompression.snapshot(),
+                compression.snapshot(),
+                crossThreadHandoffs.get()
+            )
+        }
+
+        fun reset() {
+            packetCounters.reset()
+            packets.set(0)
+            bytes.set(0)
+            handlingTime.reset()
+            queueDelay.reset()
+            flushSize.reset()
+            decompression.reset()
+            compression.reset()
+            crossThreadHandoffs.set(0)
+        }
+
+    }
+
+    class CompressionMetrics {
+
+        /**
+         * Nanoseconds spent per batch.
+         */
+        val time = LatencyHistogram()
+        private val compressedBytes = AtomicLong()
+        private val uncompressedBytes = AtomicLong()
+
+        internal fun record(compressed: Int, uncompressed: Int, nanos: Long) {
+            time.record(nanos)
+            compressedBytes.addAndGet(compressed.toLong())
+            uncompressedBytes.addAndGet(uncompressed.toLong())
+        }
+
+        fun snapshot(): CompressionSnapshot {
+            return CompressionSnapshot(time.snapshot(), compressedBytes.get(), uncompressedBytes.get())
+        }
+
+        fun reset() {
+            time.reset()
+            compressedBytes.set(0)
+            uncompressedBytes.set(0)
+        }
+
+    }
+
+    class LinkMetrics : RakChannelMetrics {
+
+        /**
+         * Milliseconds between sending a datagram and receiving its acknowledgement.
+         */
+        val rtt = LatencyHistogram()
+        private val receivedBytes = AtomicLong()
+        private val sentBytes = AtomicLong()
+        private val receivedDatagrams = AtomicLong()
+        private val sentDatagrams = AtomicLong()
+        private val staleResends = AtomicLong()
+        private val nackedResends = AtomicLong()
+        private val queuedBytes = AtomicInteger()
+        private val crossThreadHandoffs = AtomicLong()
+
+        override fun bytesIn(count: Int) {
+            receivedBytes.addAndGet(count.toLong())
+        }
+
+        override fun bytesOut(count: Int) {
+            sentBytes.addAndGet(count.toLong())
+        }
+
+        override fun rakDatagramsIn(count: Int) {
+            receivedDatagrams.addAndGet(count.toLong())
+        }
+
+        override fun rakDatagramsOut(count: Int) {
+            sentDatagrams.addAndGet(count.toLong())
+        }
+
+        override fun rakStaleDatagrams(count: Int) {
+            staleResends.addAndGet(count.toLong())
+        }
+
+        override fun rakNackedDatagrams(count: Int) {
+            nackedResends.addAndGet(count.toLong())
+        }
+
+        override fun roundTripTime(millis: Long) {
+            rtt.record(millis)
+        }
+
+        override fun queuedPacketBytes(count: Int) {
+            queuedBytes.set(count)
+        }
+
+        override fun crossThreadHandoff() {
+            crossThreadHandoffs.incrementAndGet()
+        }
+
+        fun snapshot(): LinkSnapshot {
+            return LinkSnapshot(
+                rtt.snapshot(),
+                receivedBytes.get(),
+                sentBytes.get(),
+                receivedDatagrams.get(),
+                sentDatagrams.get(),
+                staleResends.get(),
+                nackedResends.get(),
+                queuedBytes.get(),
+                crossThreadHandoffs.get()
+            )
+        }
+
+        fun reset() {
+            rtt.reset()
+            receivedBytes.set(0)
+            sentBytes.set(0)
+            receivedDatagrams.set(0)
+            sentDatagrams.set(0)
+            staleResends.set(0)
+            nackedResends.set(0)
+            crossThreadHandoffs.set(0)
+        }
+
+    }
+
+    /**
+     * Routes the metrics of one peer: what it receives belongs to one direction and what it sends to the other.
+     */
+    private class PeerMetrics(
+        private val inbound: DirectionMetrics,
+        private val outbound: DirectionMetrics
+    ) : BedrockPeerMetrics {
+
+        override fun packetReceived(packetId: Int, bytes: Int) {
+            inbound.packetReceived(packetId, bytes)
+        }
+
+        override fun packetQueueDelay(nanos: Long) {
+            outbound.queueDelay.record(nanos)
+        }
+
+        override fun queueFlushed(count: Int, bytes: Int) {
+            outbound.flushSize.record(count.toLong())
+        }
+
+        override fun batchDecompressed(
+            algorithm: CompressionAlgorithm,
+            compressedBytes: Int,
+            uncompressedBytes: Int,
+            nanos: Long
+        ) {
+            inbound.decompression.record(compressedBytes, uncompressedBytes, nanos)
+        }
+
+        override fun batchCompressed(
+            algorithm: CompressionAlgorithm,
+            uncompressedBytes: Int,
+            compressedBytes: Int,
+            nanos: Long
+        ) {
+            outbound.compression.record(compressedBytes, uncompressedBytes, nanos)
+        }
+
+        override fun crossThreadHandoff() {
+            outbound.crossThreadHandoff()
+        }
+
+    }
+
+    data class Snapshot(
+        val uptimeNanos: Long,
+        val serverBound: DirectionSnapshot,
+        val clientBound: DirectionSnapshot,
+        val clientLink: LinkSnapshot,
+        val serverLink: LinkSnapshot
+    ) {
+
+        /**
+         * Messages of the session handed between threads, see [DirectionSnapshot.crossThreadHandoffs] and
+         * [LinkSnapshot.crossThreadHandoffs].
+         */
+        val crossThreadHandoffs: Long
+            get() = serverBound.crossThreadHandoffs + clientBound.crossThreadHandoffs +
+                    clientLink.crossThreadHandoffs + serverLink.crossThreadHandoffs
+
+    }
+
+    data class DirectionSnapshot(
+        val packets: Long,
+        val bytes: Long,
+        val topPackets: List<PacketCounters.Entry>,
+        val handlingTime: LatencyHistogram.Snapshot,
+        val queueDelay: LatencyHistogram.Snapshot,
+        val flushSize: LatencyHistogram.Snapshot,
+        val decompression: CompressionSnapshot,
+        val compression: CompressionSnapshot,
+        val crossThreadHandoffs: Long
+    )
+
+    data class CompressionSnapshot(
+        val time: LatencyHistogram.Snapshot,
+        val compressedBytes: Long,
+        val uncompressedBytes: Long
+    ) {
+
+        /**
+         * Uncompressed size divided by compressed size, or 0 if nothing was compressed.
+         */
+        val ratio: Double
+            get() = if (compressedBytes == 0L) 0.0 else uncompressedBytes.toDouble() / compressedBytes
+
+    }
+
+    data class LinkSnapshot(
+        val roundTripTime: LatencyHistogram.Snapshot,
+        val bytesIn: Long,
+        val bytesOut: Long,
+        val datagramsIn: Long,
+        val datagramsOut: Long,
+        val staleResends: Long,
+        val nackedResends: Long,
+        val queuedBytes: Int,
+        /**
+         * Messages handed between the event loop of the connection and the one running its RakNet session.
+         */
+        val crossThreadHandoffs: Long
+    ) {
+
+        val retransmits: Long
+            get() = staleResends + nackedResends
+
+    }
+
+    companion object {
+        private const val TOP_PACKETS = 16
+    }
+
+}
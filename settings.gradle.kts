@@ -32,6 +32,7 @@ include(":app")
 include(":relay")
 include(
     ":relay:adventure",
+    ":relay:benchmarks",
     ":relay:Protocol:bedrock-codec",
     ":relay:Protocol:bedrock-connection",
     ":relay:Protocol:common",